@@ -0,0 +1,16 @@
+package com.example.campusride;
+
+import android.app.Application;
+import com.example.campusride.utils.StartupOrchestrator;
+
+/**
+ * Application class - starts SDK initialization off the launch path
+ */
+public class CampusRideApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        StartupOrchestrator.getInstance().start(this);
+    }
+}
@@ -22,6 +22,8 @@ import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.example.campusride.R;
+import com.example.campusride.data.DocumentMappers;
+import com.example.campusride.data.UserRoleCache;
 import com.example.campusride.models.Driver;
 import com.example.campusride.models.Shuttle;
 import com.example.campusride.services.LocationService;
@@ -59,6 +61,7 @@ public class DriverDashboardActivity extends AppCompatActivity {
     private boolean isOnShift = false;
     private ListenerRegistration driverListener;
     private ListenerRegistration shuttleListener;
+    private String assignedShuttleId;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -134,7 +137,7 @@ public class DriverDashboardActivity extends AppCompatActivity {
                     }
 
                     if (snapshot != null && snapshot.exists()) {
-                        driver = snapshot.toObject(Driver.class);
+                        driver = DocumentMappers.toDriver(snapshot);
                         if (driver != null) {
                             updateDriverUI();
 
@@ -148,9 +151,16 @@ public class DriverDashboardActivity extends AppCompatActivity {
     }
 
     /**
-     * Load assigned shuttle data
+     * Load assigned shuttle data; the listener is only replaced when the assignment changes
      */
     private void loadAssignedShuttle(String shuttleId) {
+        if (shuttleId.equals(assignedShuttleId) && shuttleListener != null) return;
+        assignedShuttleId = shuttleId;
+        if (shuttleListener != null) {
+            shuttleListener.remove();
+        }
+
+        // The driver only needs their own shuttle, not the whole fleet
         shuttleListener = db.collection("shuttles")
                 .document(shuttleId)
                 .addSnapshotListener((snapshot, error) -> {
@@ -159,7 +169,7 @@ public class DriverDashboardActivity extends AppCompatActivity {
                     }
 
                     if (snapshot != null && snapshot.exists()) {
-                        assignedShuttle = snapshot.toObject(Shuttle.class);
+                        assignedShuttle = DocumentMappers.toShuttle(snapshot);
                         updateShuttleUI();
                     }
                 });
@@ -432,6 +442,7 @@ public class DriverDashboardActivity extends AppCompatActivity {
         }
 
         mAuth.signOut();
+        new UserRoleCache(this).clear();
         navigateToLogin();
     }
 
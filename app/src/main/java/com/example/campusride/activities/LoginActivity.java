@@ -13,6 +13,8 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.example.campusride.R;
+import com.example.campusride.data.DocumentMappers;
+import com.example.campusride.data.UserRoleCache;
 import com.example.campusride.models.User;
 
 /**
@@ -149,8 +151,11 @@ public class LoginActivity extends AppCompatActivity {
                     showProgress(false);
 
                     if (documentSnapshot.exists()) {
-                        User user = documentSnapshot.toObject(User.class);
+                        User user = DocumentMappers.toUser(documentSnapshot);
                         if (user != null) {
+                            // Lets the splash screen route without waiting next launch
+                            new UserRoleCache(this).save(userId, user.getUserType());
+
                             // Update last active
                             user.updateLastActive();
                             db.collection("users").document(userId)
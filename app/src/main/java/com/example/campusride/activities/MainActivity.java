@@ -4,6 +4,8 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewTreeObserver;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.Fragment;
@@ -12,32 +14,61 @@ import androidx.fragment.app.FragmentTransaction;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
 import com.example.campusride.R;
+import com.example.campusride.data.RouteRepository;
 import com.example.campusride.fragments.FavoritesFragment;
 import com.example.campusride.fragments.MapFragment;
 import com.example.campusride.fragments.ReportFragment;
 import com.example.campusride.fragments.ScheduleFragment;
+import com.example.campusride.utils.FirebaseHelper;
+import com.example.campusride.utils.StartupTracer;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Main Activity - Student Interface
- * Container for main fragments with bottom navigation
+ * Container for main fragments with bottom navigation.
+ * Only the map is created at startup; the other tabs are created the first
+ * time they are opened, and their data is warmed once the first frame is up.
  */
 public class MainActivity extends AppCompatActivity {
 
+    private static final String TAG_MAP = "MAP";
+    private static final String TAG_FAVORITES = "FAVORITES";
+    private static final String TAG_SCHEDULE = "SCHEDULE";
+    private static final String TAG_REPORT = "REPORT";
+
     private MaterialToolbar toolbar;
     private BottomNavigationView bottomNavigation;
     private FragmentManager fragmentManager;
 
-    // Fragment instances
+    // Fragment instances, created on first use
+    private final Map<String, Fragment> fragments = new HashMap<>();
     private MapFragment mapFragment;
-    private FavoritesFragment favoritesFragment;
-    private ScheduleFragment scheduleFragment;
-    private ReportFragment reportFragment;
     private Fragment activeFragment;
+    private final ViewTreeObserver.OnDrawListener firstDrawListener = new ViewTreeObserver.OnDrawListener() {
+        private boolean drawn;
+
+        @Override
+        public void onDraw() {
+            if (drawn) return;
+            drawn = true;
+            StartupTracer.mark(StartupTracer.FIRST_FRAME);
+
+            // Listeners can't be removed while drawing, and the warm-up shouldn't delay this frame
+            View decorView = getWindow().getDecorView();
+            decorView.post(() -> {
+                decorView.getViewTreeObserver().removeOnDrawListener(this);
+                warmUpTabs();
+            });
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTracer.mark(StartupTracer.ACTIVITY_CREATED);
         setContentView(R.layout.activity_main);
 
         // Initialize views
@@ -47,15 +78,13 @@ public class MainActivity extends AppCompatActivity {
         setupToolbar();
 
         // Initialize fragments
-        initializeFragments();
+        initializeFragments(savedInstanceState);
 
         // Setup bottom navigation
         setupBottomNavigation();
 
-        // Show default fragment (Map)
-        if (savedInstanceState == null) {
-            showFragment(mapFragment);
-        }
+        // Warm the other tabs once the map's first frame is drawn
+        getWindow().getDecorView().getViewTreeObserver().addOnDrawListener(firstDrawListener);
     }
 
     /**
@@ -79,23 +108,59 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Initialize all fragments
+     * Add the map, or pick up the fragments restored after recreation
      */
-    private void initializeFragments() {
-        mapFragment = new MapFragment();
-        favoritesFragment = new FavoritesFragment();
-        scheduleFragment = new ScheduleFragment();
-        reportFragment = new ReportFragment();
-
-        // Add all fragments but hide them initially
-        FragmentTransaction transaction = fragmentManager.beginTransaction();
-        transaction.add(R.id.fragment_container, mapFragment, "MAP");
-        transaction.add(R.id.fragment_container, favoritesFragment, "FAVORITES").hide(favoritesFragment);
-        transaction.add(R.id.fragment_container, scheduleFragment, "SCHEDULE").hide(scheduleFragment);
-        transaction.add(R.id.fragment_container, reportFragment, "REPORT").hide(reportFragment);
-        transaction.commit();
+    private void initializeFragments(Bundle savedInstanceState) {
+        if (savedInstanceState == null) {
+            mapFragment = (MapFragment) getFragment(TAG_MAP);
+            fragmentManager.beginTransaction()
+                    .add(R.id.fragment_container, mapFragment, TAG_MAP)
+                    .commit();
+            activeFragment = mapFragment;
+            return;
+        }
 
+        mapFragment = (MapFragment) getFragment(TAG_MAP);
         activeFragment = mapFragment;
+        for (String tag : new String[]{TAG_FAVORITES, TAG_SCHEDULE, TAG_REPORT}) {
+            Fragment restored = fragmentManager.findFragmentByTag(tag);
+            if (restored != null) {
+                fragments.put(tag, restored);
+                if (!restored.isHidden()) activeFragment = restored;
+            }
+        }
+    }
+
+    /**
+     * Prefetch what the other tabs will ask for first, so opening them reads from the local cache
+     */
+    private void warmUpTabs() {
+        RouteRepository.getInstance().prefetch();
+
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user != null) {
+            new FirebaseHelper().getUser(user.getUid());
+        }
+    }
+
+    /**
+     * Get a tab's fragment, creating it the first time
+     */
+    private Fragment getFragment(String tag) {
+        Fragment fragment = fragments.get(tag);
+        if (fragment == null) {
+            fragment = fragmentManager.findFragmentByTag(tag);
+        }
+        if (fragment == null) {
+            switch (tag) {
+                case TAG_FAVORITES: fragment = new FavoritesFragment(); break;
+                case TAG_SCHEDULE: fragment = new ScheduleFragment(); break;
+                case TAG_REPORT: fragment = new ReportFragment(); break;
+                default: fragment = new MapFragment(); break;
+            }
+        }
+        fragments.put(tag, fragment);
+        return fragment;
     }
 
     /**
@@ -106,19 +171,19 @@ public class MainActivity extends AppCompatActivity {
             int itemId = item.getItemId();
 
             if (itemId == R.id.navigation_map) {
-                showFragment(mapFragment);
+                showFragment(TAG_MAP);
                 updateToolbarTitle(getString(R.string.nav_map));
                 return true;
             } else if (itemId == R.id.navigation_favorites) {
-                showFragment(favoritesFragment);
+                showFragment(TAG_FAVORITES);
                 updateToolbarTitle(getString(R.string.nav_favorites));
                 return true;
             } else if (itemId == R.id.navigation_schedule) {
-                showFragment(scheduleFragment);
+                showFragment(TAG_SCHEDULE);
                 updateToolbarTitle(getString(R.string.nav_schedule));
                 return true;
             } else if (itemId == R.id.navigation_report) {
-                showFragment(reportFragment);
+                showFragment(TAG_REPORT);
                 updateToolbarTitle(getString(R.string.nav_report));
                 return true;
             }
@@ -128,12 +193,19 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Show a fragment and hide the current one
+     * Show a tab, adding its fragment on first use, and hide the current one
      */
-    private void showFragment(Fragment fragment) {
+    private void showFragment(String tag) {
+        Fragment fragment = getFragment(tag);
+        if (fragment == activeFragment) return;
+
         FragmentTransaction transaction = fragmentManager.beginTransaction();
         transaction.hide(activeFragment);
-        transaction.show(fragment);
+        if (fragment.isAdded()) {
+            transaction.show(fragment);
+        } else {
+            transaction.add(R.id.fragment_container, fragment, tag);
+        }
         transaction.commit();
         activeFragment = fragment;
     }
@@ -6,39 +6,91 @@ import android.os.Handler;
 import android.os.Looper;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.example.campusride.R;
+import com.example.campusride.data.DocumentMappers;
+import com.example.campusride.data.FleetRepository;
+import com.example.campusride.data.RouteRepository;
+import com.example.campusride.data.StopRepository;
+import com.example.campusride.data.UserRoleCache;
 import com.example.campusride.models.User;
+import com.example.campusride.utils.StartupOrchestrator;
 
 /**
  * Splash Activity - Entry point of the application
- * Displays branding and checks authentication status
+ * Displays branding and checks authentication status.
+ * Routes from the role cached on the device and revalidates it in the
+ * background, replacing the opened screen if the role changed. Riders
+ * leave as soon as the first prefetched data arrives, or after a short
+ * timeout.
  */
 public class SplashActivity extends AppCompatActivity {
 
-    private static final int SPLASH_DELAY = 2000; // 2 seconds
+    private static final int MAX_SPLASH_WAIT = 1500; // 1.5 seconds, then go without data
 
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
+    private UserRoleCache roleCache;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // Navigation state
+    private Class<?> destination;
+    private boolean dataReady;
+    private boolean navigated;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
 
+        roleCache = new UserRoleCache(this);
+        handler.postDelayed(() -> {
+            dataReady = true;
+            navigateWhenReady();
+        }, MAX_SPLASH_WAIT);
+
+        // Firebase initializes on a background thread; don't block on it here
+        StartupOrchestrator.getInstance().getFirebaseReady()
+                .addOnCompleteListener(task -> onFirebaseReady());
+    }
+
+    private void onFirebaseReady() {
+        if (isFinishing() || isDestroyed()) return;
+
         // Initialize Firebase
         mAuth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
 
-        // Delay and check authentication
-        new Handler(Looper.getMainLooper()).postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                checkAuthenticationAndNavigate();
+        // Map data and role are fetched in parallel
+        startPrefetch();
+        checkAuthenticationAndNavigate();
+    }
+
+    /**
+     * Warm Firestore's local cache with what the map opens first
+     */
+    private void startPrefetch() {
+        Task<?>[] prefetches = {
+                StopRepository.getInstance().prefetch(),
+                RouteRepository.getInstance().prefetch(),
+                FleetRepository.getInstance().prefetch()
+        };
+        for (Task<?> prefetch : prefetches) {
+            if (prefetch == null) {
+                // Already live from an earlier launch in this process
+                onFirstData();
+            } else {
+                prefetch.addOnCompleteListener(task -> onFirstData());
             }
-        }, SPLASH_DELAY);
+        }
+    }
+
+    private void onFirstData() {
+        dataReady = true;
+        navigateWhenReady();
     }
 
     /**
@@ -48,70 +100,96 @@ public class SplashActivity extends AppCompatActivity {
         FirebaseUser currentUser = mAuth.getCurrentUser();
 
         if (currentUser != null) {
-            // User is signed in, check their role
-            checkUserRoleAndNavigate(currentUser.getUid());
+            // Route from the cached role right away; the users document only confirms it
+            User.UserType cachedRole = roleCache.getRole(currentUser.getUid());
+            if (cachedRole != null) {
+                destination = destinationFor(cachedRole);
+            }
+            revalidateRole(currentUser.getUid());
         } else {
             // No user signed in, go to student main activity
-            navigateToMainActivity();
+            destination = MainActivity.class;
         }
+        navigateWhenReady();
     }
 
     /**
-     * Check user role in Firestore and navigate to appropriate screen
+     * Refresh the cached role from Firestore; decides the destination if nothing was cached
      */
-    private void checkUserRoleAndNavigate(String userId) {
+    private void revalidateRole(String userId) {
         db.collection("users").document(userId)
                 .get()
                 .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        User user = documentSnapshot.toObject(User.class);
-                        if (user != null) {
-                            // Update last active timestamp
-                            user.updateLastActive();
-                            db.collection("users").document(userId)
-                                    .update("lastActive", user.getLastActive());
-
-                            // Navigate based on user type
-                            if (user.isDriver()) {
-                                navigateToDriverDashboard();
-                            } else if (user.isAdmin()) {
-                                // TODO: Navigate to admin dashboard when implemented
-                                navigateToMainActivity();
-                            } else {
-                                navigateToMainActivity();
-                            }
-                        } else {
-                            navigateToMainActivity();
-                        }
-                    } else {
-                        // User document doesn't exist, go to main activity
-                        navigateToMainActivity();
+                    User user = documentSnapshot.exists() ? DocumentMappers.toUser(documentSnapshot) : null;
+                    if (user != null) {
+                        roleCache.save(userId, user.getUserType());
+
+                        // Update last active timestamp without waiting for it
+                        user.updateLastActive();
+                        db.collection("users").document(userId)
+                                .update("lastActive", user.getLastActive());
                     }
+                    // Without a user document, go to main activity
+                    onRoleKnown(user != null ? destinationFor(user.getUserType()) : MainActivity.class);
                 })
                 .addOnFailureListener(e -> {
-                    // Error fetching user data, go to main activity
-                    navigateToMainActivity();
+                    // Error fetching user data; keep the cached role, or go to main activity
+                    if (destination == null) onRoleKnown(MainActivity.class);
                 });
     }
 
+    private void onRoleKnown(Class<?> revalidated) {
+        if (destination == revalidated) return;
+
+        // Either nothing was cached or the cached role is out of date
+        destination = revalidated;
+        if (navigated) {
+            reroute();
+        } else {
+            navigateWhenReady();
+        }
+    }
+
     /**
-     * Navigate to Main Activity (Student Interface)
+     * Replace the screen already opened from a stale cached role
      */
-    private void navigateToMainActivity() {
-        Intent intent = new Intent(SplashActivity.this, MainActivity.class);
-        startActivity(intent);
-        finish();
+    private void reroute() {
+        Intent intent = new Intent(getApplicationContext(), destination);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        getApplicationContext().startActivity(intent);
     }
 
     /**
-     * Navigate to Driver Dashboard
+     * Screen for a role
      */
-    private void navigateToDriverDashboard() {
-        Intent intent = new Intent(SplashActivity.this, DriverDashboardActivity.class);
+    private static Class<?> destinationFor(User.UserType role) {
+        if (role == User.UserType.DRIVER) {
+            return DriverDashboardActivity.class;
+        }
+        // TODO: Navigate to admin dashboard when implemented
+        return MainActivity.class;
+    }
+
+    /**
+     * Leave once the destination is known; riders also wait for first data or the timeout
+     */
+    private void navigateWhenReady() {
+        if (navigated || destination == null || isFinishing()) return;
+        if (destination == MainActivity.class && !dataReady) return;
+
+        navigated = true;
+        handler.removeCallbacksAndMessages(null);
+        Intent intent = new Intent(SplashActivity.this, destination);
         startActivity(intent);
         finish();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        handler.removeCallbacksAndMessages(null);
+    }
+
     /**
      * Navigate to Login Activity
      */
@@ -0,0 +1,124 @@
+package com.example.campusride.adapters;
+
+import androidx.recyclerview.widget.RecyclerView;
+import com.example.campusride.data.ChangeSet;
+import com.example.campusride.data.CollectionState;
+import java.util.List;
+
+/**
+ * Applies a collection change set to the list behind a RecyclerView adapter,
+ * notifying only the rows that were inserted, changed or removed
+ */
+public final class ChangeSetDispatcher {
+
+    public interface KeyProvider<T> {
+        String keyOf(T item);
+    }
+
+    public interface ItemFilter<T> {
+        boolean accept(T item);
+    }
+
+    /**
+     * Row notifications, kept apart from RecyclerView so the list logic runs in a plain JVM
+     */
+    interface RowNotifier {
+        void notifyDataSetChanged();
+
+        void notifyItemInserted(int position);
+
+        void notifyItemChanged(int position);
+
+        void notifyItemRemoved(int position);
+    }
+
+    private ChangeSetDispatcher() {
+    }
+
+    /**
+     * Update the list in place from the state's change set.
+     * New rows are appended; a full refresh rebuilds the list.
+     */
+    public static <T> void dispatch(CollectionState<T> state, List<T> list, KeyProvider<T> keys,
+                                    ItemFilter<T> filter, RecyclerView.Adapter<?> adapter) {
+        dispatch(state, list, keys, filter, new RowNotifier() {
+            @Override
+            public void notifyDataSetChanged() {
+                adapter.notifyDataSetChanged();
+            }
+
+            @Override
+            public void notifyItemInserted(int position) {
+                adapter.notifyItemInserted(position);
+            }
+
+            @Override
+            public void notifyItemChanged(int position) {
+                adapter.notifyItemChanged(position);
+            }
+
+            @Override
+            public void notifyItemRemoved(int position) {
+                adapter.notifyItemRemoved(position);
+            }
+        });
+    }
+
+    static <T> void dispatch(CollectionState<T> state, List<T> list, KeyProvider<T> keys,
+                             ItemFilter<T> filter, RowNotifier adapter) {
+        ChangeSet changes = state.getChanges();
+
+        if (changes.isFullRefresh()) {
+            list.clear();
+            for (T item : state.getItems()) {
+                if (filter.accept(item)) list.add(item);
+            }
+            adapter.notifyDataSetChanged();
+            return;
+        }
+
+        for (String id : changes.getRemoved()) {
+            int index = indexOf(list, id, keys);
+            if (index >= 0) {
+                list.remove(index);
+                adapter.notifyItemRemoved(index);
+            }
+        }
+
+        for (String id : changes.getModified()) {
+            upsert(state.get(id), id, list, keys, filter, adapter);
+        }
+
+        for (String id : changes.getAdded()) {
+            upsert(state.get(id), id, list, keys, filter, adapter);
+        }
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static <T> void upsert(T item, String id, List<T> list, KeyProvider<T> keys,
+                                   ItemFilter<T> filter, RowNotifier adapter) {
+        int index = indexOf(list, id, keys);
+        boolean keep = item != null && filter.accept(item);
+
+        if (index >= 0 && keep) {
+            list.set(index, item);
+            adapter.notifyItemChanged(index);
+        } else if (index >= 0) {
+            list.remove(index);
+            adapter.notifyItemRemoved(index);
+        } else if (keep) {
+            list.add(item);
+            adapter.notifyItemInserted(list.size() - 1);
+        }
+    }
+
+    private static <T> int indexOf(List<T> list, String id, KeyProvider<T> keys) {
+        for (int i = 0; i < list.size(); i++) {
+            if (id.equals(keys.keyOf(list.get(i)))) return i;
+        }
+        return -1;
+    }
+}
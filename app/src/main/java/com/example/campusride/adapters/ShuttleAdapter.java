@@ -1,50 +1,137 @@
 package com.example.campusride.adapters;
 
+import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.button.MaterialButton;
 import com.example.campusride.R;
 import com.example.campusride.models.Shuttle;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
- * Adapter for displaying shuttles in RecyclerView
+ * Adapter for displaying shuttles in RecyclerView.
+ * Lists are diffed on a background thread; rows whose ETA, distance or
+ * capacity changed are rebound with a payload touching only those views.
  */
-public class ShuttleAdapter extends RecyclerView.Adapter<ShuttleAdapter.ShuttleViewHolder> {
+public class ShuttleAdapter extends ListAdapter<ShuttleListItem, ShuttleAdapter.ShuttleViewHolder> {
+
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final float STALE_ALPHA = 0.5f;
+
+    private static final DiffUtil.ItemCallback<ShuttleListItem> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<ShuttleListItem>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull ShuttleListItem oldItem, @NonNull ShuttleListItem newItem) {
+                    return oldItem.getShuttleId() != null && oldItem.getShuttleId().equals(newItem.getShuttleId());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull ShuttleListItem oldItem, @NonNull ShuttleListItem newItem) {
+                    return oldItem.diff(newItem) == 0;
+                }
+
+                @Override
+                public Object getChangePayload(@NonNull ShuttleListItem oldItem, @NonNull ShuttleListItem newItem) {
+                    int changes = oldItem.diff(newItem);
+                    // Anything beyond the live values needs a full bind
+                    return (changes & ShuttleListItem.CHANGE_OTHER) != 0 ? null : changes;
+                }
+            };
 
-    private final List<Shuttle> shuttles;
     private final OnShuttleClickListener listener;
+    private final Map<String, Long> stableIds = new HashMap<>();
+    private StatusColors statusColors;
 
     public interface OnShuttleClickListener {
         void onShuttleClick(Shuttle shuttle);
     }
 
-    public ShuttleAdapter(List<Shuttle> shuttles, OnShuttleClickListener listener) {
-        this.shuttles = shuttles;
+    public ShuttleAdapter(OnShuttleClickListener listener) {
+        super(new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                .setBackgroundThreadExecutor(DIFF_EXECUTOR)
+                .build());
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
     @Override
     public ShuttleViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (statusColors == null) {
+            statusColors = new StatusColors(parent.getContext());
+        }
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_shuttle_card, parent, false);
-        return new ShuttleViewHolder(view);
+        return new ShuttleViewHolder(view, statusColors, listener);
     }
 
     @Override
     public void onBindViewHolder(@NonNull ShuttleViewHolder holder, int position) {
-        holder.bind(shuttles.get(position), listener);
+        holder.bind(getItem(position));
     }
 
     @Override
-    public int getItemCount() {
-        return shuttles.size();
+    public void onBindViewHolder(@NonNull ShuttleViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+
+        int changes = 0;
+        for (Object payload : payloads) {
+            if (payload instanceof Integer) changes |= (Integer) payload;
+        }
+        holder.bindChanges(getItem(position), changes);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String shuttleId = getItem(position).getShuttleId();
+        Long id = stableIds.get(shuttleId);
+        if (id == null) {
+            id = (long) stableIds.size();
+            stableIds.put(shuttleId, id);
+        }
+        return id;
+    }
+
+    /**
+     * Status colors resolved once per adapter instead of on every bind
+     */
+    static class StatusColors {
+        final int active;
+        final int onBreak;
+        final int danger;
+        final int offline;
+
+        StatusColors(Context context) {
+            active = ContextCompat.getColor(context, R.color.success);
+            onBreak = ContextCompat.getColor(context, R.color.warning);
+            danger = ContextCompat.getColor(context, R.color.danger);
+            offline = ContextCompat.getColor(context, R.color.text_hint);
+        }
+
+        int forStatus(Shuttle.ShuttleStatus status) {
+            if (status == null) return danger;
+            switch (status) {
+                case ACTIVE: return active;
+                case ON_BREAK: return onBreak;
+                case BREAKDOWN: return danger;
+                default: return offline;
+            }
+        }
     }
 
     static class ShuttleViewHolder extends RecyclerView.ViewHolder {
@@ -56,9 +143,12 @@ public class ShuttleAdapter extends RecyclerView.Adapter<ShuttleAdapter.ShuttleV
         private final TextView tvDistance;
         private final TextView tvCapacity;
         private final MaterialButton btnNotify;
+        private final StatusColors statusColors;
+        private ShuttleListItem item;
 
-        ShuttleViewHolder(View itemView) {
+        ShuttleViewHolder(View itemView, StatusColors statusColors, OnShuttleClickListener listener) {
             super(itemView);
+            this.statusColors = statusColors;
             viewStatusBorder = itemView.findViewById(R.id.view_status_border);
             tvShuttleName = itemView.findViewById(R.id.tv_shuttle_name);
             tvRouteName = itemView.findViewById(R.id.tv_route_name);
@@ -67,53 +157,52 @@ public class ShuttleAdapter extends RecyclerView.Adapter<ShuttleAdapter.ShuttleV
             tvDistance = itemView.findViewById(R.id.tv_distance);
             tvCapacity = itemView.findViewById(R.id.tv_capacity);
             btnNotify = itemView.findViewById(R.id.btn_notify);
+
+            // Click listeners read the bound item, so they are set once per holder
+            itemView.setOnClickListener(v -> {
+                if (item != null) listener.onShuttleClick(item.getShuttle());
+            });
+
+            btnNotify.setOnClickListener(v -> {
+                if (item == null) return;
+                // TODO: Setup notification for this shuttle
+                android.widget.Toast.makeText(itemView.getContext(),
+                        "Notification enabled for " + item.getShuttleName(),
+                        android.widget.Toast.LENGTH_SHORT).show();
+            });
         }
 
-        void bind(Shuttle shuttle, OnShuttleClickListener listener) {
+        void bind(ShuttleListItem item) {
+            this.item = item;
+
             // Shuttle name and route
-            tvShuttleName.setText(shuttle.getShuttleName());
-            tvRouteName.setText(shuttle.getCurrentRoute() != null ?
-                    shuttle.getCurrentRoute() : "No active route");
+            tvShuttleName.setText(item.getShuttleName());
+            tvRouteName.setText(item.getRouteText());
 
             // Status badge
-            String statusText = getStatusText(shuttle.getStatus());
-            tvStatusBadge.setText(statusText);
+            tvStatusBadge.setText(getStatusText(item.getStatus()));
 
             // Status border and badge color
-            int statusColor = getStatusColor(shuttle.getStatus(), itemView);
-            viewStatusBorder.setBackgroundColor(statusColor);
-            tvStatusBadge.setBackgroundResource(getStatusBackground(shuttle.getStatus()));
-
-            // ETA
-            if (shuttle.getEtaMinutes() > 0) {
-                if (shuttle.getEtaMinutes() < 1) {
-                    tvEta.setText("Arriving now");
-                } else {
-                    tvEta.setText(String.format(Locale.getDefault(), "%d min", shuttle.getEtaMinutes()));
-                }
-            } else {
-                tvEta.setText("--");
-            }
-
-            // Distance
-            if (shuttle.getDistanceToStop() > 0) {
-                tvDistance.setText(String.format(Locale.getDefault(), "%.1f km", shuttle.getDistanceToStop()));
-            } else {
-                tvDistance.setText("--");
-            }
+            viewStatusBorder.setBackgroundColor(statusColors.forStatus(item.getStatus()));
+            tvStatusBadge.setBackgroundResource(getStatusBackground(item.getStatus()));
 
-            // Capacity
-            tvCapacity.setText(shuttle.getCapacityString());
+            // ETA, distance and capacity
+            tvEta.setText(item.getEtaText());
+            tvDistance.setText(item.getDistanceText());
+            tvCapacity.setText(item.getCapacityText());
 
-            // Click listeners
-            itemView.setOnClickListener(v -> listener.onShuttleClick(shuttle));
+            // Last known shuttles are faded until live data arrives
+            itemView.setAlpha(item.isStale() ? STALE_ALPHA : 1f);
+        }
 
-            btnNotify.setOnClickListener(v -> {
-                // TODO: Setup notification for this shuttle
-                android.widget.Toast.makeText(itemView.getContext(),
-                        "Notification enabled for " + shuttle.getShuttleName(),
-                        android.widget.Toast.LENGTH_SHORT).show();
-            });
+        /**
+         * Rebind only the views named in the payload
+         */
+        void bindChanges(ShuttleListItem item, int changes) {
+            this.item = item;
+            if ((changes & ShuttleListItem.CHANGE_ETA) != 0) tvEta.setText(item.getEtaText());
+            if ((changes & ShuttleListItem.CHANGE_DISTANCE) != 0) tvDistance.setText(item.getDistanceText());
+            if ((changes & ShuttleListItem.CHANGE_CAPACITY) != 0) tvCapacity.setText(item.getCapacityText());
         }
 
         private String getStatusText(Shuttle.ShuttleStatus status) {
@@ -126,22 +215,6 @@ public class ShuttleAdapter extends RecyclerView.Adapter<ShuttleAdapter.ShuttleV
             }
         }
 
-        private int getStatusColor(Shuttle.ShuttleStatus status, View view) {
-            if (status == null) {
-                return androidx.core.content.ContextCompat.getColor(view.getContext(), R.color.danger);
-            }
-            switch (status) {
-                case ACTIVE:
-                    return androidx.core.content.ContextCompat.getColor(view.getContext(), R.color.success);
-                case ON_BREAK:
-                    return androidx.core.content.ContextCompat.getColor(view.getContext(), R.color.warning);
-                case BREAKDOWN:
-                    return androidx.core.content.ContextCompat.getColor(view.getContext(), R.color.danger);
-                default:
-                    return androidx.core.content.ContextCompat.getColor(view.getContext(), R.color.text_hint);
-            }
-        }
-
         private int getStatusBackground(Shuttle.ShuttleStatus status) {
             if (status == null) return R.drawable.badge_danger_background;
             switch (status) {
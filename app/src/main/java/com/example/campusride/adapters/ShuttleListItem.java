@@ -0,0 +1,136 @@
+package com.example.campusride.adapters;
+
+import com.example.campusride.models.Shuttle;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Immutable row model for ShuttleAdapter.
+ * Display strings are formatted once when the item is built, not on every bind.
+ */
+public final class ShuttleListItem {
+
+    // Payload flags for partial rebinds
+    static final int CHANGE_ETA = 1;
+    static final int CHANGE_DISTANCE = 1 << 1;
+    static final int CHANGE_CAPACITY = 1 << 2;
+    static final int CHANGE_OTHER = 1 << 3;
+
+    private final Shuttle shuttle;
+    private final String shuttleId;
+    private final String shuttleName;
+    private final String routeText;
+    private final Shuttle.ShuttleStatus status;
+    private final String etaText;
+    private final String distanceText;
+    private final String capacityText;
+    private final boolean stale;
+
+    private ShuttleListItem(Shuttle shuttle, int etaMinutes, double distanceKm, boolean alongRoute,
+                            boolean stale) {
+        this.shuttle = shuttle;
+        this.shuttleId = shuttle.getShuttleId();
+        this.shuttleName = shuttle.getShuttleName();
+        this.routeText = shuttle.getCurrentRoute() != null ? shuttle.getCurrentRoute() : "No active route";
+        this.status = shuttle.getStatus();
+        this.etaText = formatEta(etaMinutes, alongRoute);
+        this.distanceText = formatDistance(distanceKm);
+        this.capacityText = shuttle.getCapacityString();
+        this.stale = stale;
+    }
+
+    /**
+     * Build a row from the shuttle's current values
+     */
+    public static ShuttleListItem from(Shuttle shuttle) {
+        return new ShuttleListItem(shuttle, shuttle.getEtaMinutes(), shuttle.getDistanceToStop(), true, false);
+    }
+
+    /**
+     * Build a row for one stop's ETA, leaving the shared shuttle untouched.
+     * ETAs not measured along a route are shown as approximate, and the row
+     * is marked stale when the shuttle is last known rather than live.
+     */
+    public static ShuttleListItem from(Shuttle shuttle, int etaMinutes, double distanceKm, boolean alongRoute,
+                                       boolean stale) {
+        return new ShuttleListItem(shuttle, etaMinutes, distanceKm, alongRoute, stale);
+    }
+
+    public Shuttle getShuttle() {
+        return shuttle;
+    }
+
+    public String getShuttleId() {
+        return shuttleId;
+    }
+
+    public String getShuttleName() {
+        return shuttleName;
+    }
+
+    public String getRouteText() {
+        return routeText;
+    }
+
+    public Shuttle.ShuttleStatus getStatus() {
+        return status;
+    }
+
+    public String getEtaText() {
+        return etaText;
+    }
+
+    public String getDistanceText() {
+        return distanceText;
+    }
+
+    public String getCapacityText() {
+        return capacityText;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Work out which parts of the row differ from another item
+     */
+    int diff(ShuttleListItem other) {
+        int changes = 0;
+        if (!etaText.equals(other.etaText)) changes |= CHANGE_ETA;
+        if (!distanceText.equals(other.distanceText)) changes |= CHANGE_DISTANCE;
+        if (!capacityText.equals(other.capacityText)) changes |= CHANGE_CAPACITY;
+        if (!Objects.equals(shuttleName, other.shuttleName) || !routeText.equals(other.routeText)
+                || status != other.status || stale != other.stale) {
+            changes |= CHANGE_OTHER;
+        }
+        return changes;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static String formatEta(int etaMinutes, boolean alongRoute) {
+        if (etaMinutes <= 0) return "--";
+        return String.format(Locale.getDefault(), alongRoute ? "%d min" : "~%d min", etaMinutes);
+    }
+
+    private static String formatDistance(double distanceKm) {
+        if (distanceKm <= 0) return "--";
+        return String.format(Locale.getDefault(), "%.1f km", distanceKm);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ShuttleListItem that = (ShuttleListItem) o;
+        return Objects.equals(shuttleId, that.shuttleId) && diff(that) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(shuttleId, etaText, distanceText, capacityText);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.campusride.data;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Document ids added, modified and removed between two collection states.
+ * A full refresh means observers should rebuild everything (first snapshot).
+ */
+public final class ChangeSet {
+
+    private static final ChangeSet NONE = new ChangeSet(Collections.emptyList(),
+            Collections.emptyList(), Collections.emptyList(), false);
+
+    private final List<String> added;
+    private final List<String> modified;
+    private final List<String> removed;
+    private final boolean fullRefresh;
+
+    ChangeSet(List<String> added, List<String> modified, List<String> removed, boolean fullRefresh) {
+        this.added = Collections.unmodifiableList(added);
+        this.modified = Collections.unmodifiableList(modified);
+        this.removed = Collections.unmodifiableList(removed);
+        this.fullRefresh = fullRefresh;
+    }
+
+    /**
+     * Change set for states that were not produced from a snapshot diff
+     */
+    static ChangeSet fullRefresh() {
+        return new ChangeSet(Collections.emptyList(), Collections.emptyList(),
+                Collections.emptyList(), true);
+    }
+
+    static ChangeSet none() {
+        return NONE;
+    }
+
+    public List<String> getAdded() {
+        return added;
+    }
+
+    public List<String> getModified() {
+        return modified;
+    }
+
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    public boolean isFullRefresh() {
+        return fullRefresh;
+    }
+
+    public boolean isEmpty() {
+        return !fullRefresh && added.isEmpty() && modified.isEmpty() && removed.isEmpty();
+    }
+
+    /**
+     * Check if a document was added or modified
+     */
+    public boolean isChanged(String id) {
+        return fullRefresh || added.contains(id) || modified.contains(id);
+    }
+
+    public int size() {
+        return added.size() + modified.size() + removed.size();
+    }
+
+    @Override
+    public String toString() {
+        return fullRefresh ? "ChangeSet{full}" : "ChangeSet{+" + added.size() +
+                " ~" + modified.size() + " -" + removed.size() + "}";
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.campusride.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of a shared collection at one point in time.
+ * The same state object is handed to every observer, so its items must be
+ * treated as read-only. The state wraps the map it is built from instead of
+ * copying it, and the item list is only built when first asked for.
+ */
+public final class CollectionState<T> {
+
+    private final Map<String, T> itemsById;
+    private volatile List<T> items;
+    private final ChangeSet changes;
+    private final boolean fromCache;
+    private final long timestamp;
+    private final boolean restored;
+
+    CollectionState(Map<String, T> itemsById, ChangeSet changes, boolean fromCache, long timestamp) {
+        this(itemsById, changes, fromCache, timestamp, false);
+    }
+
+    /**
+     * @param itemsById handed over to the state; the caller must not change it afterwards
+     */
+    CollectionState(Map<String, T> itemsById, ChangeSet changes, boolean fromCache, long timestamp,
+                    boolean restored) {
+        this(Collections.unmodifiableMap(itemsById), null, changes, fromCache, timestamp, restored);
+    }
+
+    private CollectionState(Map<String, T> itemsById, List<T> items, ChangeSet changes, boolean fromCache,
+                            long timestamp, boolean restored) {
+        this.itemsById = itemsById;
+        this.items = items;
+        this.changes = changes;
+        this.fromCache = fromCache;
+        this.timestamp = timestamp;
+        this.restored = restored;
+    }
+
+    /**
+     * Empty state used before the first snapshot arrives
+     */
+    static <T> CollectionState<T> empty() {
+        return new CollectionState<>(Collections.emptyMap(), ChangeSet.none(), true, 0);
+    }
+
+    /**
+     * Same items, marked as a full refresh for observers that start late
+     */
+    CollectionState<T> asFullRefresh() {
+        return new CollectionState<>(itemsById, items, ChangeSet.fullRefresh(), fromCache, timestamp, restored);
+    }
+
+    public T get(String id) {
+        return itemsById.get(id);
+    }
+
+    public Map<String, T> getItemsById() {
+        return itemsById;
+    }
+
+    public List<T> getItems() {
+        List<T> list = items;
+        if (list == null) {
+            // Racing threads build equal lists, so either may win
+            list = Collections.unmodifiableList(new ArrayList<>(itemsById.values()));
+            items = list;
+        }
+        return list;
+    }
+
+    public int size() {
+        return itemsById.size();
+    }
+
+    public boolean isEmpty() {
+        return itemsById.isEmpty();
+    }
+
+    /**
+     * Documents that changed since the previous state
+     */
+    public ChangeSet getChanges() {
+        return changes;
+    }
+
+    public boolean isFromCache() {
+        return fromCache;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Check if the items were restored from disk rather than delivered by a listener
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.campusride.data;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.GeoPoint;
+import com.example.campusride.models.Driver;
+import com.example.campusride.models.Report;
+import com.example.campusride.models.Route;
+import com.example.campusride.models.Shuttle;
+import com.example.campusride.models.Stop;
+import com.example.campusride.models.TrackSegment;
+import com.example.campusride.models.User;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Hand-written Firestore mappers for the app's models.
+ * They read fields directly instead of going through toObject()'s reflection,
+ * are safe to call off the main thread, and tolerate the field shapes written
+ * by both FirebaseHelper (lowercase status values) and POJO serialization.
+ */
+public final class DocumentMappers {
+
+    /**
+     * Decodes one document into a model
+     */
+    public interface DocumentMapper<T> {
+        T map(DocumentSnapshot document);
+    }
+
+    public static final DocumentMapper<Shuttle> SHUTTLE = DocumentMappers::toShuttle;
+    public static final DocumentMapper<Stop> STOP = DocumentMappers::toStop;
+    public static final DocumentMapper<Route> ROUTE = DocumentMappers::toRoute;
+    public static final DocumentMapper<Driver> DRIVER = DocumentMappers::toDriver;
+    public static final DocumentMapper<User> USER = DocumentMappers::toUser;
+    public static final DocumentMapper<Report> REPORT = DocumentMappers::toReport;
+    public static final DocumentMapper<TrackSegment> TRACK_SEGMENT = DocumentMappers::toTrackSegment;
+
+    private DocumentMappers() {
+    }
+
+    public static Shuttle toShuttle(DocumentSnapshot document) {
+        if (document == null || !document.exists()) return null;
+
+        Shuttle shuttle = new Shuttle();
+        shuttle.setShuttleId(readString(document, "shuttleId", document.getId()));
+        shuttle.setShuttleName(readString(document, "shuttleName", null));
+        shuttle.setPlateNumber(readString(document, "plateNumber", null));
+
+        shuttle.setLatitude(readDouble(document, "latitude", 0));
+        shuttle.setLongitude(readDouble(document, "longitude", 0));
+        shuttle.setCurrentLocation(readGeoPoint(document, "currentLocation"));
+        shuttle.setRecentTrack(readGeoPoints(document, "recentTrack", null));
+        shuttle.setSpeed(readDouble(document, "speed", 0));
+        shuttle.setBearing((float) readDouble(document, "bearing", 0));
+        shuttle.setFixTime(readDate(document, "fixTime"));
+
+        shuttle.setCurrentRoute(readString(document, "currentRoute", null));
+        shuttle.setNextStop(readString(document, "nextStop", null));
+        shuttle.setLastStop(readString(document, "lastStop", null));
+        shuttle.setStopEvent(readString(document, "stopEvent", null));
+        shuttle.setStopEventTime(readDate(document, "stopEventTime"));
+        shuttle.setDwellSeconds(readLong(document, "dwellSeconds", 0));
+        shuttle.setStatus(Shuttle.ShuttleStatus.fromString(
+                readString(document, "status", readString(document, "statusString", null))));
+        shuttle.setCapacity((int) readLong(document, "capacity", 0));
+        shuttle.setCurrentPassengers((int) readLong(document, "currentPassengers", 0));
+
+        shuttle.setDriverId(readString(document, "driverId", null));
+        shuttle.setDriverName(readString(document, "driverName", null));
+        shuttle.setLastUpdated(readDate(document, "lastUpdated"));
+        shuttle.setShiftStartTime(readDate(document, "shiftStartTime"));
+        return shuttle;
+    }
+
+    public static Stop toStop(DocumentSnapshot document) {
+        if (document == null || !document.exists()) return null;
+
+        Stop stop = new Stop();
+        stop.setStopId(readString(document, "stopId", document.getId()));
+        stop.setStopName(readString(document, "stopName", null));
+        stop.setDescription(readString(document, "description", null));
+        stop.setLatitude(readDouble(document, "latitude", 0));
+        stop.setLongitude(readDouble(document, "longitude", 0));
+        stop.setLocation(readGeoPoint(document, "location"));
+        stop.setRoutes(readStrings(document, "routes", stop.getRoutes()));
+        stop.setActive(readActive(document, stop.isActive()));
+        stop.setOrderInRoute((int) readLong(document, "orderInRoute", 0));
+        stop.setLandmark(readString(document, "landmark", null));
+        return stop;
+    }
+
+    public static Route toRoute(DocumentSnapshot document) {
+        if (document == null || !document.exists()) return null;
+
+        Route route = new Route();
+        route.setRouteId(readString(document, "routeId", document.getId()));
+        route.setRouteName(readString(document, "routeName", null));
+        route.setDescription(readString(document, "description", null));
+        route.setStopIds(readStrings(document, "stopIds", route.getStopIds()));
+        route.setStopNames(readStrings(document, "stopNames", route.getStopNames()));
+        route.setFrequencyMinutes((int) readLong(document, "frequencyMinutes", route.getFrequencyMinutes()));
+        route.setStartTime(readString(document, "startTime", null));
+        route.setEndTime(readString(document, "endTime", null));
+        route.setWeekdayOnly(readBoolean(document, "weekdayOnly", false));
+        route.setActive(readActive(document, route.isActive()));
+        route.setColor(readString(document, "color", null));
+        return route;
+    }
+
+    public static Driver toDriver(DocumentSnapshot document) {
+        if (document == null || !document.exists()) return null;
+
+        Driver driver = new Driver();
+        driver.setDriverId(readString(document, "driverId", document.getId()));
+        driver.setFirstName(readString(document, "firstName", null));
+        driver.setLastName(readString(document, "lastName", null));
+        driver.setEmail(readString(document, "email", null));
+        driver.setPhoneNumber(readString(document, "phoneNumber", null));
+        driver.setLicenseNumber(readString(document, "licenseNumber", null));
+        driver.setHireDate(readDate(document, "hireDate"));
+        driver.setActive(readActive(document, driver.isActive()));
+
+        driver.setAssignedShuttleId(readString(document, "assignedShuttleId", null));
+        driver.setAssignedShuttleName(readString(document, "assignedShuttleName", null));
+        driver.setStatus(Driver.DriverStatus.fromString(
+                readString(document, "status", readString(document, "statusString", null))));
+
+        driver.setOnShift(readBoolean(document, "onShift", false));
+        driver.setShiftStartTime(readDate(document, "shiftStartTime"));
+        driver.setShiftEndTime(readDate(document, "shiftEndTime"));
+        driver.setTotalTrips((int) readLong(document, "totalTrips", 0));
+        driver.setTotalHours(readDouble(document, "totalHours", 0));
+        driver.setRating(readDouble(document, "rating", 0));
+        driver.setLastLogin(readDate(document, "lastLogin"));
+        driver.setCreatedAt(readDate(document, "createdAt"));
+        return driver;
+    }
+
+    public static User toUser(DocumentSnapshot document) {
+        if (document == null || !document.exists()) return null;
+
+        User user = new User();
+        user.setUserId(readString(document, "userId", document.getId()));
+        user.setEmail(readString(document, "email", null));
+        user.setFirstName(readString(document, "firstName", null));
+        user.setLastName(readString(document, "lastName", null));
+        user.setStudentId(readString(document, "studentId", null));
+        user.setUserType(User.UserType.fromString(
+                readString(document, "userType", readString(document, "userTypeString", null))));
+        user.setFavoriteStops(readStrings(document, "favoriteStops", user.getFavoriteStops()));
+        user.setDefaultStop(readString(document, "defaultStop", null));
+        user.setNotificationsEnabled(readBoolean(document, "notificationsEnabled", user.isNotificationsEnabled()));
+        user.setNotificationRadius((int) readLong(document, "notificationRadius", user.getNotificationRadius()));
+        user.setCreatedAt(readDate(document, "createdAt"));
+        user.setLastActive(readDate(document, "lastActive"));
+        return user;
+    }
+
+    public static Report toReport(DocumentSnapshot document) {
+        if (document == null || !document.exists()) return null;
+
+        Report report = new Report();
+        report.setReportId(readString(document, "reportId", document.getId()));
+        report.setUserId(readString(document, "userId", null));
+        report.setUserName(readString(document, "userName", null));
+        report.setShuttleId(readString(document, "shuttleId", null));
+        report.setShuttleName(readString(document, "shuttleName", null));
+        report.setIssueType(Report.IssueType.fromString(
+                readString(document, "issueType", readString(document, "issueTypeString", null))));
+        report.setDescription(readString(document, "description", null));
+        report.setStatus(Report.ReportStatus.fromString(
+                readString(document, "status", readString(document, "statusString", null))));
+        report.setAdminResponse(readString(document, "adminResponse", null));
+        report.setCreatedAt(readDate(document, "createdAt"));
+        report.setResolvedAt(readDate(document, "resolvedAt"));
+        return report;
+    }
+
+    public static TrackSegment toTrackSegment(DocumentSnapshot document) {
+        if (document == null || !document.exists()) return null;
+
+        TrackSegment segment = new TrackSegment();
+        segment.setSegmentId(readString(document, "segmentId", document.getId()));
+        segment.setShuttleId(readString(document, "shuttleId", null));
+        segment.setPoints(readGeoPoints(document, "points", segment.getPoints()));
+        segment.setPointCount((int) readLong(document, "pointCount", 0));
+        segment.setStartTime(readDate(document, "startTime"));
+        segment.setEndTime(readDate(document, "endTime"));
+        return segment;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static String readString(DocumentSnapshot document, String field, String fallback) {
+        Object value = document.get(field);
+        return value instanceof String ? (String) value : fallback;
+    }
+
+    private static double readDouble(DocumentSnapshot document, String field, double fallback) {
+        Object value = document.get(field);
+        return value instanceof Number ? ((Number) value).doubleValue() : fallback;
+    }
+
+    private static long readLong(DocumentSnapshot document, String field, long fallback) {
+        Object value = document.get(field);
+        return value instanceof Number ? ((Number) value).longValue() : fallback;
+    }
+
+    private static boolean readBoolean(DocumentSnapshot document, String field, boolean fallback) {
+        Object value = document.get(field);
+        return value instanceof Boolean ? (Boolean) value : fallback;
+    }
+
+    /**
+     * Queries filter on "isActive", while POJO serialization writes "active"
+     */
+    private static boolean readActive(DocumentSnapshot document, boolean fallback) {
+        return readBoolean(document, "isActive", readBoolean(document, "active", fallback));
+    }
+
+    private static Date readDate(DocumentSnapshot document, String field) {
+        Object value = document.get(field);
+        if (value instanceof Timestamp) return ((Timestamp) value).toDate();
+        if (value instanceof Date) return (Date) value;
+        return null;
+    }
+
+    private static GeoPoint readGeoPoint(DocumentSnapshot document, String field) {
+        Object value = document.get(field);
+        return value instanceof GeoPoint ? (GeoPoint) value : null;
+    }
+
+    private static List<GeoPoint> readGeoPoints(DocumentSnapshot document, String field,
+                                                List<GeoPoint> fallback) {
+        Object value = document.get(field);
+        if (!(value instanceof List)) return fallback;
+
+        List<?> raw = (List<?>) value;
+        List<GeoPoint> points = new ArrayList<>(raw.size());
+        for (Object item : raw) {
+            if (item instanceof GeoPoint) {
+                points.add((GeoPoint) item);
+            }
+        }
+        return points;
+    }
+
+    private static List<String> readStrings(DocumentSnapshot document, String field,
+                                            List<String> fallback) {
+        Object value = document.get(field);
+        if (!(value instanceof List)) return fallback;
+
+        List<?> raw = (List<?>) value;
+        List<String> strings = new ArrayList<>(raw.size());
+        for (Object item : raw) {
+            if (item instanceof String) {
+                strings.add((String) item);
+            }
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,393 @@
+package com.example.campusride.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import com.example.campusride.models.Route;
+import com.example.campusride.models.Shuttle;
+import com.example.campusride.models.Stop;
+import com.example.campusride.utils.RouteEtaEngine;
+import com.example.campusride.utils.SegmentTravelLearner;
+import com.example.campusride.utils.SegmentTravelModel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Process-wide shuttle ETAs and per-stop rankings.
+ * Estimates are cached per (shuttle, stop) and only recomputed for shuttles
+ * named in a fleet change set, plus every shuttle on a fixed tick, since
+ * estimates extrapolate positions and depend on the time of day while
+ * fleet writes can be a minute or more apart; each stop keeps its
+ * shuttles in a sorted set
+ * that is patched instead of re-sorted. Stops are tracked once queried, so
+ * the map list, favorites and notifications share the same cached work.
+ * The fleet and route listeners are held while at least one observer is
+ * attached. Stop positions come from the StopCache, which is filled by
+ * whichever screen listens to stops and by the restored snapshot, so
+ * observing ETAs never opens a listener on every stop.
+ */
+public class EtaTracker {
+
+    private static final long ETA_TICK = 2000; // 2 seconds, the favorites refresh interval
+
+    private static EtaTracker instance;
+
+    private final FleetRepository fleetRepository = FleetRepository.getInstance();
+    private final RouteRepository routeRepository = RouteRepository.getInstance();
+    private final StopCache stopCache = StopCache.getInstance();
+    private final SegmentTravelModel travelModel;
+    private final SegmentTravelLearner travelLearner;
+    private final List<Observer> observers = new ArrayList<>();
+    private final Map<String, StopBoard> boards = new HashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private CollectionState<Shuttle> fleet = CollectionState.empty();
+    private List<Route> routes = Collections.emptyList();
+    private RouteEtaEngine engine = new RouteEtaEngine(routes, Collections.emptyMap());
+    private boolean engineRebuildScheduled;
+    private final Runnable engineRebuild = () -> {
+        engineRebuildScheduled = false;
+        rebuildEngine();
+    };
+    private final Runnable etaTick = new Runnable() {
+        @Override
+        public void run() {
+            onEtaTick();
+            mainHandler.postDelayed(this, ETA_TICK);
+        }
+    };
+
+    private final SharedCollection.Observer<Shuttle> fleetObserver = new SharedCollection.Observer<Shuttle>() {
+        @Override
+        public void onStateChanged(CollectionState<Shuttle> state) {
+            onFleetChanged(state);
+        }
+
+        @Override
+        public void onError(Exception error) {
+            for (Observer observer : new ArrayList<>(observers)) {
+                observer.onError(error);
+            }
+        }
+    };
+    private final SharedCollection.Observer<Route> routesObserver = state -> {
+        routes = state.getItems();
+        rebuildEngine();
+    };
+    // Stops usually arrive one by one, so they are batched into one rebuild
+    private final StopCache.Listener stopsListener = () -> {
+        if (engineRebuildScheduled) return;
+        engineRebuildScheduled = true;
+        mainHandler.post(engineRebuild);
+    };
+
+    public interface Observer {
+        /**
+         * ETAs of the shuttles in the change set may have moved
+         */
+        void onEtasChanged(CollectionState<Shuttle> fleet, ChangeSet changes);
+
+        default void onError(Exception error) {
+        }
+    }
+
+    /**
+     * Distance and ETA from one shuttle to one stop
+     */
+    public static final class Eta {
+        private final String shuttleId;
+        private final double distanceKm;
+        private final int etaMinutes;
+        private final boolean alongRoute;
+
+        Eta(String shuttleId, RouteEtaEngine.Estimate estimate) {
+            this(shuttleId, estimate.getDistanceKm(), estimate.getEtaMinutes(), estimate.isAlongRoute());
+        }
+
+        Eta(String shuttleId, double distanceKm, int etaMinutes, boolean alongRoute) {
+            this.shuttleId = shuttleId;
+            this.distanceKm = distanceKm;
+            this.etaMinutes = etaMinutes;
+            this.alongRoute = alongRoute;
+        }
+
+        public String getShuttleId() {
+            return shuttleId;
+        }
+
+        public double getDistanceKm() {
+            return distanceKm;
+        }
+
+        public int getEtaMinutes() {
+            return etaMinutes;
+        }
+
+        public boolean isAlongRoute() {
+            return alongRoute;
+        }
+    }
+
+    // Straight-line guesses can't be compared with route distances, so they rank last
+    private static final Comparator<Eta> BY_ARRIVAL = (a, b) -> {
+        if (a.alongRoute != b.alongRoute) return a.alongRoute ? -1 : 1;
+        int byEta = Integer.compare(a.etaMinutes, b.etaMinutes);
+        if (byEta != 0) return byEta;
+        int byDistance = Double.compare(a.distanceKm, b.distanceKm);
+        return byDistance != 0 ? byDistance : a.shuttleId.compareTo(b.shuttleId);
+    };
+
+    /**
+     * Cached estimates for one stop, kept sorted by arrival
+     */
+    static final class StopBoard {
+        private final Map<String, Eta> byShuttle = new HashMap<>();
+        private final TreeSet<Eta> ranking = new TreeSet<>(BY_ARRIVAL);
+        private final SortedSet<Eta> rankingView = Collections.unmodifiableSortedSet(ranking);
+        final Set<String> dirty = new HashSet<>();
+        boolean allDirty = true;
+
+        /**
+         * Add a shuttle's estimate, replacing its previous one
+         */
+        void put(Eta eta) {
+            remove(eta.shuttleId);
+            byShuttle.put(eta.shuttleId, eta);
+            ranking.add(eta);
+        }
+
+        void remove(String shuttleId) {
+            Eta previous = byShuttle.remove(shuttleId);
+            if (previous != null) ranking.remove(previous);
+        }
+
+        void clear() {
+            byShuttle.clear();
+            ranking.clear();
+        }
+
+        Eta get(String shuttleId) {
+            return byShuttle.get(shuttleId);
+        }
+
+        Eta first() {
+            return ranking.isEmpty() ? null : ranking.first();
+        }
+
+        /**
+         * Read-only view of the ranking, soonest first
+         */
+        SortedSet<Eta> getRanking() {
+            return rankingView;
+        }
+    }
+
+    public static synchronized EtaTracker getInstance(Context context) {
+        if (instance == null) {
+            instance = new EtaTracker(SegmentTravelModel.getInstance(context));
+        }
+        return instance;
+    }
+
+    private EtaTracker(SegmentTravelModel travelModel) {
+        this.travelModel = travelModel;
+        this.travelLearner = new SegmentTravelLearner(travelModel);
+    }
+
+    /**
+     * Start observing; the current fleet is delivered right away if already loaded
+     */
+    public void observe(Observer observer) {
+        if (observers.contains(observer)) return;
+        observers.add(observer);
+
+        if (observers.size() == 1) {
+            stopCache.addListener(stopsListener);
+            // Stops may have changed while nobody was observing
+            stopsListener.onStopsChanged();
+            routeRepository.observe(routesObserver);
+            fleetRepository.observe(fleetObserver);
+            mainHandler.postDelayed(etaTick, ETA_TICK);
+        } else if (fleetRepository.isLoaded()) {
+            mainHandler.post(() -> {
+                if (observers.contains(observer)) {
+                    observer.onEtasChanged(fleet, ChangeSet.fullRefresh());
+                }
+            });
+        }
+    }
+
+    /**
+     * Stop observing; the listeners are released once the last observer leaves
+     */
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+        if (observers.isEmpty()) {
+            fleetRepository.removeObserver(fleetObserver);
+            routeRepository.removeObserver(routesObserver);
+            stopCache.removeListener(stopsListener);
+            mainHandler.removeCallbacks(engineRebuild);
+            mainHandler.removeCallbacks(etaTick);
+            engineRebuildScheduled = false;
+            travelLearner.clear();
+            boards.clear();
+        }
+    }
+
+    /**
+     * Check if the fleet has been received
+     */
+    public boolean isLoaded() {
+        return fleetRepository.isLoaded();
+    }
+
+    public CollectionState<Shuttle> getFleet() {
+        return fleet;
+    }
+
+    /**
+     * Get the available shuttles' ETAs to a stop, soonest first.
+     * Shuttles on a route through the stop come before straight-line estimates.
+     * The result is a read-only live view; iterate it right away instead of keeping it.
+     */
+    public Collection<Eta> getRanking(String stopId) {
+        StopBoard board = refreshBoard(stopId);
+        return board != null ? board.getRanking() : Collections.emptyList();
+    }
+
+    /**
+     * Get the soonest shuttle to a stop, preferring one on a route through it,
+     * or null if none is available
+     */
+    public Eta getNext(String stopId) {
+        StopBoard board = refreshBoard(stopId);
+        return board != null ? board.first() : null;
+    }
+
+    /**
+     * Get one shuttle's ETA to a stop, or null if it is not available
+     */
+    public Eta getEta(String shuttleId, String stopId) {
+        StopBoard board = refreshBoard(stopId);
+        return board != null ? board.get(shuttleId) : null;
+    }
+
+    /**
+     * Get the soonest along-route ETA to a stop for each route, in minutes
+     * from now; live boardings for JourneyPlanner at the origin
+     */
+    public Map<String, Integer> getLiveEtasByRoute(String stopId) {
+        Map<String, Integer> etas = new HashMap<>();
+        for (Eta eta : getRanking(stopId)) {
+            if (!eta.isAlongRoute()) continue;
+            String routeId = engine.routeIdOf(fleet.get(eta.getShuttleId()));
+            // Soonest first, so the first shuttle seen on a route wins
+            if (routeId != null && !etas.containsKey(routeId)) {
+                etas.put(routeId, eta.getEtaMinutes());
+            }
+        }
+        return etas;
+    }
+
+    /**
+     * Stop caching estimates for a stop nobody is looking at anymore
+     */
+    public void forgetStop(String stopId) {
+        boards.remove(stopId);
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void onFleetChanged(CollectionState<Shuttle> state) {
+        fleet = state;
+        travelLearner.onFleetState(state, engine);
+
+        ChangeSet changes = state.getChanges();
+        for (StopBoard board : boards.values()) {
+            if (changes.isFullRefresh()) {
+                board.allDirty = true;
+            } else if (!board.allDirty) {
+                board.dirty.addAll(changes.getAdded());
+                board.dirty.addAll(changes.getModified());
+                board.dirty.addAll(changes.getRemoved());
+            }
+        }
+        notifyObservers(changes);
+    }
+
+    /**
+     * Age out every cached estimate and tell observers all shuttles may have moved
+     */
+    private void onEtaTick() {
+        for (StopBoard board : boards.values()) {
+            board.allDirty = true;
+        }
+        if (!fleetRepository.isLoaded() || fleet.getItems().isEmpty()) return;
+
+        notifyObservers(new ChangeSet(Collections.emptyList(), new ArrayList<>(fleet.getItemsById().keySet()),
+                Collections.emptyList(), false));
+    }
+
+    private void rebuildEngine() {
+        engine = new RouteEtaEngine(routes, stopCache.getStopsById(), travelModel);
+        for (StopBoard board : boards.values()) {
+            board.allDirty = true;
+        }
+        if (fleetRepository.isLoaded()) {
+            notifyObservers(ChangeSet.fullRefresh());
+        }
+    }
+
+    private void notifyObservers(ChangeSet changes) {
+        for (Observer observer : new ArrayList<>(observers)) {
+            observer.onEtasChanged(fleet, changes);
+        }
+    }
+
+    /**
+     * Bring a stop's cached estimates up to date, recomputing only dirty shuttles
+     */
+    private StopBoard refreshBoard(String stopId) {
+        Stop stop = stopCache.get(stopId);
+        if (stop == null) return null;
+
+        StopBoard board = boards.get(stopId);
+        if (board == null) {
+            board = new StopBoard();
+            boards.put(stopId, board);
+        }
+
+        long now = System.currentTimeMillis();
+        if (board.allDirty) {
+            board.clear();
+            for (Shuttle shuttle : fleet.getItems()) {
+                estimate(board, shuttle, stop, now);
+            }
+        } else {
+            for (String shuttleId : board.dirty) {
+                board.remove(shuttleId);
+                estimate(board, fleet.get(shuttleId), stop, now);
+            }
+        }
+        board.allDirty = false;
+        board.dirty.clear();
+        return board;
+    }
+
+    private void estimate(StopBoard board, Shuttle shuttle, Stop stop, long now) {
+        if (shuttle == null || shuttle.getShuttleId() == null || !shuttle.isAvailable()) return;
+
+        board.put(new Eta(shuttle.getShuttleId(), engine.estimate(shuttle, stop, now)));
+    }
+}
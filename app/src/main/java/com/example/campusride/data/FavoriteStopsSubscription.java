@@ -0,0 +1,208 @@
+package com.example.campusride.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.example.campusride.models.Stop;
+import com.example.campusride.utils.FirebaseHelper;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Live view of a user's favorite stops.
+ * Listens only to the favorited stop documents, in chunks of whereIn on
+ * the document id, instead of the whole stops collection. Stops already in
+ * the StopCache are delivered right away. The listeners are rebuilt only
+ * when the set of ids actually changes. Accessed from the main thread only.
+ */
+public class FavoriteStopsSubscription {
+
+    private static final String TAG = "FavoriteStops";
+
+    // Firestore accepts at most 30 values in one whereIn filter
+    private static final int MAX_IDS_PER_QUERY = 30;
+
+    private final FirebaseFirestore db;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final List<ListenerRegistration> registrations = new ArrayList<>();
+    private final Map<String, Stop> items = new LinkedHashMap<>();
+    private Set<String> stopIds = Collections.emptySet();
+    private int generation;
+    private boolean delivered;
+
+    public interface Listener {
+        void onStopsChanged(CollectionState<Stop> state);
+
+        default void onError(Exception error) {
+        }
+    }
+
+    public FavoriteStopsSubscription(FirebaseFirestore db, Listener listener) {
+        this.db = db;
+        this.listener = listener;
+    }
+
+    /**
+     * Follow a new set of stop ids; nothing happens if the set is unchanged
+     * @return true if the listeners were rebuilt
+     */
+    public boolean setStopIds(Collection<String> newIds) {
+        Set<String> ids = new LinkedHashSet<>();
+        if (newIds != null) {
+            for (String id : newIds) {
+                if (id != null && !id.isEmpty()) ids.add(id);
+            }
+        }
+        if (ids.equals(stopIds) && (delivered || ids.isEmpty())) {
+            return false;
+        }
+
+        removeRegistrations();
+        int subscription = ++generation;
+        stopIds = Collections.unmodifiableSet(ids);
+
+        // Keep what is still wanted and fill new ids from the shared cache
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        for (String id : new ArrayList<>(items.keySet())) {
+            if (!ids.contains(id)) {
+                items.remove(id);
+                removed.add(id);
+            }
+        }
+        for (String id : ids) {
+            Stop cached = StopCache.getInstance().get(id);
+            if (!items.containsKey(id) && cached != null) {
+                items.put(id, cached);
+                added.add(id);
+            }
+        }
+        publish(new ChangeSet(added, Collections.emptyList(), removed, !delivered), true);
+
+        List<String> chunk = new ArrayList<>(MAX_IDS_PER_QUERY);
+        for (String id : ids) {
+            chunk.add(id);
+            if (chunk.size() == MAX_IDS_PER_QUERY) {
+                subscribe(subscription, chunk);
+                chunk = new ArrayList<>(MAX_IDS_PER_QUERY);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            subscribe(subscription, chunk);
+        }
+
+        Log.d(TAG, "Following " + ids.size() + " stops in " + registrations.size() + " listeners");
+        return true;
+    }
+
+    /**
+     * Release every listener and forget the followed ids
+     */
+    public void stop() {
+        removeRegistrations();
+        generation++;
+        stopIds = Collections.emptySet();
+        items.clear();
+        delivered = false;
+    }
+
+    public Set<String> getStopIds() {
+        return stopIds;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void subscribe(int subscription, List<String> chunk) {
+        SnapshotApplier<Stop> applier = new SnapshotApplier<>(DocumentMappers.STOP);
+        registrations.add(db.collection(FirebaseHelper.COLLECTION_STOPS)
+                .whereIn(FieldPath.documentId(), chunk)
+                .addSnapshotListener(SharedCollection.DECODE_EXECUTOR, (snapshots, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Listener failed", error);
+                        mainHandler.post(() -> {
+                            if (subscription == generation) listener.onError(error);
+                        });
+                        return;
+                    }
+                    if (snapshots == null) return;
+
+                    CollectionState<Stop> state = applier.apply(snapshots);
+                    if (state == null) return;
+
+                    mainHandler.post(() -> {
+                        if (subscription == generation) merge(chunk, state);
+                    });
+                }));
+    }
+
+    /**
+     * Merge one chunk's state into the combined view
+     */
+    private void merge(List<String> chunk, CollectionState<Stop> state) {
+        ChangeSet chunkChanges = state.getChanges();
+        List<String> added = new ArrayList<>();
+        List<String> modified = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+
+        if (chunkChanges.isFullRefresh()) {
+            // First snapshot of the chunk; stops shown from the cache may be gone or stale
+            for (String id : chunk) {
+                Stop stop = state.get(id);
+                if (stop != null) {
+                    (items.put(id, stop) == null ? added : modified).add(id);
+                } else if (items.remove(id) != null) {
+                    removed.add(id);
+                }
+            }
+        } else {
+            for (String id : chunkChanges.getRemoved()) {
+                if (items.remove(id) != null) removed.add(id);
+            }
+            for (String id : chunkChanges.getModified()) {
+                (items.put(id, state.get(id)) == null ? added : modified).add(id);
+            }
+            for (String id : chunkChanges.getAdded()) {
+                (items.put(id, state.get(id)) == null ? added : modified).add(id);
+            }
+        }
+
+        for (String id : added) {
+            StopCache.getInstance().put(items.get(id));
+        }
+        for (String id : modified) {
+            StopCache.getInstance().put(items.get(id));
+        }
+
+        ChangeSet changes = new ChangeSet(added, modified, removed, false);
+        if (!changes.isEmpty()) {
+            publish(changes, state.isFromCache());
+        }
+    }
+
+    private void publish(ChangeSet changes, boolean fromCache) {
+        delivered = true;
+        // The state keeps the map it is given, and items changes with the next chunk
+        listener.onStopsChanged(new CollectionState<>(new LinkedHashMap<>(items), changes, fromCache,
+                System.currentTimeMillis()));
+    }
+
+    private void removeRegistrations() {
+        for (ListenerRegistration registration : registrations) {
+            registration.remove();
+        }
+        registrations.clear();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.campusride.data;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.example.campusride.models.Shuttle;
+import com.example.campusride.utils.FirebaseHelper;
+
+/**
+ * Single shared live view of the shuttle fleet.
+ * Every screen that shows shuttles observes this instead of opening its own query.
+ */
+public class FleetRepository extends SharedCollection<Shuttle> {
+
+    private static FleetRepository instance;
+
+    private FleetRepository() {
+        super("FleetRepository", Shuttle.class, DocumentMappers.SHUTTLE);
+    }
+
+    public static synchronized FleetRepository getInstance() {
+        if (instance == null) {
+            instance = new FleetRepository();
+        }
+        return instance;
+    }
+
+    @Override
+    protected Query buildQuery() {
+        return FirebaseFirestore.getInstance().collection(FirebaseHelper.COLLECTION_SHUTTLES);
+    }
+
+    /**
+     * Get a shuttle from the latest fleet state
+     */
+    public Shuttle getShuttle(String shuttleId) {
+        return shuttleId != null ? getState().get(shuttleId) : null;
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.campusride.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.google.firebase.firestore.GeoPoint;
+import com.example.campusride.models.Route;
+import com.example.campusride.models.Shuttle;
+import com.example.campusride.models.Stop;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Last known fleet, stops and routes, kept in a small binary file.
+ * On launch the file is read in the background and seeded into the shared
+ * collections, so the map and list render before the network answers; the
+ * seeded states are marked as restored and the first live snapshot
+ * replaces them. Live states are written behind, at most once per interval.
+ * Accessed from the main thread only; the file is read and written on its
+ * own executor.
+ */
+public class FleetSnapshotStore {
+
+    private static final String TAG = "FleetSnapshotStore";
+
+    private static final String FILE_NAME = "fleet_snapshot.bin";
+    private static final int FILE_VERSION = 2;
+
+    private static final long SAVE_INTERVAL = 10000; // 10 seconds
+    private static final long MAX_FLEET_AGE = 12 * 60 * 60 * 1000L; // older positions are not worth showing
+
+    private static FleetSnapshotStore instance;
+
+    private final File file;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final FleetRepository fleetRepository = FleetRepository.getInstance();
+    private final StopRepository stopRepository = StopRepository.getInstance();
+    private final RouteRepository routeRepository = RouteRepository.getInstance();
+
+    private boolean started;
+    private boolean saveScheduled;
+    private final Runnable saveRunnable = this::save;
+    private final SharedCollection.Observer<Shuttle> fleetObserver = state -> onStateChanged(fleetRepository);
+    private final SharedCollection.Observer<Stop> stopsObserver = state -> onStateChanged(stopRepository);
+    private final SharedCollection.Observer<Route> routesObserver = state -> onStateChanged(routeRepository);
+
+    /**
+     * Contents of the file
+     */
+    private static class Snapshot {
+        long savedAt;
+        long fleetSavedAt; // when the shuttles were last live, which may be earlier
+        final Map<String, Shuttle> shuttles = new LinkedHashMap<>();
+        final Map<String, Stop> stops = new LinkedHashMap<>();
+        final Map<String, Route> routes = new LinkedHashMap<>();
+    }
+
+    public static synchronized FleetSnapshotStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new FleetSnapshotStore(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    private FleetSnapshotStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Restore the last snapshot and start saving live changes; call once at launch
+     */
+    public void start() {
+        if (started) return;
+        started = true;
+
+        fleetRepository.addPassiveObserver(fleetObserver);
+        stopRepository.addPassiveObserver(stopsObserver);
+        routeRepository.addPassiveObserver(routesObserver);
+
+        executor.execute(() -> {
+            Snapshot snapshot = readFile();
+            if (snapshot == null) return;
+            mainHandler.post(() -> restore(snapshot));
+        });
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void restore(Snapshot snapshot) {
+        stopRepository.seed(new CollectionState<>(snapshot.stops, ChangeSet.fullRefresh(), true, snapshot.savedAt,
+                true));
+        routeRepository.seed(new CollectionState<>(snapshot.routes, ChangeSet.fullRefresh(), true, snapshot.savedAt,
+                true));
+        if (System.currentTimeMillis() - snapshot.fleetSavedAt < MAX_FLEET_AGE) {
+            fleetRepository.seed(new CollectionState<>(snapshot.shuttles, ChangeSet.fullRefresh(), true,
+                    snapshot.fleetSavedAt, true));
+        }
+        Log.d(TAG, "Restored " + snapshot.shuttles.size() + " shuttles, " + snapshot.stops.size()
+                + " stops and " + snapshot.routes.size() + " routes");
+    }
+
+    private void onStateChanged(SharedCollection<?> collection) {
+        // Don't write back what was just restored
+        if (collection.isSeeded() || saveScheduled) return;
+        saveScheduled = true;
+        mainHandler.postDelayed(saveRunnable, SAVE_INTERVAL);
+    }
+
+    /**
+     * Write the latest live states; they are immutable, so the executor can read them directly
+     */
+    private void save() {
+        saveScheduled = false;
+        CollectionState<Shuttle> fleet = liveState(fleetRepository);
+        CollectionState<Stop> stops = liveState(stopRepository);
+        CollectionState<Route> routes = liveState(routeRepository);
+        executor.execute(() -> writeFile(fleet, stops, routes));
+    }
+
+    private static <T> CollectionState<T> liveState(SharedCollection<T> collection) {
+        return collection.isLoaded() && !collection.isSeeded() ? collection.getState() : null;
+    }
+
+    private Snapshot readFile() {
+        if (!file.exists()) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION) return null;
+
+            Snapshot snapshot = new Snapshot();
+            snapshot.savedAt = in.readLong();
+            snapshot.fleetSavedAt = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                snapshot.shuttles.put(in.readUTF(), readShuttle(in));
+            }
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                snapshot.stops.put(in.readUTF(), readStop(in));
+            }
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                snapshot.routes.put(in.readUTF(), readRoute(in));
+            }
+            return snapshot;
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading fleet snapshot", e);
+            return null;
+        }
+    }
+
+    /**
+     * Write the file; a collection that has no live state yet keeps what the file had
+     */
+    private void writeFile(CollectionState<Shuttle> fleet, CollectionState<Stop> stops,
+                           CollectionState<Route> routes) {
+        Snapshot previous = (fleet == null || stops == null || routes == null) ? readFile() : null;
+        Map<String, Shuttle> shuttles = fleet != null ? fleet.getItemsById()
+                : previous != null ? previous.shuttles : new LinkedHashMap<>();
+        Map<String, Stop> stopItems = stops != null ? stops.getItemsById()
+                : previous != null ? previous.stops : new LinkedHashMap<>();
+        Map<String, Route> routeItems = routes != null ? routes.getItemsById()
+                : previous != null ? previous.routes : new LinkedHashMap<>();
+
+        long now = System.currentTimeMillis();
+        long fleetSavedAt = fleet != null ? now : previous != null ? previous.fleetSavedAt : 0;
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(FILE_VERSION);
+            out.writeLong(now);
+            out.writeLong(fleetSavedAt);
+            out.writeInt(shuttles.size());
+            for (Map.Entry<String, Shuttle> entry : shuttles.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeShuttle(out, entry.getValue());
+            }
+            out.writeInt(stopItems.size());
+            for (Map.Entry<String, Stop> entry : stopItems.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeStop(out, entry.getValue());
+            }
+            out.writeInt(routeItems.size());
+            for (Map.Entry<String, Route> entry : routeItems.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeRoute(out, entry.getValue());
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing fleet snapshot", e);
+            return;
+        }
+
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "Error replacing fleet snapshot file");
+        }
+    }
+
+    private static void writeShuttle(DataOutputStream out, Shuttle shuttle) throws IOException {
+        writeString(out, shuttle.getShuttleId());
+        writeString(out, shuttle.getShuttleName());
+        writeString(out, shuttle.getPlateNumber());
+        out.writeDouble(shuttle.getLatitude());
+        out.writeDouble(shuttle.getLongitude());
+        out.writeBoolean(shuttle.getCurrentLocation() != null);
+        out.writeDouble(shuttle.getSpeed());
+        out.writeFloat(shuttle.getBearing());
+        writeDate(out, shuttle.getFixTime());
+        writeString(out, shuttle.getCurrentRoute());
+        writeString(out, shuttle.getNextStop());
+        writeString(out, shuttle.getLastStop());
+        writeString(out, shuttle.getStatusString());
+        out.writeInt(shuttle.getCapacity());
+        out.writeInt(shuttle.getCurrentPassengers());
+        writeString(out, shuttle.getDriverName());
+        writeDate(out, shuttle.getLastUpdated());
+    }
+
+    private static Shuttle readShuttle(DataInputStream in) throws IOException {
+        Shuttle shuttle = new Shuttle();
+        shuttle.setShuttleId(readString(in));
+        shuttle.setShuttleName(readString(in));
+        shuttle.setPlateNumber(readString(in));
+        shuttle.setLatitude(in.readDouble());
+        shuttle.setLongitude(in.readDouble());
+        // A shuttle that never reported a position must not appear at 0,0
+        if (in.readBoolean()) {
+            shuttle.setCurrentLocation(new GeoPoint(shuttle.getLatitude(), shuttle.getLongitude()));
+        }
+        shuttle.setSpeed(in.readDouble());
+        shuttle.setBearing(in.readFloat());
+        shuttle.setFixTime(readDate(in));
+        shuttle.setCurrentRoute(readString(in));
+        shuttle.setNextStop(readString(in));
+        shuttle.setLastStop(readString(in));
+        shuttle.setStatusString(readString(in));
+        shuttle.setCapacity(in.readInt());
+        shuttle.setCurrentPassengers(in.readInt());
+        shuttle.setDriverName(readString(in));
+        shuttle.setLastUpdated(readDate(in));
+        return shuttle;
+    }
+
+    private static void writeStop(DataOutputStream out, Stop stop) throws IOException {
+        writeString(out, stop.getStopId());
+        writeString(out, stop.getStopName());
+        writeString(out, stop.getDescription());
+        out.writeDouble(stop.getLatitude());
+        out.writeDouble(stop.getLongitude());
+        out.writeBoolean(stop.getLocation() != null);
+        writeStrings(out, stop.getRoutes());
+        out.writeBoolean(stop.isActive());
+        out.writeInt(stop.getOrderInRoute());
+        writeString(out, stop.getLandmark());
+    }
+
+    private static Stop readStop(DataInputStream in) throws IOException {
+        Stop stop = new Stop();
+        stop.setStopId(readString(in));
+        stop.setStopName(readString(in));
+        stop.setDescription(readString(in));
+        stop.setLatitude(in.readDouble());
+        stop.setLongitude(in.readDouble());
+        if (in.readBoolean()) {
+            stop.setLocation(new GeoPoint(stop.getLatitude(), stop.getLongitude()));
+        }
+        stop.setRoutes(readStrings(in));
+        stop.setActive(in.readBoolean());
+        stop.setOrderInRoute(in.readInt());
+        stop.setLandmark(readString(in));
+        return stop;
+    }
+
+    private static void writeRoute(DataOutputStream out, Route route) throws IOException {
+        writeString(out, route.getRouteId());
+        writeString(out, route.getRouteName());
+        writeString(out, route.getDescription());
+        writeStrings(out, route.getStopIds());
+        writeStrings(out, route.getStopNames());
+        out.writeInt(route.getFrequencyMinutes());
+        writeString(out, route.getStartTime());
+        writeString(out, route.getEndTime());
+        out.writeBoolean(route.isWeekdayOnly());
+        out.writeBoolean(route.isActive());
+        writeString(out, route.getColor());
+    }
+
+    private static Route readRoute(DataInputStream in) throws IOException {
+        Route route = new Route();
+        route.setRouteId(readString(in));
+        route.setRouteName(readString(in));
+        route.setDescription(readString(in));
+        route.setStopIds(readStrings(in));
+        route.setStopNames(readStrings(in));
+        route.setFrequencyMinutes(in.readInt());
+        route.setStartTime(readString(in));
+        route.setEndTime(readString(in));
+        route.setWeekdayOnly(in.readBoolean());
+        route.setActive(in.readBoolean());
+        route.setColor(readString(in));
+        return route;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values != null ? values.size() : -1);
+        if (values == null) return;
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) return null;
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static void writeDate(DataOutputStream out, Date date) throws IOException {
+        out.writeLong(date != null ? date.getTime() : Long.MIN_VALUE);
+    }
+
+    private static Date readDate(DataInputStream in) throws IOException {
+        long time = in.readLong();
+        return time != Long.MIN_VALUE ? new Date(time) : null;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.campusride.data;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.example.campusride.models.Route;
+import com.example.campusride.utils.FirebaseHelper;
+
+/**
+ * Single shared live view of the active routes
+ */
+public class RouteRepository extends SharedCollection<Route> {
+
+    private static RouteRepository instance;
+
+    private RouteRepository() {
+        super("RouteRepository", Route.class, DocumentMappers.ROUTE);
+    }
+
+    public static synchronized RouteRepository getInstance() {
+        if (instance == null) {
+            instance = new RouteRepository();
+        }
+        return instance;
+    }
+
+    @Override
+    protected Query buildQuery() {
+        return FirebaseFirestore.getInstance()
+                .collection(FirebaseHelper.COLLECTION_ROUTES)
+                .whereEqualTo("isActive", true);
+    }
+
+    /**
+     * Get a route from the latest state
+     */
+    public Route getRoute(String routeId) {
+        return routeId != null ? getState().get(routeId) : null;
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.campusride.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.example.campusride.utils.DecodeBenchmark;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide, ref-counted Firestore collection.
+ * One snapshot listener is held while at least one observer is attached;
+ * each snapshot is decoded once on a background thread and the resulting
+ * immutable state is multicast to every observer on the main thread.
+ * A state restored from disk can be seeded before the first snapshot so
+ * screens render at once; the first live snapshot replaces it.
+ */
+public abstract class SharedCollection<T> {
+
+    // Shared by every collection so decoding never competes with itself
+    public static final ExecutorService DECODE_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final String tag;
+    private final Class<T> modelClass;
+    private final DocumentMappers.DocumentMapper<T> mapper;
+    private final List<Observer<T>> observers = new ArrayList<>();
+    private final List<Observer<T>> passiveObservers = new ArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ListenerRegistration registration;
+    private SnapshotApplier<T> applier;
+    private CollectionState<T> state = CollectionState.empty();
+    private boolean loaded;
+    private boolean seeded;
+    private boolean benchmarked;
+
+    public interface Observer<T> {
+        void onStateChanged(CollectionState<T> state);
+
+        default void onError(Exception error) {
+        }
+    }
+
+    protected SharedCollection(String tag, Class<T> modelClass, DocumentMappers.DocumentMapper<T> mapper) {
+        this.tag = tag;
+        this.modelClass = modelClass;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Query backing this collection
+     */
+    protected abstract Query buildQuery();
+
+    /**
+     * Start observing; the current state is delivered right away if already loaded
+     */
+    public void observe(Observer<T> observer) {
+        if (observers.contains(observer)) return;
+        observers.add(observer);
+
+        if (registration == null) {
+            subscribe();
+            if (seeded) {
+                // Render the restored state while the listener connects
+                postCurrentState(observer);
+            }
+        } else if (loaded) {
+            // A late observer has seen none of the earlier changes
+            postCurrentState(observer);
+        }
+    }
+
+    /**
+     * Get notified of every published state without keeping the listener open
+     */
+    public void addPassiveObserver(Observer<T> observer) {
+        if (!passiveObservers.contains(observer)) {
+            passiveObservers.add(observer);
+        }
+    }
+
+    /**
+     * Publish a state restored from disk; ignored once live data has arrived
+     */
+    public void seed(CollectionState<T> restored) {
+        if (loaded || restored.isEmpty()) return;
+        seeded = true;
+        publish(restored);
+    }
+
+    /**
+     * Check if the current state was restored from disk and not yet replaced by live data
+     */
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * Stop observing; the listener is released once the last observer leaves
+     */
+    public void removeObserver(Observer<T> observer) {
+        observers.remove(observer);
+        if (observers.isEmpty() && registration != null) {
+            registration.remove();
+            registration = null;
+            applier = null;
+            Log.d(tag, "Released shared listener");
+        }
+    }
+
+    /**
+     * Read the query once so Firestore's local cache is warm when the first
+     * observer attaches; no listener is held and no state is published
+     * @return the read, or null if the collection is already live or loaded
+     */
+    public Task<QuerySnapshot> prefetch() {
+        if (registration != null || loaded) return null;
+        return buildQuery().get().addOnFailureListener(e -> Log.e(tag, "Prefetch failed", e));
+    }
+
+    /**
+     * Get the most recent state, which may be empty before the first snapshot
+     */
+    public CollectionState<T> getState() {
+        return state;
+    }
+
+    /**
+     * Check if at least one snapshot has been received
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int getObserverCount() {
+        return observers.size();
+    }
+
+    private void subscribe() {
+        Log.d(tag, "Opening shared listener");
+        // A fresh applier per subscription; late events from a released listener are ignored
+        SnapshotApplier<T> subscriptionApplier = new SnapshotApplier<>(mapper);
+        applier = subscriptionApplier;
+        registration = buildQuery().addSnapshotListener(DECODE_EXECUTOR,
+                (snapshots, error) -> onSnapshot(subscriptionApplier, snapshots, error));
+    }
+
+    /**
+     * Called on the decode thread; only the finished state is posted to the main thread
+     */
+    private void onSnapshot(SnapshotApplier<T> subscriptionApplier, QuerySnapshot snapshots,
+                            FirebaseFirestoreException error) {
+        if (error != null) {
+            Log.e(tag, "Listener failed", error);
+            mainHandler.post(() -> {
+                for (Observer<T> observer : new ArrayList<>(observers)) {
+                    observer.onError(error);
+                }
+            });
+            return;
+        }
+        if (snapshots == null) return;
+
+        if (!benchmarked && DecodeBenchmark.isEnabled()) {
+            benchmarked = true;
+            DecodeBenchmark.run(tag, snapshots.getDocuments(), modelClass, mapper);
+        }
+
+        CollectionState<T> newState = subscriptionApplier.apply(snapshots);
+        if (newState == null) return;
+
+        mainHandler.post(() -> {
+            if (applier == subscriptionApplier) {
+                seeded = false;
+                publish(newState);
+            }
+        });
+    }
+
+    /**
+     * Replace the current state and notify every observer
+     */
+    protected void publish(CollectionState<T> newState) {
+        state = newState;
+        loaded = true;
+        for (Observer<T> observer : new ArrayList<>(observers)) {
+            observer.onStateChanged(newState);
+        }
+        for (Observer<T> observer : new ArrayList<>(passiveObservers)) {
+            observer.onStateChanged(newState);
+        }
+    }
+
+    private void postCurrentState(Observer<T> observer) {
+        CollectionState<T> current = state.asFullRefresh();
+        mainHandler.post(() -> {
+            if (observers.contains(observer)) {
+                observer.onStateChanged(current);
+            }
+        });
+    }
+}
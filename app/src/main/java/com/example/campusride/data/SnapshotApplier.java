@@ -0,0 +1,77 @@
+package com.example.campusride.data;
+
+import androidx.annotation.WorkerThread;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.QuerySnapshot;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies QuerySnapshot document changes to an id-keyed table.
+ * Only added and modified documents are decoded, so one shuttle moving costs
+ * one decode instead of the whole fleet. Snapshots that carry no document
+ * changes (metadata-only or a server confirmation of cached data) are dropped.
+ * Each state takes over the table it was built from; the next snapshot
+ * with changes copies it once before applying them.
+ */
+public class SnapshotApplier<T> {
+
+    private final DocumentMappers.DocumentMapper<T> mapper;
+    private Map<String, T> items = new LinkedHashMap<>();
+    private boolean handedOver; // items belongs to the last published state
+    private boolean initialized;
+
+    public SnapshotApplier(DocumentMappers.DocumentMapper<T> mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Apply a snapshot
+     * @return the new state, or null if nothing observable changed
+     */
+    @WorkerThread
+    public CollectionState<T> apply(QuerySnapshot snapshots) {
+        List<DocumentChange> documentChanges = snapshots.getDocumentChanges();
+        boolean fromCache = snapshots.getMetadata().isFromCache();
+
+        if (initialized && documentChanges.isEmpty()) {
+            return null;
+        }
+
+        if (handedOver) {
+            items = new LinkedHashMap<>(items);
+            handedOver = false;
+        }
+
+        List<String> added = new ArrayList<>();
+        List<String> modified = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+
+        for (DocumentChange change : documentChanges) {
+            String id = change.getDocument().getId();
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                if (items.remove(id) != null) removed.add(id);
+                continue;
+            }
+
+            T item = mapper.map(change.getDocument());
+            if (item == null) {
+                if (items.remove(id) != null) removed.add(id);
+            } else if (items.put(id, item) == null) {
+                added.add(id);
+            } else {
+                modified.add(id);
+            }
+        }
+
+        boolean fullRefresh = !initialized;
+        initialized = true;
+        ChangeSet changes = new ChangeSet(added, modified, removed, fullRefresh);
+        if (changes.isEmpty()) return null;
+
+        handedOver = true;
+        return new CollectionState<>(items, changes, fromCache, System.currentTimeMillis());
+    }
+}
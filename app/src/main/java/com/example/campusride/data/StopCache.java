@@ -0,0 +1,98 @@
+package com.example.campusride.data;
+
+import com.example.campusride.models.Stop;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide cache of the latest decoded stop documents.
+ * Filled by every listener that decodes stops, so a screen that needs a
+ * few stops can show them before its own listener has delivered, and ETAs
+ * can be worked out without a listener on every stop.
+ * Accessed from the main thread only.
+ */
+public class StopCache {
+
+    private static StopCache instance;
+
+    private final Map<String, Stop> stops = new HashMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    public interface Listener {
+        void onStopsChanged();
+    }
+
+    public static synchronized StopCache getInstance() {
+        if (instance == null) {
+            instance = new StopCache();
+        }
+        return instance;
+    }
+
+    private StopCache() {
+    }
+
+    /**
+     * Get a cached stop, or null
+     */
+    public Stop get(String stopId) {
+        return stopId != null ? stops.get(stopId) : null;
+    }
+
+    /**
+     * Get every cached stop by id; the map is a live read-only view
+     */
+    public Map<String, Stop> getStopsById() {
+        return Collections.unmodifiableMap(stops);
+    }
+
+    public void put(Stop stop) {
+        if (store(stop)) notifyListeners();
+    }
+
+    public void putAll(Collection<Stop> newStops) {
+        boolean changed = false;
+        for (Stop stop : newStops) {
+            changed |= store(stop);
+        }
+        if (changed) notifyListeners();
+    }
+
+    public void remove(String stopId) {
+        if (stopId != null && stops.remove(stopId) != null) notifyListeners();
+    }
+
+    public int size() {
+        return stops.size();
+    }
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private boolean store(Stop stop) {
+        if (stop == null || stop.getStopId() == null) return false;
+        stops.put(stop.getStopId(), stop);
+        return true;
+    }
+
+    private void notifyListeners() {
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onStopsChanged();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.campusride.data;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.example.campusride.models.Stop;
+import com.example.campusride.utils.FirebaseHelper;
+
+/**
+ * Single shared live view of the active stops
+ */
+public class StopRepository extends SharedCollection<Stop> {
+
+    private static StopRepository instance;
+
+    private StopRepository() {
+        super("StopRepository", Stop.class, DocumentMappers.STOP);
+    }
+
+    public static synchronized StopRepository getInstance() {
+        if (instance == null) {
+            instance = new StopRepository();
+        }
+        return instance;
+    }
+
+    @Override
+    protected Query buildQuery() {
+        return FirebaseFirestore.getInstance()
+                .collection(FirebaseHelper.COLLECTION_STOPS)
+                .whereEqualTo("isActive", true);
+    }
+
+    @Override
+    protected void publish(CollectionState<Stop> newState) {
+        // Share decoded stops with screens that listen to only a few of them
+        StopCache cache = StopCache.getInstance();
+        if (newState.getChanges().isFullRefresh()) {
+            cache.putAll(newState.getItems());
+        } else {
+            for (String stopId : newState.getChanges().getRemoved()) {
+                cache.remove(stopId);
+            }
+            for (String stopId : newState.getChanges().getModified()) {
+                cache.put(newState.get(stopId));
+            }
+            for (String stopId : newState.getChanges().getAdded()) {
+                cache.put(newState.get(stopId));
+            }
+        }
+        super.publish(newState);
+    }
+
+    /**
+     * Get a stop from the latest state
+     */
+    public Stop getStop(String stopId) {
+        return stopId != null ? getState().get(stopId) : null;
+    }
+}
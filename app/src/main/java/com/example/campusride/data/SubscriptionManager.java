@@ -0,0 +1,179 @@
+package com.example.campusride.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pauses a screen's live subscriptions while nobody can see it.
+ * MainActivity keeps every tab alive and only hides it, so without this a
+ * hidden tab, or the whole app in the background, keeps streaming and
+ * decoding. A fragment binds its view lifecycle and forwards
+ * onHiddenChanged, which no lifecycle event reports; other owners call
+ * setVisible themselves. Subscriptions are paused after a short grace
+ * period so quick tab switches don't reopen listeners, and resumed as soon
+ * as the screen is visible again. A resumed Firestore listener is served from the
+ * local cache first and then only fetches what changed while it was paused.
+ * Accessed from the main thread only.
+ */
+public class SubscriptionManager {
+
+    private static final long PAUSE_DELAY = 5000; // 5 seconds
+
+    private final String tag;
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable pauseRunnable = this::pauseAll;
+
+    private boolean visible;
+    private boolean active;
+
+    // Bound fragment and its view's lifecycle, while the view exists
+    private Fragment fragment;
+    private Lifecycle viewLifecycle;
+    private final LifecycleEventObserver viewObserver = (source, event) -> {
+        if (event == Lifecycle.Event.ON_START) {
+            setVisible(fragment != null && !fragment.isHidden());
+        } else if (event == Lifecycle.Event.ON_STOP) {
+            setVisible(false);
+        } else if (event == Lifecycle.Event.ON_DESTROY) {
+            release();
+        }
+    };
+
+    /**
+     * Something that can be started and stopped without losing its owner's state
+     */
+    public interface Subscription {
+        void resume();
+
+        void pause();
+    }
+
+    public SubscriptionManager(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * Observe a shared collection while visible
+     */
+    public static <T> Subscription forCollection(SharedCollection<T> collection,
+                                                 SharedCollection.Observer<T> observer) {
+        return new Subscription() {
+            @Override
+            public void resume() {
+                collection.observe(observer);
+            }
+
+            @Override
+            public void pause() {
+                collection.removeObserver(observer);
+            }
+        };
+    }
+
+    /**
+     * Observe shared ETAs while visible
+     */
+    public static Subscription forEtas(EtaTracker tracker, EtaTracker.Observer observer) {
+        return new Subscription() {
+            @Override
+            public void resume() {
+                tracker.observe(observer);
+            }
+
+            @Override
+            public void pause() {
+                tracker.removeObserver(observer);
+            }
+        };
+    }
+
+    /**
+     * Add a subscription; it starts right away if the screen is visible
+     */
+    public void add(Subscription subscription) {
+        if (subscriptions.contains(subscription)) return;
+        subscriptions.add(subscription);
+        if (active) subscription.resume();
+    }
+
+    /**
+     * Follow a fragment's view: visible while started and not hidden, released
+     * when the view is destroyed. Call from onCreateView.
+     */
+    public void bind(Fragment fragment) {
+        this.fragment = fragment;
+        viewLifecycle = fragment.getViewLifecycleOwner().getLifecycle();
+        viewLifecycle.addObserver(viewObserver);
+    }
+
+    /**
+     * Forward the bound fragment's onHiddenChanged
+     */
+    public void onHiddenChanged(boolean hidden) {
+        setVisible(!hidden && viewLifecycle != null
+                && viewLifecycle.getCurrentState().isAtLeast(Lifecycle.State.STARTED));
+    }
+
+    /**
+     * Report whether the screen can currently be seen
+     */
+    public void setVisible(boolean visible) {
+        if (this.visible == visible) return;
+        this.visible = visible;
+
+        mainHandler.removeCallbacks(pauseRunnable);
+        if (visible) {
+            resumeAll();
+        } else if (active) {
+            mainHandler.postDelayed(pauseRunnable, PAUSE_DELAY);
+        }
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Stop everything now and forget the subscriptions, when the view goes away
+     */
+    public void release() {
+        mainHandler.removeCallbacks(pauseRunnable);
+        pauseAll();
+        subscriptions.clear();
+        visible = false;
+        if (viewLifecycle != null) {
+            viewLifecycle.removeObserver(viewObserver);
+            viewLifecycle = null;
+        }
+        fragment = null;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void resumeAll() {
+        if (active) return;
+        active = true;
+        Log.d(tag, "Resuming " + subscriptions.size() + " subscriptions");
+        for (Subscription subscription : new ArrayList<>(subscriptions)) {
+            subscription.resume();
+        }
+    }
+
+    private void pauseAll() {
+        if (!active) return;
+        active = false;
+        Log.d(tag, "Pausing " + subscriptions.size() + " subscriptions");
+        for (Subscription subscription : new ArrayList<>(subscriptions)) {
+            subscription.pause();
+        }
+    }
+}
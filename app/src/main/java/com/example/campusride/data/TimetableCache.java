@@ -0,0 +1,95 @@
+package com.example.campusride.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import com.example.campusride.models.Route;
+import com.example.campusride.models.Stop;
+import com.example.campusride.utils.SegmentTravelModel;
+import com.example.campusride.utils.Timetable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide cache of compiled route timetables.
+ * Timetables are compiled on a background thread and kept per route until
+ * the route's version (hours, frequency, stops, learned travel times)
+ * changes. Accessed from the main thread only.
+ */
+public class TimetableCache {
+
+    private static TimetableCache instance;
+
+    private final SegmentTravelModel travelModel;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Timetable> timetables = new HashMap<>();
+    private final Map<String, List<Listener>> pending = new HashMap<>();
+
+    public interface Listener {
+        void onTimetableReady(Timetable timetable);
+    }
+
+    public static synchronized TimetableCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new TimetableCache(SegmentTravelModel.getInstance(context));
+        }
+        return instance;
+    }
+
+    private TimetableCache(SegmentTravelModel travelModel) {
+        this.travelModel = travelModel;
+    }
+
+    /**
+     * Get the timetable for the route's current version.
+     * If it isn't compiled yet, compilation starts in the background, the
+     * listener is called on the main thread when it is ready and null is returned.
+     */
+    public Timetable get(Route route, Map<String, Stop> stopsById, Listener listener) {
+        String version = Timetable.versionOf(route, stopsById, travelModel);
+        Timetable cached = timetables.get(route.getRouteId());
+        if (cached != null && cached.getVersion().equals(version)) {
+            return cached;
+        }
+
+        String key = route.getRouteId() + "#" + version;
+        List<Listener> listeners = pending.get(key);
+        if (listeners != null) {
+            // Already compiling this version
+            if (!listeners.contains(listener)) listeners.add(listener);
+            return null;
+        }
+
+        listeners = new ArrayList<>();
+        listeners.add(listener);
+        pending.put(key, listeners);
+
+        executor.execute(() -> {
+            Timetable compiled = Timetable.compile(route, stopsById, travelModel);
+            mainHandler.post(() -> {
+                timetables.put(compiled.getRouteId(), compiled);
+                List<Listener> waiting = pending.remove(key);
+                if (waiting != null) {
+                    for (Listener waitingListener : waiting) {
+                        waitingListener.onTimetableReady(compiled);
+                    }
+                }
+            });
+        });
+        return null;
+    }
+
+    /**
+     * Forget listeners that went away before their timetable was ready
+     */
+    public void removeListener(Listener listener) {
+        for (List<Listener> listeners : pending.values()) {
+            listeners.remove(listener);
+        }
+    }
+}
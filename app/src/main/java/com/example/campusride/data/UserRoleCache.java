@@ -0,0 +1,46 @@
+package com.example.campusride.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import com.example.campusride.models.User;
+
+/**
+ * Remembers the signed-in user's role on the device, so the splash screen
+ * can route without waiting for the users document. The role is
+ * revalidated from Firestore on every launch and cleared on sign-out.
+ */
+public class UserRoleCache {
+
+    private static final String PREFS_NAME = "user_role_cache";
+    private static final String KEY_USER_ID = "user_id";
+    private static final String KEY_ROLE = "role";
+
+    private final SharedPreferences prefs;
+
+    public UserRoleCache(Context context) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Get the cached role of a user, or null if another user was cached
+     */
+    public User.UserType getRole(String userId) {
+        String role = prefs.getString(KEY_ROLE, null);
+        if (role == null || userId == null || !userId.equals(prefs.getString(KEY_USER_ID, null))) {
+            return null;
+        }
+        return User.UserType.fromString(role);
+    }
+
+    public void save(String userId, User.UserType role) {
+        if (userId == null || role == null) return;
+        prefs.edit()
+                .putString(KEY_USER_ID, userId)
+                .putString(KEY_ROLE, role.getValue())
+                .apply();
+    }
+
+    public void clear() {
+        prefs.edit().clear().apply();
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.campusride.fragments;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,20 +15,34 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.example.campusride.R;
+import com.example.campusride.adapters.ChangeSetDispatcher;
+import com.example.campusride.data.ChangeSet;
+import com.example.campusride.data.CollectionState;
+import com.example.campusride.data.DocumentMappers;
+import com.example.campusride.data.EtaTracker;
+import com.example.campusride.data.FavoriteStopsSubscription;
+import com.example.campusride.data.SubscriptionManager;
+import com.example.campusride.models.Shuttle;
 import com.example.campusride.models.Stop;
 import com.example.campusride.models.User;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Favorites Fragment - Manage favorite stops
  */
 public class FavoritesFragment extends Fragment {
 
+    private static final long ETA_REFRESH_INTERVAL = 2000; // 2 seconds, fleet updates in between are batched
+
     // Views
     private RecyclerView rvFavoriteStops;
     private View layoutEmptyFavorites;
@@ -37,11 +54,44 @@ public class FavoritesFragment extends Fragment {
     private User user;
 
     private List<Stop> favoriteStops = new ArrayList<>();
+    private final Map<String, String> nextShuttleTexts = new HashMap<>();
+    private Set<String> trackedStopIds = new HashSet<>();
     private FavoriteStopsAdapter adapter;
 
-    // Listeners
+    // Listeners, paused while the tab is hidden
+    private final SubscriptionManager subscriptions = new SubscriptionManager("FavoritesFragment");
     private ListenerRegistration userListener;
-    private ListenerRegistration stopsListener;
+    private FavoriteStopsSubscription favoriteStopsSubscription;
+    private EtaTracker etaTracker;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private boolean etaRefreshScheduled;
+    private long lastEtaRefresh;
+    private final Runnable etaRefresh = () -> {
+        etaRefreshScheduled = false;
+        refreshNextShuttles();
+    };
+    private final SubscriptionManager.Subscription userSubscription = new SubscriptionManager.Subscription() {
+        @Override
+        public void resume() {
+            loadUserData();
+        }
+
+        @Override
+        public void pause() {
+            if (userListener != null) {
+                userListener.remove();
+                userListener = null;
+            }
+            // Rebuilt from the next user snapshot
+            favoriteStopsSubscription.stop();
+        }
+    };
+    private final EtaTracker.Observer etaObserver = new EtaTracker.Observer() {
+        @Override
+        public void onEtasChanged(CollectionState<Shuttle> fleet, ChangeSet changes) {
+            scheduleEtaRefresh();
+        }
+    };
 
     @Nullable
     @Override
@@ -60,13 +110,36 @@ public class FavoritesFragment extends Fragment {
         // Setup RecyclerView
         setupRecyclerView();
 
+        favoriteStopsSubscription = new FavoriteStopsSubscription(db, new FavoriteStopsSubscription.Listener() {
+            @Override
+            public void onStopsChanged(CollectionState<Stop> state) {
+                if (getView() == null) return;
+                ChangeSetDispatcher.dispatch(state, favoriteStops, Stop::getStopId, stop -> true, adapter);
+                forgetRemovedStops();
+                updateUI();
+                scheduleEtaRefresh();
+            }
+
+            @Override
+            public void onError(Exception error) {
+                Toast.makeText(getContext(), "Error loading favorite stops", Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        // Live ETAs shared with the map
+        etaTracker = EtaTracker.getInstance(requireContext());
+        subscriptions.add(SubscriptionManager.forEtas(etaTracker, etaObserver));
+
         // Load user data
         if (currentUser != null) {
-            loadUserData();
+            subscriptions.add(userSubscription);
         } else {
             showEmptyState();
         }
 
+        // Listeners follow the view: paused while stopped or hidden, released with it
+        subscriptions.bind(this);
+
         return view;
     }
 
@@ -82,7 +155,7 @@ public class FavoritesFragment extends Fragment {
      * Setup RecyclerView
      */
     private void setupRecyclerView() {
-        adapter = new FavoriteStopsAdapter(favoriteStops, new FavoriteStopsAdapter.OnStopClickListener() {
+        adapter = new FavoriteStopsAdapter(favoriteStops, nextShuttleTexts, new FavoriteStopsAdapter.OnStopClickListener() {
             @Override
             public void onStopClick(Stop stop) {
                 // TODO: Navigate to map and show this stop
@@ -105,6 +178,9 @@ public class FavoritesFragment extends Fragment {
     private void loadUserData() {
         String userId = currentUser.getUid();
 
+        if (userListener != null) {
+            userListener.remove();
+        }
         userListener = db.collection("users")
                 .document(userId)
                 .addSnapshotListener((snapshot, error) -> {
@@ -114,41 +190,27 @@ public class FavoritesFragment extends Fragment {
                     }
 
                     if (snapshot != null && snapshot.exists()) {
-                        user = snapshot.toObject(User.class);
+                        user = DocumentMappers.toUser(snapshot);
                         if (user != null && user.getFavoriteStops() != null && !user.getFavoriteStops().isEmpty()) {
                             loadFavoriteStops(user.getFavoriteStops());
                         } else {
-                            showEmptyState();
+                            loadFavoriteStops(null);
                         }
                     } else {
-                        showEmptyState();
+                        loadFavoriteStops(null);
                     }
                 });
     }
 
     /**
-     * Load favorite stops from Firestore
+     * Follow the favorite stop documents; a user snapshot that leaves the
+     * favorites unchanged keeps the current listeners
      */
     private void loadFavoriteStops(List<String> favoriteStopIds) {
-        stopsListener = db.collection("stops")
-                .addSnapshotListener((snapshots, error) -> {
-                    if (error != null) {
-                        return;
-                    }
-
-                    if (snapshots != null) {
-                        favoriteStops.clear();
-
-                        for (DocumentSnapshot doc : snapshots.getDocuments()) {
-                            Stop stop = doc.toObject(Stop.class);
-                            if (stop != null && favoriteStopIds.contains(stop.getStopId())) {
-                                favoriteStops.add(stop);
-                            }
-                        }
-
-                        updateUI();
-                    }
-                });
+        favoriteStopsSubscription.setStopIds(favoriteStopIds);
+        if (favoriteStopIds == null || favoriteStopIds.isEmpty()) {
+            showEmptyState();
+        }
     }
 
     /**
@@ -169,6 +231,68 @@ public class FavoritesFragment extends Fragment {
                 });
     }
 
+    /**
+     * Let the tracker drop its cached estimates for stops that are no longer favorites
+     */
+    private void forgetRemovedStops() {
+        Set<String> current = new HashSet<>();
+        for (Stop stop : favoriteStops) {
+            current.add(stop.getStopId());
+        }
+        for (String stopId : trackedStopIds) {
+            if (!current.contains(stopId)) {
+                etaTracker.forgetStop(stopId);
+                nextShuttleTexts.remove(stopId);
+            }
+        }
+        trackedStopIds = current;
+    }
+
+    /**
+     * Refresh ETAs at most once per interval, however often the fleet changes
+     */
+    private void scheduleEtaRefresh() {
+        if (etaRefreshScheduled) return;
+        etaRefreshScheduled = true;
+        long wait = lastEtaRefresh + ETA_REFRESH_INTERVAL - SystemClock.elapsedRealtime();
+        mainHandler.postDelayed(etaRefresh, Math.max(0, wait));
+    }
+
+    /**
+     * Work out every favorite's next shuttle in one pass and rebind only rows whose text changed
+     */
+    private void refreshNextShuttles() {
+        if (getView() == null) return;
+        lastEtaRefresh = SystemClock.elapsedRealtime();
+
+        CollectionState<Shuttle> fleet = etaTracker.getFleet();
+        for (int i = 0; i < favoriteStops.size(); i++) {
+            String stopId = favoriteStops.get(i).getStopId();
+            String text = formatNextShuttle(etaTracker.getNext(stopId), fleet);
+            if (!text.equals(nextShuttleTexts.put(stopId, text))) {
+                adapter.notifyItemChanged(i, FavoriteStopsAdapter.PAYLOAD_NEXT_SHUTTLE);
+            }
+        }
+    }
+
+    private String formatNextShuttle(EtaTracker.Eta eta, CollectionState<Shuttle> fleet) {
+        if (!etaTracker.isLoaded()) return "Checking shuttles...";
+
+        Shuttle shuttle = eta != null ? fleet.get(eta.getShuttleId()) : null;
+        if (shuttle == null) return "No shuttles on the way";
+
+        // Straight-line estimates are only a rough guess
+        String when = eta.getEtaMinutes() <= 0 ? "arriving now"
+                : String.format(Locale.getDefault(), eta.isAlongRoute() ? "%d min" : "~%d min",
+                eta.getEtaMinutes());
+        String text = shuttle.getShuttleName() + " · " + when;
+        if (shuttle.getCapacity() > 0) {
+            int seats = Math.max(0, shuttle.getAvailableSeats());
+            text += " · " + (seats == 1 ? "1 seat" : seats + " seats");
+        }
+        return text;
+    }
+
     /**
      * Update UI
      */
@@ -178,7 +302,6 @@ public class FavoritesFragment extends Fragment {
         } else {
             layoutEmptyFavorites.setVisibility(View.GONE);
             rvFavoriteStops.setVisibility(View.VISIBLE);
-            adapter.notifyDataSetChanged();
         }
     }
 
@@ -190,15 +313,21 @@ public class FavoritesFragment extends Fragment {
         rvFavoriteStops.setVisibility(View.GONE);
     }
 
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        subscriptions.onHiddenChanged(hidden);
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
-        if (userListener != null) {
-            userListener.remove();
-        }
-        if (stopsListener != null) {
-            stopsListener.remove();
+        mainHandler.removeCallbacks(etaRefresh);
+        etaRefreshScheduled = false;
+        for (String stopId : trackedStopIds) {
+            etaTracker.forgetStop(stopId);
         }
+        trackedStopIds = new HashSet<>();
     }
 
     /**
@@ -206,7 +335,11 @@ public class FavoritesFragment extends Fragment {
      */
     private static class FavoriteStopsAdapter extends RecyclerView.Adapter<FavoriteStopsAdapter.ViewHolder> {
 
+        // Rebind only the next shuttle line
+        static final Object PAYLOAD_NEXT_SHUTTLE = new Object();
+
         private final List<Stop> stops;
+        private final Map<String, String> nextShuttleTexts;
         private final OnStopClickListener listener;
 
         interface OnStopClickListener {
@@ -214,8 +347,10 @@ public class FavoritesFragment extends Fragment {
             void onRemoveClick(Stop stop);
         }
 
-        FavoriteStopsAdapter(List<Stop> stops, OnStopClickListener listener) {
+        FavoriteStopsAdapter(List<Stop> stops, Map<String, String> nextShuttleTexts,
+                             OnStopClickListener listener) {
             this.stops = stops;
+            this.nextShuttleTexts = nextShuttleTexts;
             this.listener = listener;
         }
 
@@ -229,7 +364,17 @@ public class FavoritesFragment extends Fragment {
 
         @Override
         public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-            holder.bind(stops.get(position), listener);
+            Stop stop = stops.get(position);
+            holder.bind(stop, nextShuttleTexts.get(stop.getStopId()), listener);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+            if (payloads.isEmpty()) {
+                onBindViewHolder(holder, position);
+                return;
+            }
+            holder.bindNextShuttle(nextShuttleTexts.get(stops.get(position).getStopId()));
         }
 
         @Override
@@ -249,13 +394,17 @@ public class FavoritesFragment extends Fragment {
                 ivRemoveFavorite = itemView.findViewById(R.id.iv_remove_favorite);
             }
 
-            void bind(Stop stop, OnStopClickListener listener) {
+            void bind(Stop stop, String nextShuttle, OnStopClickListener listener) {
                 tvStopName.setText(stop.getStopName());
-                tvNextShuttle.setText("Tap to view shuttles");
+                bindNextShuttle(nextShuttle);
 
                 itemView.setOnClickListener(v -> listener.onStopClick(stop));
                 ivRemoveFavorite.setOnClickListener(v -> listener.onRemoveClick(stop));
             }
+
+            void bindNextShuttle(String nextShuttle) {
+                tvNextShuttle.setText(nextShuttle != null ? nextShuttle : "Checking shuttles...");
+            }
         }
     }
 }
\ No newline at end of file
@@ -2,7 +2,10 @@ package com.example.campusride.fragments;
 
 import android.Manifest;
 import android.content.pm.PackageManager;
+import android.location.Location;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -20,18 +23,25 @@ import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
-import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
-import com.google.android.gms.maps.model.Marker;
-import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.ListenerRegistration;
 import com.example.campusride.R;
 import com.example.campusride.adapters.ShuttleAdapter;
+import com.example.campusride.adapters.ShuttleListItem;
+import com.example.campusride.data.ChangeSet;
+import com.example.campusride.data.CollectionState;
+import com.example.campusride.data.EtaTracker;
+import com.example.campusride.data.SharedCollection;
+import com.example.campusride.data.StopRepository;
+import com.example.campusride.data.SubscriptionManager;
 import com.example.campusride.models.Shuttle;
 import com.example.campusride.models.Stop;
+import com.example.campusride.utils.LocationHelper;
+import com.example.campusride.utils.MarkerAnimator;
+import com.example.campusride.utils.MarkerReconciler;
+import com.example.campusride.utils.SegmentTravelModel;
+import com.example.campusride.utils.StartupTracer;
+import com.example.campusride.utils.StopSpatialIndex;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -45,6 +55,7 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     private static final int LOCATION_PERMISSION_REQUEST = 1001;
     private static final LatLng UCC_LOCATION = new LatLng(5.1053, -1.2882); // UCC coordinates
     private static final float DEFAULT_ZOOM = 15f;
+    private static final long EXTRAPOLATION_TICK = 1000; // 1 second, markers glide between ticks
 
     // Views
     private Spinner spinnerStops;
@@ -56,18 +67,62 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     // Map
     private GoogleMap mMap;
     private SupportMapFragment mapFragment;
-    private Map<String, Marker> shuttleMarkers = new HashMap<>();
+    private MarkerReconciler markerReconciler;
+    private final MarkerAnimator markerAnimator = new MarkerAnimator();
+    private final Handler extrapolationHandler = new Handler(Looper.getMainLooper());
+    private final Runnable extrapolationTick = new Runnable() {
+        @Override
+        public void run() {
+            extrapolateMarkers();
+            extrapolationHandler.postDelayed(this, EXTRAPOLATION_TICK);
+        }
+    };
 
     // Data
-    private FirebaseFirestore db;
     private List<Shuttle> shuttleList = new ArrayList<>();
     private List<Stop> stopList = new ArrayList<>();
     private ShuttleAdapter shuttleAdapter;
+    private Map<String, ShuttleListItem> shuttleRows = new HashMap<>();
+    private boolean showingStale;
     private Stop selectedStop;
+    private final StopSpatialIndex stopIndex = new StopSpatialIndex();
+    private SegmentTravelModel travelModel;
+    private LocationHelper locationHelper;
+    private boolean defaultStopRequested;
+
+    // Listeners, paused while the map is hidden
+    private final SubscriptionManager subscriptions = new SubscriptionManager("MapFragment");
+    private final StopRepository stopRepository = StopRepository.getInstance();
+    private final SharedCollection.Observer<Stop> stopsObserver = new SharedCollection.Observer<Stop>() {
+        @Override
+        public void onStateChanged(CollectionState<Stop> state) {
+            stopList.clear();
+            stopList.addAll(state.getItems());
+            stopIndex.apply(state);
+            updateStopsSpinner();
+            selectNearestStop();
+        }
+
+        @Override
+        public void onError(Exception error) {
+            Toast.makeText(getContext(), "Error loading stops", Toast.LENGTH_SHORT).show();
+        }
+    };
+    private EtaTracker etaTracker;
+    private final EtaTracker.Observer etaObserver = new EtaTracker.Observer() {
+        @Override
+        public void onEtasChanged(CollectionState<Shuttle> fleet, ChangeSet changes) {
+            StartupTracer.mark(StartupTracer.FLEET_LOADED);
+            showLoading(false);
+            applyFleetState(fleet, changes);
+        }
 
-    // Listeners
-    private ListenerRegistration shuttlesListener;
-    private ListenerRegistration stopsListener;
+        @Override
+        public void onError(Exception error) {
+            showLoading(false);
+            Toast.makeText(getContext(), "Error loading shuttles", Toast.LENGTH_SHORT).show();
+        }
+    };
 
     @Nullable
     @Override
@@ -75,8 +130,9 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
                              @Nullable Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_map, container, false);
 
-        // Initialize Firebase
-        db = FirebaseFirestore.getInstance();
+        // Shared ETAs; learned segment times are saved when the map goes away
+        etaTracker = EtaTracker.getInstance(requireContext());
+        travelModel = SegmentTravelModel.getInstance(requireContext());
 
         // Initialize views
         initializeViews(view);
@@ -90,9 +146,15 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         // Load stops
         loadStops();
 
+        // Load shuttles; a fleet restored from disk shows before any stop is chosen
+        loadShuttles();
+
         // Setup listeners
         setupListeners();
 
+        // Listeners follow the view: paused while stopped or hidden, released with it
+        subscriptions.bind(this);
+
         return view;
     }
 
@@ -122,7 +184,7 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
      * Setup RecyclerView
      */
     private void setupRecyclerView() {
-        shuttleAdapter = new ShuttleAdapter(shuttleList, shuttle -> {
+        shuttleAdapter = new ShuttleAdapter(shuttle -> {
             // Handle shuttle click - show on map
             if (mMap != null && shuttle.getCurrentLocation() != null) {
                 LatLng location = new LatLng(
@@ -155,28 +217,10 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     }
 
     /**
-     * Load stops from Firestore
+     * Load stops from the shared stop repository
      */
     private void loadStops() {
-        stopsListener = db.collection("stops")
-                .whereEqualTo("isActive", true)
-                .addSnapshotListener((snapshots, error) -> {
-                    if (error != null) {
-                        Toast.makeText(getContext(), "Error loading stops", Toast.LENGTH_SHORT).show();
-                        return;
-                    }
-
-                    if (snapshots != null) {
-                        stopList.clear();
-                        for (DocumentSnapshot doc : snapshots.getDocuments()) {
-                            Stop stop = doc.toObject(Stop.class);
-                            if (stop != null) {
-                                stopList.add(stop);
-                            }
-                        }
-                        updateStopsSpinner();
-                    }
-                });
+        subscriptions.add(SubscriptionManager.forCollection(stopRepository, stopsObserver));
     }
 
     /**
@@ -198,12 +242,21 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         );
         spinnerStops.setAdapter(adapter);
 
+        // Keep the current choice across stop updates
+        if (selectedStop != null) {
+            int index = indexOfStop(selectedStop.getStopId());
+            if (index >= 0) {
+                spinnerStops.setSelection(index + 1);
+            }
+        }
+
         spinnerStops.setOnItemSelectedListener(new android.widget.AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(android.widget.AdapterView<?> parent, View view, int position, long id) {
                 if (position > 0 && position <= stopList.size()) {
                     selectedStop = stopList.get(position - 1);
-                    loadShuttles();
+                    // New stop: every row changes, but nothing needs decoding
+                    applyFleetState(etaTracker.getFleet(), null);
                 }
             }
 
@@ -214,51 +267,113 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     }
 
     /**
-     * Load shuttles from Firestore
+     * Pick the stop nearest to the rider's last known location, once,
+     * if they haven't chosen one yet
+     */
+    private void selectNearestStop() {
+        if (defaultStopRequested || selectedStop != null || stopIndex.size() == 0) return;
+        if (getContext() == null || !checkLocationPermission()) return;
+        defaultStopRequested = true;
+
+        if (locationHelper == null) {
+            locationHelper = new LocationHelper(getContext());
+        }
+        locationHelper.getLastLocation(new LocationHelper.LocationUpdateListener() {
+            @Override
+            public void onLocationUpdate(Location location) {
+                if (selectedStop != null || getView() == null) return;
+
+                Stop nearest = stopIndex.nearest(location.getLatitude(), location.getLongitude());
+                int index = nearest != null ? indexOfStop(nearest.getStopId()) : -1;
+                if (index >= 0) {
+                    // Goes through the spinner listener like a manual choice
+                    spinnerStops.setSelection(index + 1);
+                }
+            }
+
+            @Override
+            public void onLocationError(String error) {
+                // Rider picks a stop manually
+            }
+        });
+    }
+
+    private int indexOfStop(String stopId) {
+        for (int i = 0; i < stopList.size(); i++) {
+            if (stopList.get(i).getStopId() != null && stopList.get(i).getStopId().equals(stopId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Start observing shared ETAs
      */
     private void loadShuttles() {
-        showLoading(true);
-
-        shuttlesListener = db.collection("shuttles")
-                .addSnapshotListener((snapshots, error) -> {
-                    showLoading(false);
-
-                    if (error != null) {
-                        Toast.makeText(getContext(), "Error loading shuttles", Toast.LENGTH_SHORT).show();
-                        return;
-                    }
-
-                    if (snapshots != null) {
-                        shuttleList.clear();
-
-                        for (DocumentSnapshot doc : snapshots.getDocuments()) {
-                            Shuttle shuttle = doc.toObject(Shuttle.class);
-                            if (shuttle != null && shuttle.isAvailable()) {
-                                // Calculate distance and ETA if stop is selected
-                                if (selectedStop != null && shuttle.getCurrentLocation() != null) {
-                                    double distance = selectedStop.distanceTo(
-                                            shuttle.getCurrentLocation().getLatitude(),
-                                            shuttle.getCurrentLocation().getLongitude()
-                                    );
-                                    shuttle.setDistanceToStop(distance);
-
-                                    // Estimate ETA (assuming 30 km/h average speed)
-                                    int etaMinutes = (int) Math.ceil((distance / 30.0) * 60);
-                                    shuttle.setEtaMinutes(etaMinutes);
-                                }
-
-                                shuttleList.add(shuttle);
-                            }
-                        }
-
-                        // Sort by distance/ETA
-                        shuttleList.sort((s1, s2) ->
-                                Double.compare(s1.getDistanceToStop(), s2.getDistanceToStop()));
-
-                        updateUI();
-                        updateMapMarkers();
-                    }
-                });
+        if (!etaTracker.isLoaded()) {
+            showLoading(true);
+        }
+        subscriptions.add(SubscriptionManager.forEtas(etaTracker, etaObserver));
+    }
+
+    /**
+     * Rebuild the shuttle list from the stop's ranking, or the whole available
+     * fleet until a stop is chosen, reformatting only changed shuttles
+     * @param changes shuttles whose ETAs moved, or null if every row must be rebuilt
+     */
+    private void applyFleetState(CollectionState<Shuttle> fleet, ChangeSet changes) {
+        // Shuttles restored from disk stay faded until the first live snapshot
+        boolean stale = fleet.isRestored();
+        boolean rebuildAll = changes == null || changes.isFullRefresh() || stale != showingStale;
+        showingStale = stale;
+        Map<String, ShuttleListItem> previousRows = shuttleRows;
+        shuttleRows = new HashMap<>();
+        shuttleList.clear();
+
+        if (selectedStop == null) {
+            // No stop yet: show where every shuttle is, without ETAs
+            for (Shuttle shuttle : fleet.getItems()) {
+                if (!shuttle.isAvailable()) continue;
+                ShuttleListItem previousRow = previousRows.get(shuttle.getShuttleId());
+                shuttleList.add(shuttle);
+                shuttleRows.put(shuttle.getShuttleId(),
+                        !rebuildAll && !changes.isChanged(shuttle.getShuttleId()) && previousRow != null
+                                ? previousRow : ShuttleListItem.from(shuttle, 0, 0, true, stale));
+            }
+        }
+
+        // Already ordered by ETA, then distance, with straight-line guesses last
+        String stopId = selectedStop != null ? selectedStop.getStopId() : null;
+        for (EtaTracker.Eta eta : etaTracker.getRanking(stopId)) {
+            Shuttle shuttle = fleet.get(eta.getShuttleId());
+            if (shuttle == null) continue;
+
+            ShuttleListItem previousRow = previousRows.get(shuttle.getShuttleId());
+            if (!rebuildAll && !changes.isChanged(shuttle.getShuttleId()) && previousRow != null) {
+                // Unchanged shuttle keeps its already formatted row
+                shuttleList.add(shuttle);
+                shuttleRows.put(shuttle.getShuttleId(), previousRow);
+                continue;
+            }
+
+            // The shuttle belongs to the shared fleet state, so per-stop values live in the row
+            shuttleList.add(shuttle);
+            shuttleRows.put(shuttle.getShuttleId(),
+                    ShuttleListItem.from(shuttle, eta.getEtaMinutes(), eta.getDistanceKm(), eta.isAlongRoute(),
+                            stale));
+        }
+
+        updateUI();
+        if (markerReconciler != null) markerReconciler.setStale(stale);
+        if (rebuildAll) {
+            updateMapMarkers();
+        } else if (markerReconciler != null) {
+            markerReconciler.reconcileChanges(shuttleList, changes, System.currentTimeMillis(), EXTRAPOLATION_TICK);
+        }
+        if (markerReconciler != null && !shuttleList.isEmpty()) {
+            StartupTracer.firstShuttleOnMap(getActivity());
+        }
     }
 
     /**
@@ -271,63 +386,39 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         } else {
             layoutEmptyState.setVisibility(View.GONE);
             rvShuttles.setVisibility(View.VISIBLE);
-            shuttleAdapter.notifyDataSetChanged();
         }
+
+        // Diffed off the main thread; only changed rows are rebound
+        List<ShuttleListItem> rows = new ArrayList<>(shuttleList.size());
+        for (Shuttle shuttle : shuttleList) {
+            rows.add(shuttleRows.get(shuttle.getShuttleId()));
+        }
+        shuttleAdapter.submitList(rows);
     }
 
     /**
      * Update shuttle markers on map
      */
     private void updateMapMarkers() {
-        if (mMap == null) return;
-
-        // Clear old markers
-        for (Marker marker : shuttleMarkers.values()) {
-            marker.remove();
-        }
-        shuttleMarkers.clear();
+        if (markerReconciler == null) return;
 
-        // Add new markers
-        for (Shuttle shuttle : shuttleList) {
-            if (shuttle.getCurrentLocation() != null) {
-                LatLng location = new LatLng(
-                        shuttle.getCurrentLocation().getLatitude(),
-                        shuttle.getCurrentLocation().getLongitude()
-                );
-
-                MarkerOptions markerOptions = new MarkerOptions()
-                        .position(location)
-                        .title(shuttle.getShuttleName())
-                        .snippet(shuttle.getCurrentRoute() + " - " + shuttle.getStatusString())
-                        .icon(BitmapDescriptorFactory.defaultMarker(
-                                shuttle.isActive() ? BitmapDescriptorFactory.HUE_GREEN :
-                                        BitmapDescriptorFactory.HUE_ORANGE
-                        ));
-
-                Marker marker = mMap.addMarker(markerOptions);
-                if (marker != null) {
-                    shuttleMarkers.put(shuttle.getShuttleId(), marker);
-                }
-            }
-        }
+        markerReconciler.reconcile(shuttleList, System.currentTimeMillis(), EXTRAPOLATION_TICK);
+        markerReconciler.setSelectedStop(selectedStop);
+    }
 
-        // Add stop markers
-        if (selectedStop != null && selectedStop.getLocation() != null) {
-            LatLng stopLocation = new LatLng(
-                    selectedStop.getLocation().getLatitude(),
-                    selectedStop.getLocation().getLongitude()
-            );
-
-            mMap.addMarker(new MarkerOptions()
-                    .position(stopLocation)
-                    .title(selectedStop.getStopName())
-                    .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_BLUE)));
-        }
+    /**
+     * Move shuttle markers along their last reported heading between updates
+     */
+    private void extrapolateMarkers() {
+        if (markerReconciler == null) return;
+        markerReconciler.updatePositions(shuttleList, System.currentTimeMillis(), EXTRAPOLATION_TICK);
     }
 
     @Override
     public void onMapReady(@NonNull GoogleMap googleMap) {
+        StartupTracer.mark(StartupTracer.MAP_READY);
         mMap = googleMap;
+        markerReconciler = new MarkerReconciler(googleMap, markerAnimator);
 
         // Configure map
         mMap.getUiSettings().setZoomControlsEnabled(true);
@@ -340,6 +431,12 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         if (checkLocationPermission()) {
             mMap.setMyLocationEnabled(true);
         }
+
+        // Shuttles may have loaded before the map
+        updateMapMarkers();
+        if (!shuttleList.isEmpty()) {
+            StartupTracer.firstShuttleOnMap(getActivity());
+        }
     }
 
     /**
@@ -372,14 +469,52 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     }
 
     @Override
-    public void onDestroyView() {
-        super.onDestroyView();
-        // Remove listeners
-        if (shuttlesListener != null) {
-            shuttlesListener.remove();
+    public void onResume() {
+        super.onResume();
+        if (!isHidden()) {
+            startMarkerAnimation();
+        }
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        stopMarkerAnimation();
+        if (travelModel != null) {
+            travelModel.save();
         }
-        if (stopsListener != null) {
-            stopsListener.remove();
+    }
+
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        subscriptions.onHiddenChanged(hidden);
+        if (hidden) {
+            stopMarkerAnimation();
+        } else if (isResumed()) {
+            startMarkerAnimation();
         }
     }
+
+    /**
+     * Animate markers only while the map is on screen
+     */
+    private void startMarkerAnimation() {
+        extrapolationHandler.removeCallbacks(extrapolationTick);
+        extrapolationHandler.post(extrapolationTick);
+        markerAnimator.start();
+    }
+
+    private void stopMarkerAnimation() {
+        extrapolationHandler.removeCallbacks(extrapolationTick);
+        markerAnimator.stop();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        stopMarkerAnimation();
+        markerAnimator.clear();
+        markerReconciler = null;
+    }
 }
\ No newline at end of file
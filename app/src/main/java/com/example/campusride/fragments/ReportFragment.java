@@ -18,9 +18,12 @@ import com.google.android.material.snackbar.Snackbar;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.example.campusride.R;
+import com.example.campusride.data.CollectionState;
+import com.example.campusride.data.FleetRepository;
+import com.example.campusride.data.SharedCollection;
+import com.example.campusride.data.SubscriptionManager;
 import com.example.campusride.models.Report;
 import com.example.campusride.models.Shuttle;
 import java.util.ArrayList;
@@ -48,9 +51,25 @@ public class ReportFragment extends Fragment {
 
     private List<Shuttle> shuttleList = new ArrayList<>();
     private Map<String, String> shuttleMap = new HashMap<>();
+    private List<String> shuttleNames = new ArrayList<>();
     private String selectedShuttleId;
     private Report.IssueType selectedIssueType;
 
+    // Listeners, paused while the tab is hidden
+    private final SubscriptionManager subscriptions = new SubscriptionManager("ReportFragment");
+    private final FleetRepository fleetRepository = FleetRepository.getInstance();
+    private final SharedCollection.Observer<Shuttle> fleetObserver = new SharedCollection.Observer<Shuttle>() {
+        @Override
+        public void onStateChanged(CollectionState<Shuttle> state) {
+            updateShuttleSelector(state);
+        }
+
+        @Override
+        public void onError(Exception error) {
+            Toast.makeText(getContext(), "Error loading shuttles", Toast.LENGTH_SHORT).show();
+        }
+    };
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
@@ -77,6 +96,9 @@ public class ReportFragment extends Fragment {
         // Setup submit button
         setupSubmitButton();
 
+        // Listeners follow the view: paused while stopped or hidden, released with it
+        subscriptions.bind(this);
+
         return view;
     }
 
@@ -93,41 +115,40 @@ public class ReportFragment extends Fragment {
     }
 
     /**
-     * Load shuttles from Firestore
+     * Load shuttles from the shared fleet
      */
     private void loadShuttles() {
-        db.collection("shuttles")
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    List<String> shuttleNames = new ArrayList<>();
-                    shuttleMap.clear();
-
-                    for (DocumentSnapshot doc : queryDocumentSnapshots.getDocuments()) {
-                        Shuttle shuttle = doc.toObject(Shuttle.class);
-                        if (shuttle != null) {
-                            shuttleList.add(shuttle);
-                            shuttleNames.add(shuttle.getShuttleName());
-                            shuttleMap.put(shuttle.getShuttleName(), shuttle.getShuttleId());
-                        }
-                    }
-
-                    if (getContext() != null) {
-                        ArrayAdapter<String> adapter = new ArrayAdapter<>(
-                                getContext(),
-                                android.R.layout.simple_dropdown_item_1line,
-                                shuttleNames
-                        );
-                        actvShuttleSelector.setAdapter(adapter);
-
-                        actvShuttleSelector.setOnItemClickListener((parent, view, position, id) -> {
-                            String shuttleName = (String) parent.getItemAtPosition(position);
-                            selectedShuttleId = shuttleMap.get(shuttleName);
-                        });
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(getContext(), "Error loading shuttles", Toast.LENGTH_SHORT).show();
-                });
+        actvShuttleSelector.setOnItemClickListener((parent, view, position, id) -> {
+            String shuttleName = (String) parent.getItemAtPosition(position);
+            selectedShuttleId = shuttleMap.get(shuttleName);
+        });
+        subscriptions.add(SubscriptionManager.forCollection(fleetRepository, fleetObserver));
+    }
+
+    /**
+     * Refresh the shuttle selector from a fleet state. Shuttles move all the
+     * time, so the dropdown is only rebuilt when the names change.
+     */
+    private void updateShuttleSelector(CollectionState<Shuttle> fleet) {
+        List<String> names = new ArrayList<>(fleet.size());
+        shuttleList.clear();
+        shuttleMap.clear();
+
+        for (Shuttle shuttle : fleet.getItems()) {
+            shuttleList.add(shuttle);
+            names.add(shuttle.getShuttleName());
+            shuttleMap.put(shuttle.getShuttleName(), shuttle.getShuttleId());
+        }
+
+        if (names.equals(shuttleNames) || getContext() == null) return;
+        shuttleNames = names;
+
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(
+                getContext(),
+                android.R.layout.simple_dropdown_item_1line,
+                shuttleNames
+        );
+        actvShuttleSelector.setAdapter(adapter);
     }
 
     /**
@@ -297,4 +318,17 @@ public class ReportFragment extends Fragment {
         selectedShuttleId = null;
         selectedIssueType = null;
     }
+
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        subscriptions.onHiddenChanged(hidden);
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // A new view needs a new adapter
+        shuttleNames = new ArrayList<>();
+    }
 }
\ No newline at end of file
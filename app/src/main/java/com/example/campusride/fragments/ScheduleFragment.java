@@ -1,6 +1,8 @@
 package com.example.campusride.fragments;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,13 +14,23 @@ import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.tabs.TabLayout;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.ListenerRegistration;
 import com.example.campusride.R;
+import com.example.campusride.adapters.ChangeSetDispatcher;
+import com.example.campusride.data.CollectionState;
+import com.example.campusride.data.RouteRepository;
+import com.example.campusride.data.SharedCollection;
+import com.example.campusride.data.StopRepository;
+import com.example.campusride.data.SubscriptionManager;
+import com.example.campusride.data.TimetableCache;
 import com.example.campusride.models.Route;
+import com.example.campusride.models.Stop;
+import com.example.campusride.utils.Timetable;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Schedule Fragment - Display shuttle schedules and routes
@@ -31,22 +43,67 @@ public class ScheduleFragment extends Fragment {
     private RecyclerView rvRoutes;
 
     // Data
-    private FirebaseFirestore db;
     private List<Route> routeList = new ArrayList<>();
     private RouteScheduleAdapter adapter;
     private boolean isWeekday = true;
+    private final Map<String, Timetable> timetables = new HashMap<>();
+    private Map<String, Stop> stopsById = Collections.emptyMap();
+    private TimetableCache timetableCache;
+    private final TimetableCache.Listener timetableListener = this::onTimetableReady;
+
+    // Moves the "Next" times on at each minute while the tab is started
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable minuteTick = new Runnable() {
+        @Override
+        public void run() {
+            if (!isHidden()) refreshNextDepartures();
+            scheduleMinuteTick();
+        }
+    };
 
-    // Listener
-    private ListenerRegistration routesListener;
+    // Listeners, paused while the tab is hidden
+    private final SubscriptionManager subscriptions = new SubscriptionManager("ScheduleFragment");
+    private final RouteRepository routeRepository = RouteRepository.getInstance();
+    private final StopRepository stopRepository = StopRepository.getInstance();
+    private final SharedCollection.Observer<Stop> stopsObserver = new SharedCollection.Observer<Stop>() {
+        @Override
+        public void onStateChanged(CollectionState<Stop> state) {
+            // Stop positions set the offsets; changed routes recompile
+            stopsById = state.getItemsById();
+            loadTimetables();
+        }
+
+        @Override
+        public void onError(Exception error) {
+            Toast.makeText(getContext(), "Error loading stops", Toast.LENGTH_SHORT).show();
+        }
+    };
+    private final SharedCollection.Observer<Route> routesObserver = new SharedCollection.Observer<Route>() {
+        @Override
+        public void onStateChanged(CollectionState<Route> state) {
+            routeList.clear();
+            routeList.addAll(state.getItems());
+            loadTimetables();
+            if (state.getChanges().isFullRefresh()) {
+                filterRoutes();
+            } else {
+                ChangeSetDispatcher.dispatch(state, adapter.getRoutes(), Route::getRouteId,
+                        route -> isRouteRunning(route), adapter);
+            }
+        }
+
+        @Override
+        public void onError(Exception error) {
+            Toast.makeText(getContext(), "Error loading routes", Toast.LENGTH_SHORT).show();
+        }
+    };
 
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
                              @Nullable Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_schedule, container, false);
-
-        // Initialize Firebase
-        db = FirebaseFirestore.getInstance();
+        timetableCache = TimetableCache.getInstance(requireContext());
 
         // Initialize views
         initializeViews(view);
@@ -60,6 +117,9 @@ public class ScheduleFragment extends Fragment {
         // Load routes
         loadRoutes();
 
+        // Listeners follow the view: paused while stopped or hidden, released with it
+        subscriptions.bind(this);
+
         return view;
     }
 
@@ -100,7 +160,7 @@ public class ScheduleFragment extends Fragment {
      * Setup RecyclerView
      */
     private void setupRecyclerView() {
-        adapter = new RouteScheduleAdapter(routeList);
+        adapter = new RouteScheduleAdapter(new ArrayList<>(), timetables);
         rvRoutes.setLayoutManager(new LinearLayoutManager(getContext()));
         rvRoutes.setAdapter(adapter);
     }
@@ -109,7 +169,22 @@ public class ScheduleFragment extends Fragment {
      * Update operating hours based on selected day
      */
     private void updateOperatingHours() {
-        if (isWeekday) {
+        // Span of the compiled timetables for the selected day
+        int first = -1;
+        int last = -1;
+        for (Route route : routeList) {
+            Timetable timetable = timetables.get(route.getRouteId());
+            if (timetable == null || timetable.getStopCount() == 0 || !timetable.runs(!isWeekday)) continue;
+
+            int routeFirst = timetable.firstDeparture(0, !isWeekday);
+            int routeLast = timetable.lastDeparture(timetable.getStopCount() - 1, !isWeekday);
+            first = first < 0 ? routeFirst : Math.min(first, routeFirst);
+            last = Math.max(last, routeLast);
+        }
+
+        if (first >= 0) {
+            tvOperatingHours.setText(Timetable.formatMinutes(first) + " - " + Timetable.formatMinutes(last));
+        } else if (isWeekday) {
             tvOperatingHours.setText("6:00 AM - 10:00 PM");
         } else {
             tvOperatingHours.setText("8:00 AM - 8:00 PM");
@@ -117,28 +192,41 @@ public class ScheduleFragment extends Fragment {
     }
 
     /**
-     * Load routes from Firestore
+     * Get compiled timetables, compiling changed routes in the background
+     */
+    private void loadTimetables() {
+        for (Route route : routeList) {
+            Timetable timetable = timetableCache.get(route, stopsById, timetableListener);
+            if (timetable != null && timetables.put(route.getRouteId(), timetable) != timetable) {
+                notifyRouteChanged(route.getRouteId());
+            }
+        }
+        updateOperatingHours();
+    }
+
+    private void onTimetableReady(Timetable timetable) {
+        if (getView() == null) return;
+
+        timetables.put(timetable.getRouteId(), timetable);
+        updateOperatingHours();
+        notifyRouteChanged(timetable.getRouteId());
+    }
+
+    private void notifyRouteChanged(String routeId) {
+        List<Route> shown = adapter.getRoutes();
+        for (int i = 0; i < shown.size(); i++) {
+            if (routeId.equals(shown.get(i).getRouteId())) {
+                adapter.notifyItemChanged(i);
+            }
+        }
+    }
+
+    /**
+     * Load routes and the stops their timetables depend on from the shared repositories
      */
     private void loadRoutes() {
-        routesListener = db.collection("routes")
-                .whereEqualTo("isActive", true)
-                .addSnapshotListener((snapshots, error) -> {
-                    if (error != null) {
-                        Toast.makeText(getContext(), "Error loading routes", Toast.LENGTH_SHORT).show();
-                        return;
-                    }
-
-                    if (snapshots != null) {
-                        routeList.clear();
-                        for (DocumentSnapshot doc : snapshots.getDocuments()) {
-                            Route route = doc.toObject(Route.class);
-                            if (route != null) {
-                                routeList.add(route);
-                            }
-                        }
-                        filterRoutes();
-                    }
-                });
+        subscriptions.add(SubscriptionManager.forCollection(stopRepository, stopsObserver));
+        subscriptions.add(SubscriptionManager.forCollection(routeRepository, routesObserver));
     }
 
     /**
@@ -147,22 +235,74 @@ public class ScheduleFragment extends Fragment {
     private void filterRoutes() {
         List<Route> filteredRoutes = new ArrayList<>();
         for (Route route : routeList) {
-            // If route is weekday only and we're viewing weekend, skip it
-            if (route.isWeekdayOnly() && !isWeekday) {
-                continue;
+            if (isRouteRunning(route)) {
+                filteredRoutes.add(route);
             }
-            filteredRoutes.add(route);
         }
 
+        adapter.setDay(!isWeekday, isToday(!isWeekday) ? minuteOfDay() : -1);
         adapter.updateRoutes(filteredRoutes);
     }
 
+    /**
+     * Rebind the rows if the current minute or day changed since they were drawn
+     */
+    private void refreshNextDepartures() {
+        if (adapter.setDay(!isWeekday, isToday(!isWeekday) ? minuteOfDay() : -1)) {
+            adapter.notifyItemRangeChanged(0, adapter.getItemCount());
+        }
+    }
+
+    private void scheduleMinuteTick() {
+        handler.removeCallbacks(minuteTick);
+        handler.postDelayed(minuteTick, 60000 - System.currentTimeMillis() % 60000);
+    }
+
+    /**
+     * Check if the selected day type is today's
+     */
+    private static boolean isToday(boolean weekend) {
+        int day = Calendar.getInstance().get(Calendar.DAY_OF_WEEK);
+        return weekend == (day == Calendar.SATURDAY || day == Calendar.SUNDAY);
+    }
+
+    private static int minuteOfDay() {
+        Calendar now = Calendar.getInstance();
+        return now.get(Calendar.HOUR_OF_DAY) * 60 + now.get(Calendar.MINUTE);
+    }
+
+    /**
+     * Check if a route runs on the selected day
+     */
+    private boolean isRouteRunning(Route route) {
+        // If route is weekday only and we're viewing weekend, skip it
+        return !route.isWeekdayOnly() || isWeekday;
+    }
+
+    @Override
+    public void onStart() {
+        super.onStart();
+        refreshNextDepartures();
+        scheduleMinuteTick();
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        handler.removeCallbacks(minuteTick);
+    }
+
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        subscriptions.onHiddenChanged(hidden);
+        if (!hidden) refreshNextDepartures();
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
-        if (routesListener != null) {
-            routesListener.remove();
-        }
+        timetableCache.removeListener(timetableListener);
     }
 
     /**
@@ -171,9 +311,23 @@ public class ScheduleFragment extends Fragment {
     private static class RouteScheduleAdapter extends RecyclerView.Adapter<RouteScheduleAdapter.ViewHolder> {
 
         private List<Route> routes;
+        private final Map<String, Timetable> timetables;
+        private boolean weekend;
+        private int minuteOfDay = -1; // -1 when the selected day isn't today
 
-        RouteScheduleAdapter(List<Route> routes) {
+        RouteScheduleAdapter(List<Route> routes, Map<String, Timetable> timetables) {
             this.routes = routes;
+            this.timetables = timetables;
+        }
+
+        /**
+         * @return true if the rows need rebinding
+         */
+        boolean setDay(boolean weekend, int minuteOfDay) {
+            if (this.weekend == weekend && this.minuteOfDay == minuteOfDay) return false;
+            this.weekend = weekend;
+            this.minuteOfDay = minuteOfDay;
+            return true;
         }
 
         void updateRoutes(List<Route> newRoutes) {
@@ -181,6 +335,10 @@ public class ScheduleFragment extends Fragment {
             notifyDataSetChanged();
         }
 
+        List<Route> getRoutes() {
+            return routes;
+        }
+
         @NonNull
         @Override
         public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -191,7 +349,8 @@ public class ScheduleFragment extends Fragment {
 
         @Override
         public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-            holder.bind(routes.get(position));
+            Route route = routes.get(position);
+            holder.bind(route, timetables.get(route.getRouteId()), weekend, minuteOfDay);
         }
 
         @Override
@@ -211,9 +370,15 @@ public class ScheduleFragment extends Fragment {
                 tvRouteStops = itemView.findViewById(R.id.tv_route_stops);
             }
 
-            void bind(Route route) {
+            void bind(Route route, Timetable timetable, boolean weekend, int minuteOfDay) {
                 tvRouteName.setText(route.getRouteName());
-                tvRouteFrequency.setText(route.getFrequencyString());
+
+                String frequency = route.getFrequencyString();
+                if (timetable != null && timetable.getStopCount() > 0 && minuteOfDay >= 0) {
+                    int next = timetable.nextDeparture(0, weekend, minuteOfDay);
+                    frequency += next >= 0 ? " · Next " + Timetable.formatMinutes(next) : " · No more today";
+                }
+                tvRouteFrequency.setText(frequency);
                 tvRouteStops.setText(route.getStopsString());
             }
         }
@@ -2,7 +2,9 @@ package com.example.campusride.models;
 
 import com.google.firebase.firestore.GeoPoint;
 import com.google.firebase.firestore.ServerTimestamp;
+import com.example.campusride.utils.GeoUtils;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Model class representing a Campus Shuttle
@@ -18,10 +20,22 @@ public class Shuttle {
     private GeoPoint currentLocation;
     private double latitude;
     private double longitude;
+    private List<GeoPoint> recentTrack;
+
+    // Motion data, used to extrapolate the position between updates
+    private double speed; // meters per second
+    private float bearing; // degrees clockwise from north
+    private Date fixTime;
 
     // Route information
     private String currentRoute;
-    private String nextStop;
+    private String nextStop; // stop id
+
+    // Latest stop event, detected on the driver's device
+    private String lastStop; // stop id
+    private String stopEvent; // "arrived" or "departed"
+    private Date stopEventTime;
+    private long dwellSeconds;
 
     // Status information
     private ShuttleStatus status;
@@ -41,6 +55,9 @@ public class Shuttle {
     private transient double distanceToStop;
     private transient int etaMinutes;
 
+    // Positions are never extrapolated further than this past the fix
+    public static final long MAX_EXTRAPOLATION = 60000; // 1 minute
+
     /**
      * Enum for shuttle status
      */
@@ -142,6 +159,38 @@ public class Shuttle {
         this.longitude = longitude;
     }
 
+    public List<GeoPoint> getRecentTrack() {
+        return recentTrack;
+    }
+
+    public void setRecentTrack(List<GeoPoint> recentTrack) {
+        this.recentTrack = recentTrack;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+    public float getBearing() {
+        return bearing;
+    }
+
+    public void setBearing(float bearing) {
+        this.bearing = bearing;
+    }
+
+    public Date getFixTime() {
+        return fixTime;
+    }
+
+    public void setFixTime(Date fixTime) {
+        this.fixTime = fixTime;
+    }
+
     public String getCurrentRoute() {
         return currentRoute;
     }
@@ -158,6 +207,38 @@ public class Shuttle {
         this.nextStop = nextStop;
     }
 
+    public String getLastStop() {
+        return lastStop;
+    }
+
+    public void setLastStop(String lastStop) {
+        this.lastStop = lastStop;
+    }
+
+    public String getStopEvent() {
+        return stopEvent;
+    }
+
+    public void setStopEvent(String stopEvent) {
+        this.stopEvent = stopEvent;
+    }
+
+    public Date getStopEventTime() {
+        return stopEventTime;
+    }
+
+    public void setStopEventTime(Date stopEventTime) {
+        this.stopEventTime = stopEventTime;
+    }
+
+    public long getDwellSeconds() {
+        return dwellSeconds;
+    }
+
+    public void setDwellSeconds(long dwellSeconds) {
+        this.dwellSeconds = dwellSeconds;
+    }
+
     public ShuttleStatus getStatus() {
         return status;
     }
@@ -263,6 +344,25 @@ public class Shuttle {
         return currentPassengers + "/" + capacity;
     }
 
+    /**
+     * Dead-reckon the position at the given time from the last fix, speed and bearing.
+     * Falls back to the last fix when no motion data is available.
+     */
+    public GeoPoint extrapolateLocation(long timeMillis) {
+        if (currentLocation == null || fixTime == null || speed <= 0) {
+            return currentLocation;
+        }
+
+        // Clamp to tolerate clock skew between driver and rider devices
+        long elapsed = Math.max(0, Math.min(timeMillis - fixTime.getTime(), MAX_EXTRAPOLATION));
+        if (elapsed == 0) {
+            return currentLocation;
+        }
+
+        double distanceKm = speed * elapsed / 1000000.0;
+        return GeoUtils.destinationPoint(currentLocation, bearing, distanceKm);
+    }
+
     @Override
     public String toString() {
         return "Shuttle{" +
@@ -0,0 +1,117 @@
+package com.example.campusride.models;
+
+import com.google.firebase.firestore.GeoPoint;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Model class representing a continuous piece of a shuttle's recorded path
+ */
+public class TrackSegment {
+
+    // Segment identification
+    private String segmentId;
+    private String shuttleId;
+
+    // Path data
+    private List<GeoPoint> points;
+    private int pointCount;
+
+    // Timestamps
+    private Date startTime;
+    private Date endTime;
+
+    /**
+     * Default constructor required for Firebase
+     */
+    public TrackSegment() {
+        this.points = new ArrayList<>();
+    }
+
+    /**
+     * Constructor with essential fields
+     */
+    public TrackSegment(String shuttleId, Date startTime) {
+        this();
+        this.shuttleId = shuttleId;
+        this.startTime = startTime;
+        this.endTime = startTime;
+    }
+
+    // Getters and Setters
+
+    public String getSegmentId() {
+        return segmentId;
+    }
+
+    public void setSegmentId(String segmentId) {
+        this.segmentId = segmentId;
+    }
+
+    public String getShuttleId() {
+        return shuttleId;
+    }
+
+    public void setShuttleId(String shuttleId) {
+        this.shuttleId = shuttleId;
+    }
+
+    public List<GeoPoint> getPoints() {
+        return points;
+    }
+
+    public void setPoints(List<GeoPoint> points) {
+        this.points = points;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public void setPointCount(int pointCount) {
+        this.pointCount = pointCount;
+    }
+
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Date startTime) {
+        this.startTime = startTime;
+    }
+
+    public Date getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(Date endTime) {
+        this.endTime = endTime;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    public void addPoint(GeoPoint point, Date time) {
+        if (points == null) points = new ArrayList<>();
+        points.add(point);
+        pointCount = points.size();
+        endTime = time;
+    }
+
+    public long getDurationMillis() {
+        if (startTime == null || endTime == null) return 0;
+        return endTime.getTime() - startTime.getTime();
+    }
+
+    @Override
+    public String toString() {
+        return "TrackSegment{" +
+                "shuttleId='" + shuttleId + '\'' +
+                ", points=" + pointCount +
+                ", start=" + startTime +
+                ", end=" + endTime +
+                '}';
+    }
+}
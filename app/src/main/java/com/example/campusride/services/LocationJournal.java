@@ -0,0 +1,240 @@
+package com.example.campusride.services;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.location.Location;
+import android.util.Log;
+import androidx.annotation.WorkerThread;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.GeoPoint;
+import com.example.campusride.models.TrackSegment;
+import com.example.campusride.utils.FirebaseHelper;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Append-only on-device journal for location fixes that could not be uploaded.
+ * Fixes live in SQLite, not on the heap, and are replayed oldest first in
+ * bounded batches of track segments once the connection returns.
+ */
+public class LocationJournal extends SQLiteOpenHelper {
+
+    private static final String TAG = "LocationJournal";
+
+    private static final String DATABASE_NAME = "location_journal.db";
+    private static final int DATABASE_VERSION = 1;
+    private static final String TABLE_FIXES = "fixes";
+
+    private static final int REPLAY_BATCH_SIZE = 200;
+    private static final int MAX_SEGMENT_POINTS = 100;
+    private static final long SEGMENT_GAP = 120000; // 2 minutes without fixes starts a new segment
+    private static final long REPLAY_TIMEOUT = 30000; // 30 seconds per batch
+    private static final int MAX_JOURNAL_SIZE = 50000; // oldest fixes are dropped beyond this
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean replaying = new AtomicBoolean(false);
+
+    public LocationJournal(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_FIXES + " (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "shuttle_id TEXT NOT NULL, " +
+                "latitude REAL NOT NULL, " +
+                "longitude REAL NOT NULL, " +
+                "time INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_fixes_shuttle ON " + TABLE_FIXES + " (shuttle_id, id)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_FIXES);
+        onCreate(db);
+    }
+
+    /**
+     * Append fixes to the journal on the journal's writer thread
+     */
+    public void append(String shuttleId, List<Location> fixes) {
+        if (fixes == null || fixes.isEmpty()) return;
+
+        // Copy out of the Location objects before handing off
+        int count = fixes.size();
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        long[] times = new long[count];
+        for (int i = 0; i < count; i++) {
+            Location fix = fixes.get(i);
+            latitudes[i] = fix.getLatitude();
+            longitudes[i] = fix.getLongitude();
+            times[i] = fix.getTime();
+        }
+
+        // Uploads still in flight when the service stops can fail after shutdown
+        if (!submit(() -> writeFixes(shuttleId, latitudes, longitudes, times))) {
+            Log.w(TAG, "Journal closed, dropped " + count + " fixes");
+        }
+    }
+
+    /**
+     * Replay the journal for a shuttle, oldest first, until it is empty or a batch fails
+     */
+    public void replay(String shuttleId, FirebaseHelper firebaseHelper) {
+        if (!replaying.compareAndSet(false, true)) return;
+
+        boolean submitted = submit(() -> {
+            try {
+                replayBatches(shuttleId, firebaseHelper);
+            } finally {
+                replaying.set(false);
+            }
+        });
+        if (!submitted) {
+            replaying.set(false);
+        }
+    }
+
+    /**
+     * Finish pending work and close the database
+     */
+    public void shutdown() {
+        submit(this::close);
+        executor.shutdown();
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Run a task on the writer thread
+     * @return false if the journal has been shut down
+     */
+    private boolean submit(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    @WorkerThread
+    private void writeFixes(String shuttleId, double[] latitudes, double[] longitudes, long[] times) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE_FIXES +
+                " (shuttle_id, latitude, longitude, time) VALUES (?, ?, ?, ?)");
+
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < times.length; i++) {
+                insert.clearBindings();
+                insert.bindString(1, shuttleId);
+                insert.bindDouble(2, latitudes[i]);
+                insert.bindDouble(3, longitudes[i]);
+                insert.bindLong(4, times[i]);
+                insert.executeInsert();
+            }
+
+            // Keep the journal bounded during very long outages
+            db.execSQL("DELETE FROM " + TABLE_FIXES + " WHERE id <= " +
+                    "(SELECT MAX(id) FROM " + TABLE_FIXES + ") - " + MAX_JOURNAL_SIZE);
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+
+        Log.d(TAG, "Journaled " + times.length + " fixes for shuttle: " + shuttleId);
+    }
+
+    @WorkerThread
+    private void replayBatches(String shuttleId, FirebaseHelper firebaseHelper) {
+        int replayed = 0;
+
+        while (true) {
+            List<TrackSegment> segments = new ArrayList<>();
+            long lastId = readBatch(shuttleId, segments);
+            if (segments.isEmpty()) break;
+
+            try {
+                Tasks.await(firebaseHelper.saveTrackSegments(shuttleId, segments),
+                        REPLAY_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                Log.w(TAG, "Journal replay paused: " + e.getMessage());
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            getWritableDatabase().delete(TABLE_FIXES, "shuttle_id = ? AND id <= ?",
+                    new String[]{shuttleId, String.valueOf(lastId)});
+            replayed += segments.size();
+        }
+
+        if (replayed > 0) {
+            Log.d(TAG, "Replayed " + replayed + " track segments for shuttle: " + shuttleId);
+        }
+    }
+
+    /**
+     * Read the oldest batch of fixes and collapse it into track segments
+     * @return id of the last fix read, or -1 if the journal is empty
+     */
+    @WorkerThread
+    private long readBatch(String shuttleId, List<TrackSegment> segments) {
+        long lastId = -1;
+        TrackSegment segment = null;
+        long previousTime = 0;
+
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT id, latitude, longitude, time FROM " + TABLE_FIXES +
+                        " WHERE shuttle_id = ? ORDER BY id LIMIT " + REPLAY_BATCH_SIZE,
+                new String[]{shuttleId})) {
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                long time = cursor.getLong(3);
+
+                boolean gap = segment != null && time - previousTime > SEGMENT_GAP;
+                if (segment == null || gap || segment.getPointCount() >= MAX_SEGMENT_POINTS) {
+                    segment = new TrackSegment(shuttleId, new Date(time));
+                    // Derived from the first fix so a retried batch overwrites instead of duplicating
+                    segment.setSegmentId(shuttleId + "_" + id);
+                    segments.add(segment);
+                }
+
+                segment.addPoint(new GeoPoint(cursor.getDouble(1), cursor.getDouble(2)), new Date(time));
+                previousTime = time;
+                lastId = id;
+            }
+        }
+
+        return lastId;
+    }
+
+    /**
+     * Get number of fixes waiting in the journal for a shuttle
+     */
+    @WorkerThread
+    public long getPendingCount(String shuttleId) {
+        return DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_FIXES,
+                "shuttle_id = ?", new String[]{shuttleId});
+    }
+}
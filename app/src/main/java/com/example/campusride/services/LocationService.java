@@ -7,10 +7,20 @@ import android.location.Location;
 import android.os.IBinder;
 import android.util.Log;
 import androidx.annotation.Nullable;
-import com.google.firebase.firestore.GeoPoint;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.example.campusride.data.DocumentMappers;
+import com.example.campusride.models.Route;
+import com.example.campusride.models.Shuttle;
+import com.example.campusride.models.Stop;
+import com.example.campusride.utils.ConnectivityMonitor;
 import com.example.campusride.utils.FirebaseHelper;
 import com.example.campusride.utils.LocationHelper;
 import com.example.campusride.utils.NotificationHelper;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Foreground Service for tracking driver location
@@ -23,6 +33,10 @@ public class LocationService extends Service {
     private LocationHelper locationHelper;
     private FirebaseHelper firebaseHelper;
     private NotificationHelper notificationHelper;
+    private LocationUploadPipeline uploadPipeline;
+    private LocationJournal locationJournal;
+    private ConnectivityMonitor connectivityMonitor;
+    private StopArrivalDetector arrivalDetector;
 
     private String driverId;
     private String shuttleId;
@@ -34,6 +48,8 @@ public class LocationService extends Service {
         locationHelper = new LocationHelper(this);
         firebaseHelper = new FirebaseHelper();
         notificationHelper = new NotificationHelper(this);
+        locationJournal = new LocationJournal(this);
+        connectivityMonitor = new ConnectivityMonitor(this);
 
         Log.d(TAG, "LocationService created");
     }
@@ -43,9 +59,11 @@ public class LocationService extends Service {
         if (intent != null) {
             driverId = intent.getStringExtra("driverId");
             shuttleId = intent.getStringExtra("shuttleId");
+            long uploadInterval = intent.getLongExtra("uploadInterval",
+                    LocationUploadPipeline.DEFAULT_UPLOAD_INTERVAL);
 
             if (driverId != null && shuttleId != null) {
-                startLocationTracking();
+                startLocationTracking(uploadInterval);
             } else {
                 Log.e(TAG, "Missing driverId or shuttleId");
                 stopSelf();
@@ -58,7 +76,9 @@ public class LocationService extends Service {
     /**
      * Start location tracking as foreground service
      */
-    private void startLocationTracking() {
+    private void startLocationTracking(long uploadInterval) {
+        if (isTracking) return;
+
         // Create foreground notification
         Notification notification = notificationHelper.createLocationServiceNotification(
                 "Driver",
@@ -68,8 +88,29 @@ public class LocationService extends Service {
         // Start as foreground service
         startForeground(NOTIFICATION_ID, notification);
 
-        // Start location updates
-        locationHelper.startLocationUpdates(new LocationHelper.LocationUpdateListener() {
+        // Buffer fixes and upload them on a fixed cadence
+        uploadPipeline = new LocationUploadPipeline(firebaseHelper, locationJournal,
+                shuttleId, uploadInterval);
+        uploadPipeline.setNetworkAvailable(connectivityMonitor.isConnected());
+        uploadPipeline.start();
+
+        // Spill to the journal while offline and replay it when the connection returns
+        connectivityMonitor.start(connected -> {
+            if (uploadPipeline != null) {
+                uploadPipeline.setNetworkAvailable(connected);
+            }
+            if (connected) {
+                locationJournal.replay(shuttleId, firebaseHelper);
+            }
+        });
+
+        // Replay anything left over from a previous session
+        if (connectivityMonitor.isConnected()) {
+            locationJournal.replay(shuttleId, firebaseHelper);
+        }
+
+        // Start location updates, sampled according to the shuttle's motion
+        locationHelper.startAdaptiveLocationUpdates(new LocationHelper.LocationUpdateListener() {
             @Override
             public void onLocationUpdate(Location location) {
                 handleLocationUpdate(location);
@@ -81,39 +122,123 @@ public class LocationService extends Service {
             }
         });
 
+        // Detect stop arrivals and departures along the assigned route
+        loadRouteStops();
+
         isTracking = true;
         Log.d(TAG, "Location tracking started for shuttle: " + shuttleId);
     }
 
+    /**
+     * Load the stops of the shuttle's current route, in driving order
+     */
+    private void loadRouteStops() {
+        firebaseHelper.getShuttle(shuttleId)
+                .addOnSuccessListener(shuttleDocument -> {
+                    Shuttle shuttle = DocumentMappers.toShuttle(shuttleDocument);
+                    if (shuttle == null || shuttle.getCurrentRoute() == null) {
+                        Log.d(TAG, "No route assigned, stop detection disabled");
+                        return;
+                    }
+
+                    firebaseHelper.getActiveRoutes()
+                            .addOnSuccessListener(routeSnapshots -> {
+                                Route route = null;
+                                for (DocumentSnapshot document : routeSnapshots.getDocuments()) {
+                                    Route candidate = DocumentMappers.toRoute(document);
+                                    // Shuttles name their route by display name; accept the id as well
+                                    if (candidate != null && (shuttle.getCurrentRoute().equals(candidate.getRouteName())
+                                            || shuttle.getCurrentRoute().equals(candidate.getRouteId()))) {
+                                        route = candidate;
+                                        break;
+                                    }
+                                }
+                                if (route != null) {
+                                    loadStopsForRoute(route);
+                                }
+                            })
+                            .addOnFailureListener(e -> Log.e(TAG, "Error loading routes", e));
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Error loading shuttle", e));
+    }
+
+    private void loadStopsForRoute(Route route) {
+        firebaseHelper.getActiveStops()
+                .addOnSuccessListener(stopSnapshots -> {
+                    Map<String, Stop> stopsById = new HashMap<>();
+                    for (DocumentSnapshot document : stopSnapshots.getDocuments()) {
+                        Stop stop = DocumentMappers.toStop(document);
+                        if (stop != null) stopsById.put(stop.getStopId(), stop);
+                    }
+
+                    List<Stop> routeStops = new ArrayList<>();
+                    for (String stopId : route.getStopIds()) {
+                        Stop stop = stopsById.get(stopId);
+                        if (stop != null) routeStops.add(stop);
+                    }
+
+                    if (isTracking && !routeStops.isEmpty()) {
+                        arrivalDetector = new StopArrivalDetector(routeStops, this::handleStopEvent);
+                        locationHelper.setRouteStops(routeStops);
+                        Log.d(TAG, "Detecting stops on " + route.getRouteName() + ": " + routeStops.size());
+                    }
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Error loading stops", e));
+    }
+
+    /**
+     * Publish a stop event with one write
+     */
+    private void handleStopEvent(StopArrivalDetector.StopEvent event) {
+        Log.d(TAG, "Stop event: " + event);
+
+        firebaseHelper.updateShuttleStopEvent(shuttleId,
+                event.getType().getValue(),
+                event.getStop().getStopId(),
+                event.getNextStop().getStopId(),
+                new Date(event.getTime()),
+                event.getDwellMillis() / 1000)
+                .addOnFailureListener(e -> Log.e(TAG, "Error writing stop event", e));
+    }
+
     /**
      * Handle location update
      */
     private void handleLocationUpdate(Location location) {
-        if (shuttleId == null) return;
+        if (shuttleId == null || uploadPipeline == null) return;
 
-        // Convert to GeoPoint
-        GeoPoint geoPoint = new GeoPoint(location.getLatitude(), location.getLongitude());
+        // Buffered until the next upload
+        uploadPipeline.offer(location);
 
-        // Update shuttle location in Firestore
-        firebaseHelper.updateShuttleLocation(shuttleId, geoPoint)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Location updated: " + location.getLatitude() + ", " + location.getLongitude());
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to update location: " + e.getMessage());
-                });
+        if (arrivalDetector != null) {
+            arrivalDetector.onLocation(location);
+        }
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
 
+        arrivalDetector = null;
+
         // Stop location updates
         if (isTracking) {
             locationHelper.stopLocationUpdates();
             isTracking = false;
+            Log.d(TAG, "GPS sampling: " + locationHelper.getSamplingStats());
         }
 
+        // Upload any buffered fixes
+        if (uploadPipeline != null) {
+            uploadPipeline.stop();
+            Log.d(TAG, "Uploads: " + uploadPipeline.getUploadCount()
+                    + ", skipped: " + uploadPipeline.getSkippedCount());
+            uploadPipeline = null;
+        }
+
+        connectivityMonitor.stop();
+        locationJournal.shutdown();
+
         Log.d(TAG, "LocationService destroyed");
     }
 
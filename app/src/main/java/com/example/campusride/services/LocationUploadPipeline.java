@@ -0,0 +1,269 @@
+package com.example.campusride.services;
+
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import com.google.firebase.firestore.GeoPoint;
+import com.example.campusride.models.Shuttle;
+import com.example.campusride.utils.FirebaseHelper;
+import com.example.campusride.utils.LocationHelper;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Buffers driver GPS fixes and uploads them on a fixed cadence.
+ * Each upload carries the latest position, speed and bearing plus a compact
+ * track of the fixes in between. Riders dead-reckon from the last upload, so
+ * an upload is skipped while that extrapolation is still close enough.
+ * While offline, fixes are spilled to the LocationJournal instead.
+ */
+public class LocationUploadPipeline {
+
+    private static final String TAG = "LocationUploadPipeline";
+
+    public static final long DEFAULT_UPLOAD_INTERVAL = 20000; // 20 seconds
+    private static final long HEARTBEAT_INTERVAL = 120000; // 2 minutes
+    private static final float MAX_EXTRAPOLATION_ERROR = 25; // 25 meters
+    private static final float MIN_SPEED = 0.7f; // m/s, slower is reported as standing still
+    private static final long MAX_VELOCITY_WINDOW = 30000; // 30 seconds
+    private static final float MIN_TRACK_SPACING = 10; // 10 meters
+    private static final int MAX_TRACK_POINTS = 10;
+    private static final int MAX_PENDING_FIXES = 120;
+
+    private final FirebaseHelper firebaseHelper;
+    private final LocationJournal journal;
+    private final String shuttleId;
+    private final long uploadInterval;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final List<Location> pendingFixes = new ArrayList<>();
+    private Location lastUploadedFix;
+    private double uploadedSpeed;
+    private float uploadedBearing;
+    private long lastUploadTime;
+    private final double[] predicted = new double[2];
+    private boolean uploadInFlight = false;
+    private boolean running = false;
+    private boolean networkAvailable = true;
+
+    // Statistics
+    private int uploadCount;
+    private int skippedCount;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+            if (running) {
+                handler.postDelayed(this, uploadInterval);
+            }
+        }
+    };
+
+    public LocationUploadPipeline(FirebaseHelper firebaseHelper, LocationJournal journal,
+                                  String shuttleId, long uploadInterval) {
+        this.firebaseHelper = firebaseHelper;
+        this.journal = journal;
+        this.shuttleId = shuttleId;
+        this.uploadInterval = uploadInterval > 0 ? uploadInterval : DEFAULT_UPLOAD_INTERVAL;
+    }
+
+    /**
+     * Start the periodic upload cadence
+     */
+    public void start() {
+        if (running) return;
+        running = true;
+        handler.postDelayed(flushTask, uploadInterval);
+    }
+
+    /**
+     * Stop the cadence and upload whatever is still buffered
+     */
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(flushTask);
+        flush();
+    }
+
+    /**
+     * Update network state; while offline, fixes go to the journal
+     */
+    public void setNetworkAvailable(boolean networkAvailable) {
+        this.networkAvailable = networkAvailable;
+    }
+
+    /**
+     * Buffer a fix until the next upload
+     */
+    public void offer(Location location) {
+        if (location == null) return;
+
+        if (pendingFixes.size() >= MAX_PENDING_FIXES) {
+            pendingFixes.remove(0);
+        }
+        pendingFixes.add(location);
+
+        // Upload the very first fix right away so riders see the shuttle
+        if (lastUploadedFix == null && !uploadInFlight && networkAvailable) {
+            flush();
+        }
+    }
+
+    /**
+     * Upload the buffered fixes as a single write
+     */
+    void flush() {
+        if (pendingFixes.isEmpty()) return;
+
+        // Offline: keep the fixes on disk rather than in memory
+        if (!networkAvailable && journal != null) {
+            journal.append(shuttleId, pendingFixes);
+            pendingFixes.clear();
+            return;
+        }
+
+        // Keep coalescing while the previous write is outstanding
+        if (uploadInFlight) return;
+
+        Location latest = pendingFixes.get(pendingFixes.size() - 1);
+        long now = SystemClock.elapsedRealtime();
+
+        if (!exceedsExtrapolationError(latest) && now - lastUploadTime < HEARTBEAT_INTERVAL) {
+            pendingFixes.clear();
+            skippedCount++;
+            return;
+        }
+
+        List<GeoPoint> track = buildTrack(pendingFixes);
+        List<Location> uploadedFixes = new ArrayList<>(pendingFixes);
+        pendingFixes.clear();
+
+        double speed = estimateSpeed(uploadedFixes, latest);
+        float bearing = estimateBearing(uploadedFixes, latest);
+
+        GeoPoint geoPoint = new GeoPoint(latest.getLatitude(), latest.getLongitude());
+        lastUploadedFix = latest;
+        uploadedSpeed = speed;
+        uploadedBearing = bearing;
+        lastUploadTime = now;
+        uploadInFlight = true;
+
+        firebaseHelper.updateShuttleTelemetry(shuttleId, geoPoint, speed, bearing,
+                        new Date(latest.getTime()), track)
+                .addOnSuccessListener(aVoid -> {
+                    uploadCount++;
+                    Log.d(TAG, "Location updated: " + latest.getLatitude() + ", "
+                            + latest.getLongitude() + " (+" + track.size() + " track points)");
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Failed to update location: " + e.getMessage());
+                    if (journal != null) {
+                        journal.append(shuttleId, uploadedFixes);
+                    }
+                })
+                .addOnCompleteListener(task -> uploadInFlight = false);
+    }
+
+    /**
+     * Check if riders extrapolating from the last upload would now be too far off
+     */
+    private boolean exceedsExtrapolationError(Location location) {
+        if (lastUploadedFix == null) return true;
+
+        // Mirror Shuttle.extrapolateLocation on the rider side
+        long elapsed = Math.max(0, Math.min(location.getTime() - lastUploadedFix.getTime(),
+                Shuttle.MAX_EXTRAPOLATION));
+        LocationHelper.destinationPoint(lastUploadedFix.getLatitude(), lastUploadedFix.getLongitude(),
+                uploadedBearing, uploadedSpeed * elapsed / 1000000.0, predicted);
+
+        double errorKm = LocationHelper.calculateDistance(predicted[0], predicted[1],
+                location.getLatitude(), location.getLongitude());
+        return errorKm * 1000 >= MAX_EXTRAPOLATION_ERROR;
+    }
+
+    /**
+     * Estimate speed in m/s, preferring the GPS-reported value
+     */
+    private double estimateSpeed(List<Location> fixes, Location latest) {
+        double speed = 0;
+        if (latest.hasSpeed()) {
+            speed = latest.getSpeed();
+        } else {
+            Location reference = findVelocityReference(fixes, latest);
+            if (reference != null) {
+                speed = reference.distanceTo(latest) * 1000.0 / (latest.getTime() - reference.getTime());
+            }
+        }
+        return speed >= MIN_SPEED ? speed : 0;
+    }
+
+    /**
+     * Estimate the direction of travel from recent movement
+     */
+    private float estimateBearing(List<Location> fixes, Location latest) {
+        Location reference = findVelocityReference(fixes, latest);
+        if (reference != null) {
+            return LocationHelper.calculateBearing(reference.getLatitude(), reference.getLongitude(),
+                    latest.getLatitude(), latest.getLongitude());
+        }
+        return latest.hasBearing() ? latest.getBearing() : uploadedBearing;
+    }
+
+    /**
+     * Find the most recent earlier fix far enough from the latest to measure movement
+     */
+    private Location findVelocityReference(List<Location> fixes, Location latest) {
+        for (int i = fixes.size() - 2; i >= -1; i--) {
+            Location fix = i >= 0 ? fixes.get(i) : lastUploadedFix;
+            if (fix == null) break;
+
+            long elapsed = latest.getTime() - fix.getTime();
+            if (elapsed > MAX_VELOCITY_WINDOW) break;
+            if (elapsed > 0 && fix.distanceTo(latest) >= MIN_TRACK_SPACING) {
+                return fix;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reduce the buffered fixes (excluding the latest) to a short, evenly spaced track
+     */
+    private List<GeoPoint> buildTrack(List<Location> fixes) {
+        List<Location> spaced = new ArrayList<>();
+        Location previous = lastUploadedFix;
+        for (int i = 0; i < fixes.size() - 1; i++) {
+            Location fix = fixes.get(i);
+            if (previous == null || previous.distanceTo(fix) >= MIN_TRACK_SPACING) {
+                spaced.add(fix);
+                previous = fix;
+            }
+        }
+
+        List<GeoPoint> track = new ArrayList<>(Math.min(spaced.size(), MAX_TRACK_POINTS));
+        if (spaced.size() <= MAX_TRACK_POINTS) {
+            for (Location fix : spaced) {
+                track.add(new GeoPoint(fix.getLatitude(), fix.getLongitude()));
+            }
+        } else {
+            double step = (double) spaced.size() / MAX_TRACK_POINTS;
+            for (int i = 0; i < MAX_TRACK_POINTS; i++) {
+                Location fix = spaced.get((int) (i * step));
+                track.add(new GeoPoint(fix.getLatitude(), fix.getLongitude()));
+            }
+        }
+        return track;
+    }
+
+    public int getUploadCount() {
+        return uploadCount;
+    }
+
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.campusride.services;
+
+import android.location.Location;
+import com.example.campusride.models.Stop;
+import com.example.campusride.utils.StopSpatialIndex;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Geofence state machine that turns driver location fixes into stop
+ * arrival and departure events along the assigned route.
+ * A shuttle arrives when it comes within ARRIVAL_RADIUS of a stop and
+ * departs once it is DEPARTURE_RADIUS away; the gap between the two radii
+ * keeps GPS jitter from producing repeated events. The expected next stop
+ * is checked first, and any other route stop resynchronizes the machine
+ * after a skipped stop or a mid-route start.
+ */
+public class StopArrivalDetector {
+
+    private static final double ARRIVAL_RADIUS = 40; // meters
+    private static final double DEPARTURE_RADIUS = 70; // meters
+    private static final float MAX_ACCURACY = 50; // meters, vaguer fixes are ignored
+
+    private final List<Stop> routeStops;
+    private final StopSpatialIndex stopIndex = new StopSpatialIndex();
+    private final Listener listener;
+
+    private int currentIndex = -1; // stop the shuttle is at, or -1 between stops
+    private int nextIndex = -1; // stop expected next, or -1 until the first arrival
+    private int lastDepartedIndex = -1;
+    private long arrivedAt;
+
+    /**
+     * Receives stop events as they are detected
+     */
+    public interface Listener {
+        void onStopEvent(StopEvent event);
+    }
+
+    /**
+     * Stop event types
+     */
+    public enum EventType {
+        ARRIVED("arrived"),
+        DEPARTED("departed");
+
+        private final String value;
+
+        EventType(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * An arrival at or departure from a stop
+     */
+    public static final class StopEvent {
+        private final EventType type;
+        private final Stop stop;
+        private final Stop nextStop;
+        private final long time;
+        private final long dwellMillis;
+
+        StopEvent(EventType type, Stop stop, Stop nextStop, long time, long dwellMillis) {
+            this.type = type;
+            this.stop = stop;
+            this.nextStop = nextStop;
+            this.time = time;
+            this.dwellMillis = dwellMillis;
+        }
+
+        public EventType getType() {
+            return type;
+        }
+
+        public Stop getStop() {
+            return stop;
+        }
+
+        /**
+         * The stop being served on arrival, the following stop on departure
+         */
+        public Stop getNextStop() {
+            return nextStop;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Time spent at the stop, zero for arrivals
+         */
+        public long getDwellMillis() {
+            return dwellMillis;
+        }
+
+        @Override
+        public String toString() {
+            return type.getValue() + " " + stop.getStopId() + " dwell=" + dwellMillis / 1000 + "s";
+        }
+    }
+
+    /**
+     * @param routeStops the route's stops in driving order
+     */
+    public StopArrivalDetector(List<Stop> routeStops, Listener listener) {
+        this.routeStops = new ArrayList<>(routeStops);
+        this.listener = listener;
+        for (Stop stop : this.routeStops) {
+            stopIndex.put(stop.getStopId(), stop);
+        }
+    }
+
+    /**
+     * Feed a location fix
+     */
+    public void onLocation(Location location) {
+        onLocation(location.getLatitude(), location.getLongitude(),
+                location.hasAccuracy() ? location.getAccuracy() : 0, location.getTime());
+    }
+
+    /**
+     * Feed a location fix by its parts
+     * @param accuracy in meters, or 0 if unknown
+     */
+    public void onLocation(double latitude, double longitude, float accuracy, long time) {
+        if (routeStops.isEmpty()) return;
+        if (accuracy > MAX_ACCURACY) return;
+
+        if (currentIndex >= 0) {
+            if (distanceMeters(routeStops.get(currentIndex), latitude, longitude) > DEPARTURE_RADIUS) {
+                depart(time);
+            }
+            return;
+        }
+
+        int arrivedIndex = -1;
+        if (nextIndex >= 0 && distanceMeters(routeStops.get(nextIndex), latitude, longitude) <= ARRIVAL_RADIUS) {
+            arrivedIndex = nextIndex;
+        } else {
+            for (Stop stop : stopIndex.withinRadius(latitude, longitude, ARRIVAL_RADIUS)) {
+                int index = indexOf(stop.getStopId());
+                // Drifting back into the stop just left is not a new arrival
+                if (index >= 0 && index != lastDepartedIndex) {
+                    arrivedIndex = index;
+                    break;
+                }
+            }
+        }
+
+        if (arrivedIndex >= 0) {
+            arrive(arrivedIndex, time);
+        }
+    }
+
+    /**
+     * Get the stop the shuttle is at or heading to, or null if unknown
+     */
+    public Stop getNextStop() {
+        if (currentIndex >= 0) return routeStops.get(currentIndex);
+        return nextIndex >= 0 ? routeStops.get(nextIndex) : null;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void arrive(int index, long time) {
+        currentIndex = index;
+        lastDepartedIndex = -1;
+        arrivedAt = time;
+        Stop stop = routeStops.get(index);
+        listener.onStopEvent(new StopEvent(EventType.ARRIVED, stop, stop, time, 0));
+    }
+
+    private void depart(long time) {
+        Stop stop = routeStops.get(currentIndex);
+        lastDepartedIndex = currentIndex;
+        nextIndex = (currentIndex + 1) % routeStops.size();
+        currentIndex = -1;
+        listener.onStopEvent(new StopEvent(EventType.DEPARTED, stop, routeStops.get(nextIndex), time,
+                Math.max(0, time - arrivedAt)));
+    }
+
+    /**
+     * Position of a stop on the route, searching forward from the expected
+     * next stop so routes that pass a stop twice resolve to the right visit
+     */
+    private int indexOf(String stopId) {
+        int count = routeStops.size();
+        int start = Math.max(nextIndex, 0);
+        for (int i = 0; i < count; i++) {
+            int index = (start + i) % count;
+            String id = routeStops.get(index).getStopId();
+            if (id != null && id.equals(stopId)) return index;
+        }
+        return -1;
+    }
+
+    private static double distanceMeters(Stop stop, double latitude, double longitude) {
+        return stop.distanceTo(latitude, longitude) * 1000;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.campusride.utils;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.os.Handler;
+import android.os.Looper;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Helper class for observing network connectivity changes
+ */
+public class ConnectivityMonitor {
+
+    private final ConnectivityManager connectivityManager;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Set<Network> availableNetworks = new HashSet<>();
+    private ConnectivityManager.NetworkCallback networkCallback;
+    private boolean connected;
+
+    public interface ConnectivityListener {
+        void onConnectivityChanged(boolean connected);
+    }
+
+    public ConnectivityMonitor(Context context) {
+        this.connectivityManager = (ConnectivityManager)
+                context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        this.connected = checkConnected();
+    }
+
+    /**
+     * Start observing, delivering changes on the main thread
+     */
+    public void start(ConnectivityListener listener) {
+        if (connectivityManager == null || networkCallback != null) return;
+
+        networkCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                mainHandler.post(() -> {
+                    availableNetworks.add(network);
+                    setConnected(true, listener);
+                });
+            }
+
+            @Override
+            public void onLost(Network network) {
+                mainHandler.post(() -> {
+                    availableNetworks.remove(network);
+                    setConnected(!availableNetworks.isEmpty(), listener);
+                });
+            }
+        };
+
+        NetworkRequest request = new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build();
+        connectivityManager.registerNetworkCallback(request, networkCallback);
+    }
+
+    /**
+     * Stop observing
+     */
+    public void stop() {
+        if (connectivityManager != null && networkCallback != null) {
+            connectivityManager.unregisterNetworkCallback(networkCallback);
+        }
+        networkCallback = null;
+        mainHandler.removeCallbacksAndMessages(null);
+        availableNetworks.clear();
+    }
+
+    /**
+     * Check if a network connection is currently available
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    private void setConnected(boolean connected, ConnectivityListener listener) {
+        if (this.connected == connected) return;
+        this.connected = connected;
+        listener.onConnectivityChanged(connected);
+    }
+
+    @SuppressWarnings("deprecation")
+    private boolean checkConnected() {
+        if (connectivityManager == null) return true;
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.campusride.utils;
+
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.WorkerThread;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.example.campusride.data.DocumentMappers;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares reflection-based toObject() decoding with the hand-written mappers.
+ * Enable on a device with: adb shell setprop log.tag.DecodeBenchmark DEBUG
+ */
+public class DecodeBenchmark {
+
+    public static final String TAG = "DecodeBenchmark";
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 10;
+
+    /**
+     * Result of one benchmark run, in nanoseconds per document
+     */
+    public static class Result {
+        private final String label;
+        private final int documentCount;
+        private final double reflectionNanosPerDoc;
+        private final double mapperNanosPerDoc;
+
+        Result(String label, int documentCount, double reflectionNanosPerDoc, double mapperNanosPerDoc) {
+            this.label = label;
+            this.documentCount = documentCount;
+            this.reflectionNanosPerDoc = reflectionNanosPerDoc;
+            this.mapperNanosPerDoc = mapperNanosPerDoc;
+        }
+
+        public double getReflectionNanosPerDoc() {
+            return reflectionNanosPerDoc;
+        }
+
+        public double getMapperNanosPerDoc() {
+            return mapperNanosPerDoc;
+        }
+
+        public double getSpeedup() {
+            return mapperNanosPerDoc > 0 ? reflectionNanosPerDoc / mapperNanosPerDoc : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %d docs, toObject %.1f us/doc, mapper %.1f us/doc (%.1fx)",
+                    label, documentCount, reflectionNanosPerDoc / 1000, mapperNanosPerDoc / 1000, getSpeedup());
+        }
+    }
+
+    /**
+     * Check if benchmarking was switched on for this device
+     */
+    public static boolean isEnabled() {
+        return Log.isLoggable(TAG, Log.DEBUG);
+    }
+
+    /**
+     * Decode the same documents with both decoders and log the throughput
+     */
+    @WorkerThread
+    public static <T> Result run(String label, List<DocumentSnapshot> documents, Class<T> modelClass,
+                                 DocumentMappers.DocumentMapper<T> mapper) {
+        if (documents.isEmpty()) return new Result(label, 0, 0, 0);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            decodeWithReflection(documents, modelClass);
+            decodeWithMapper(documents, mapper);
+        }
+
+        long reflectionNanos = 0;
+        long mapperNanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            decodeWithReflection(documents, modelClass);
+            long middle = SystemClock.elapsedRealtimeNanos();
+            decodeWithMapper(documents, mapper);
+            mapperNanos += SystemClock.elapsedRealtimeNanos() - middle;
+            reflectionNanos += middle - start;
+        }
+
+        double decoded = (double) documents.size() * MEASURED_ROUNDS;
+        Result result = new Result(label, documents.size(), reflectionNanos / decoded, mapperNanos / decoded);
+        Log.d(TAG, result.toString());
+        return result;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static <T> int decodeWithReflection(List<DocumentSnapshot> documents, Class<T> modelClass) {
+        int decoded = 0;
+        for (DocumentSnapshot document : documents) {
+            if (document.toObject(modelClass) != null) decoded++;
+        }
+        return decoded;
+    }
+
+    private static <T> int decodeWithMapper(List<DocumentSnapshot> documents,
+                                            DocumentMappers.DocumentMapper<T> mapper) {
+        int decoded = 0;
+        for (DocumentSnapshot document : documents) {
+            if (mapper.map(document) != null) decoded++;
+        }
+        return decoded;
+    }
+}
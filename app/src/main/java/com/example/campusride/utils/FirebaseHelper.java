@@ -1,17 +1,20 @@
 package com.example.campusride.utils;
 
 import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.GeoPoint;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.example.campusride.data.DocumentMappers;
 import com.example.campusride.models.Driver;
 import com.example.campusride.models.Report;
 import com.example.campusride.models.Route;
 import com.example.campusride.models.Shuttle;
 import com.example.campusride.models.Stop;
+import com.example.campusride.models.TrackSegment;
 import com.example.campusride.models.User;
 import java.util.Date;
 import java.util.HashMap;
@@ -31,6 +34,7 @@ public class FirebaseHelper {
     public static final String COLLECTION_STOPS = "stops";
     public static final String COLLECTION_ROUTES = "routes";
     public static final String COLLECTION_REPORTS = "reports";
+    public static final String SUBCOLLECTION_TRACK = "track";
 
     public FirebaseHelper() {
         this.db = FirebaseFirestore.getInstance();
@@ -113,6 +117,63 @@ public class FirebaseHelper {
                 .update(updates);
     }
 
+    /**
+     * Update shuttle location, velocity and the track of fixes recorded
+     * since the previous upload, in a single write
+     */
+    public Task<Void> updateShuttleTelemetry(String shuttleId, GeoPoint location, double speed,
+                                             float bearing, Date fixTime,
+                                             java.util.List<GeoPoint> recentTrack) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("currentLocation", location);
+        updates.put("latitude", location.getLatitude());
+        updates.put("longitude", location.getLongitude());
+        updates.put("speed", speed);
+        updates.put("bearing", bearing);
+        updates.put("fixTime", fixTime);
+        updates.put("recentTrack", recentTrack);
+        updates.put("lastUpdated", new Date());
+
+        return db.collection(COLLECTION_SHUTTLES)
+                .document(shuttleId)
+                .update(updates);
+    }
+
+    /**
+     * Record a stop arrival or departure and the stop the shuttle heads to next, in a single write
+     */
+    public Task<Void> updateShuttleStopEvent(String shuttleId, String event, String stopId,
+                                             String nextStopId, Date eventTime, long dwellSeconds) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("stopEvent", event);
+        updates.put("lastStop", stopId);
+        updates.put("nextStop", nextStopId);
+        updates.put("stopEventTime", eventTime);
+        updates.put("dwellSeconds", dwellSeconds);
+
+        return db.collection(COLLECTION_SHUTTLES)
+                .document(shuttleId)
+                .update(updates);
+    }
+
+    /**
+     * Save recorded track segments for a shuttle in a single batch
+     */
+    public Task<Void> saveTrackSegments(String shuttleId, java.util.List<TrackSegment> segments) {
+        com.google.firebase.firestore.WriteBatch batch = db.batch();
+        CollectionReference tracks = db.collection(COLLECTION_SHUTTLES)
+                .document(shuttleId)
+                .collection(SUBCOLLECTION_TRACK);
+
+        for (TrackSegment segment : segments) {
+            DocumentReference ref = segment.getSegmentId() != null ?
+                    tracks.document(segment.getSegmentId()) : tracks.document();
+            batch.set(ref, segment);
+        }
+
+        return batch.commit();
+    }
+
     /**
      * Update shuttle status
      */
@@ -239,7 +300,7 @@ public class FirebaseHelper {
                 .get()
                 .continueWithTask(task -> {
                     if (task.isSuccessful() && task.getResult() != null) {
-                        Driver driver = task.getResult().toObject(Driver.class);
+                        Driver driver = DocumentMappers.toDriver(task.getResult());
                         if (driver != null) {
                             driver.incrementTripCount();
                             return db.collection(COLLECTION_DRIVERS)
@@ -0,0 +1,131 @@
+package com.example.campusride.utils;
+
+import com.google.firebase.firestore.GeoPoint;
+
+/**
+ * Distance, bearing and travel time math on latitude and longitude.
+ * Free of Android classes, so ETA code built on it also runs in plain
+ * JVM unit tests.
+ */
+public final class GeoUtils {
+
+    private static final int EARTH_RADIUS = 6371; // Radius in kilometers
+    private static final double DEFAULT_SPEED_KMH = 30;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Calculate distance between two points using Haversine formula
+     * @return distance in kilometers
+     */
+    public static double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return EARTH_RADIUS * c;
+    }
+
+    /**
+     * Calculate ETA based on distance and average speed
+     * @param distanceKm distance in kilometers
+     * @param averageSpeedKmh average speed in km/h
+     * @return ETA in minutes
+     */
+    public static int calculateETA(double distanceKm, double averageSpeedKmh) {
+        if (distanceKm <= 0) return 0;
+        double hours = distanceKm / averageSpeedKmh;
+        return (int) Math.ceil(hours * 60); // Convert to minutes
+    }
+
+    /**
+     * Calculate ETA with default speed of 30 km/h
+     */
+    public static int calculateETA(double distanceKm) {
+        return calculateETA(distanceKm, DEFAULT_SPEED_KMH);
+    }
+
+    /**
+     * Calculate ETA for one stop-to-stop segment from learned travel times at
+     * the given time, falling back to the default speed for unknown segments
+     * @return ETA in minutes
+     */
+    public static int calculateETA(RouteEtaEngine.TravelTimes travelTimes, String fromStopId, String toStopId,
+                                   double distanceKm, long timeMillis) {
+        double seconds = travelTimes != null ? travelTimes.travelSeconds(fromStopId, toStopId, timeMillis) : -1;
+        return seconds >= 0 ? (int) Math.ceil(seconds / 60) : calculateETA(distanceKm);
+    }
+
+    /**
+     * Calculate ETA for one stop-to-stop segment from its typical learned
+     * travel time, falling back to the default speed for unknown segments
+     * @return ETA in minutes
+     */
+    public static int calculateETA(RouteEtaEngine.TravelTimes travelTimes, String fromStopId, String toStopId,
+                                   double distanceKm) {
+        double seconds = travelTimes != null ? travelTimes.typicalSeconds(fromStopId, toStopId) : -1;
+        return seconds >= 0 ? (int) Math.ceil(seconds / 60) : calculateETA(distanceKm);
+    }
+
+    /**
+     * Calculate travel time at the default speed of 30 km/h
+     * @return travel time in seconds
+     */
+    public static double travelSeconds(double distanceKm) {
+        return distanceKm / DEFAULT_SPEED_KMH * 3600;
+    }
+
+    /**
+     * Get the point reached by travelling a distance along a bearing
+     * @param distanceKm distance in kilometers
+     * @param out receives latitude and longitude, in that order
+     */
+    public static void destinationPoint(double latitude, double longitude, double bearing,
+                                        double distanceKm, double[] out) {
+        double angularDistance = distanceKm / EARTH_RADIUS;
+        double bearingRad = Math.toRadians(bearing);
+        double lat1 = Math.toRadians(latitude);
+        double lon1 = Math.toRadians(longitude);
+
+        double lat2 = Math.asin(Math.sin(lat1) * Math.cos(angularDistance) +
+                Math.cos(lat1) * Math.sin(angularDistance) * Math.cos(bearingRad));
+        double lon2 = lon1 + Math.atan2(
+                Math.sin(bearingRad) * Math.sin(angularDistance) * Math.cos(lat1),
+                Math.cos(angularDistance) - Math.sin(lat1) * Math.sin(lat2));
+
+        out[0] = Math.toDegrees(lat2);
+        out[1] = Math.toDegrees(lon2);
+    }
+
+    /**
+     * Get the point reached by travelling a distance along a bearing
+     * @param distanceKm distance in kilometers
+     */
+    public static GeoPoint destinationPoint(GeoPoint start, double bearing, double distanceKm) {
+        double[] out = new double[2];
+        destinationPoint(start.getLatitude(), start.getLongitude(), bearing, distanceKm, out);
+        return new GeoPoint(out[0], out[1]);
+    }
+
+    /**
+     * Get bearing between two points (direction in degrees)
+     */
+    public static float calculateBearing(double lat1, double lon1, double lat2, double lon2) {
+        double dLon = Math.toRadians(lon2 - lon1);
+        double lat1Rad = Math.toRadians(lat1);
+        double lat2Rad = Math.toRadians(lat2);
+
+        double y = Math.sin(dLon) * Math.cos(lat2Rad);
+        double x = Math.cos(lat1Rad) * Math.sin(lat2Rad) -
+                Math.sin(lat1Rad) * Math.cos(lat2Rad) * Math.cos(dLon);
+
+        double bearing = Math.toDegrees(Math.atan2(y, x));
+        return (float) ((bearing + 360) % 360);
+    }
+}
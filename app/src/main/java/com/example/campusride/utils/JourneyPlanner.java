@@ -0,0 +1,470 @@
+package com.example.campusride.utils;
+
+import com.example.campusride.models.Stop;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Round-based (RAPTOR) journey planner over the compiled timetables.
+ * Stop and route ids are interned to ints at build time and the network is
+ * stored in flat arrays; round k finds the earliest arrival at every stop
+ * using at most k shuttles. Routes are treated as loops, so a rider can
+ * stay on past the last stop and round to the first. Short walks between
+ * nearby stops count as transfers. Live ETAs at the origin, when given,
+ * replace the timetable for the first boarding, so a late or early shuttle
+ * shifts the whole journey.
+ * Search buffers are reused across queries, so an instance must only be
+ * queried from one thread at a time.
+ */
+public class JourneyPlanner {
+
+    public static final int MAX_TRANSFERS = 3;
+
+    private static final int MAX_ROUNDS = MAX_TRANSFERS + 1;
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    private static final int NO_PARENT = -1;
+    private static final int WALK = -2;
+
+    private static final int TRANSFER_MINUTES = 1; // to change shuttles at the same stop
+    private static final double MAX_WALK = 300; // meters
+    private static final double WALK_SPEED_KMH = 4.5;
+
+    // Interned ids
+    private final String[] stopIds;
+    private final Map<String, Integer> stopIndex = new HashMap<>();
+    private final String[] routeIds;
+    private final Map<String, Integer> routeIndex = new HashMap<>();
+
+    // Per route: stop pattern (one lap plus a second lap for riding round),
+    // offset of each position from the first-stop departure, and departure table
+    private final int[][] routeStops;
+    private final int[][] routeOffsets;
+    private final int[][] routeWeekday;
+    private final int[][] routeWeekend;
+    private final int[] lapLength;
+
+    // Per stop, the routes serving it (CSR): route and position in that route
+    private final int[] stopRouteStart;
+    private final int[] stopRouteRoute;
+    private final int[] stopRoutePosition;
+
+    // Per stop, footpaths to nearby stops (CSR)
+    private final int[] footStart;
+    private final int[] footTarget;
+    private final int[] footMinutes;
+
+    // Search buffers, reused across queries
+    private final int[] best;
+    private final int[] arrivals; // [round * stops + stop]
+    private final int[] parentRoute; // route index, WALK or NO_PARENT
+    private final int[] parentStop; // boarding stop, or walk origin
+    private final int[] parentDeparture;
+    private final boolean[] marked;
+    private final int[] markedStops;
+    private int markedCount;
+    private final int[] queuedPosition; // earliest position to scan per route, or -1
+    private final int[] queuedRoutes;
+    private int queuedCount;
+    private final int[] liveBoarding; // per route, when the next live shuttle reaches the origin, or -1
+
+    /**
+     * One ride or walk
+     */
+    public static final class Leg {
+        private final String routeId; // null for walks
+        private final String fromStopId;
+        private final String toStopId;
+        private final int departMinute;
+        private final int arriveMinute;
+
+        Leg(String routeId, String fromStopId, String toStopId, int departMinute, int arriveMinute) {
+            this.routeId = routeId;
+            this.fromStopId = fromStopId;
+            this.toStopId = toStopId;
+            this.departMinute = departMinute;
+            this.arriveMinute = arriveMinute;
+        }
+
+        public String getRouteId() {
+            return routeId;
+        }
+
+        public String getFromStopId() {
+            return fromStopId;
+        }
+
+        public String getToStopId() {
+            return toStopId;
+        }
+
+        public int getDepartMinute() {
+            return departMinute;
+        }
+
+        public int getArriveMinute() {
+            return arriveMinute;
+        }
+
+        public boolean isWalk() {
+            return routeId == null;
+        }
+    }
+
+    /**
+     * A way from origin to destination
+     */
+    public static final class Journey {
+        private final List<Leg> legs;
+        private final int rides;
+
+        Journey(List<Leg> legs, int rides) {
+            this.legs = Collections.unmodifiableList(legs);
+            this.rides = rides;
+        }
+
+        public List<Leg> getLegs() {
+            return legs;
+        }
+
+        public int getArriveMinute() {
+            return legs.isEmpty() ? -1 : legs.get(legs.size() - 1).getArriveMinute();
+        }
+
+        public int getTransfers() {
+            return Math.max(0, rides - 1);
+        }
+    }
+
+    /**
+     * Build the network; run this off the main thread
+     */
+    public JourneyPlanner(Collection<Timetable> timetables, Map<String, Stop> stopsById) {
+        // Intern every stop that some route serves
+        List<String> stops = new ArrayList<>();
+        for (Timetable timetable : timetables) {
+            for (int i = 0; i < timetable.getStopCount(); i++) {
+                String stopId = timetable.getStopId(i);
+                if (!stopIndex.containsKey(stopId)) {
+                    stopIndex.put(stopId, stops.size());
+                    stops.add(stopId);
+                }
+            }
+        }
+        stopIds = stops.toArray(new String[0]);
+        int stopCount = stopIds.length;
+
+        List<Timetable> usable = new ArrayList<>();
+        for (Timetable timetable : timetables) {
+            if (timetable.getStopCount() >= 2) usable.add(timetable);
+        }
+        int routeCount = usable.size();
+        routeIds = new String[routeCount];
+        routeStops = new int[routeCount][];
+        routeOffsets = new int[routeCount][];
+        routeWeekday = new int[routeCount][];
+        routeWeekend = new int[routeCount][];
+        lapLength = new int[routeCount];
+
+        int[] servingCount = new int[stopCount];
+        for (int r = 0; r < routeCount; r++) {
+            Timetable timetable = usable.get(r);
+            int lap = timetable.getStopCount();
+            routeIds[r] = timetable.getRouteId();
+            routeIndex.put(routeIds[r], r);
+            lapLength[r] = lap;
+            routeWeekday[r] = timetable.departureTable(false);
+            routeWeekend[r] = timetable.departureTable(true);
+
+            // Second lap lets riders stay on past the last stop
+            routeStops[r] = new int[lap * 2 - 1];
+            routeOffsets[r] = new int[lap * 2 - 1];
+            for (int p = 0; p < routeStops[r].length; p++) {
+                int i = p % lap;
+                routeStops[r][p] = stopIndex.get(timetable.getStopId(i));
+                routeOffsets[r][p] = timetable.getStopOffset(i) + (p >= lap ? timetable.getLoopMinutes() : 0);
+            }
+            for (int p = 0; p < lap; p++) {
+                servingCount[routeStops[r][p]]++;
+            }
+        }
+
+        stopRouteStart = new int[stopCount + 1];
+        for (int s = 0; s < stopCount; s++) {
+            stopRouteStart[s + 1] = stopRouteStart[s] + servingCount[s];
+        }
+        stopRouteRoute = new int[stopRouteStart[stopCount]];
+        stopRoutePosition = new int[stopRouteStart[stopCount]];
+        int[] fill = Arrays.copyOf(stopRouteStart, stopCount);
+        for (int r = 0; r < routeCount; r++) {
+            for (int p = 0; p < lapLength[r]; p++) {
+                int s = routeStops[r][p];
+                stopRouteRoute[fill[s]] = r;
+                stopRoutePosition[fill[s]] = p;
+                fill[s]++;
+            }
+        }
+
+        // Footpaths between served stops within walking distance
+        StopSpatialIndex spatialIndex = new StopSpatialIndex();
+        for (String stopId : stopIds) {
+            Stop stop = stopsById.get(stopId);
+            if (stop != null) spatialIndex.put(stopId, stop);
+        }
+        List<int[]> footpaths = new ArrayList<>();
+        footStart = new int[stopCount + 1];
+        for (int s = 0; s < stopCount; s++) {
+            Stop stop = stopsById.get(stopIds[s]);
+            if (stop != null) {
+                for (Stop nearby : spatialIndex.withinRadius(stop.getLatitude(), stop.getLongitude(), MAX_WALK)) {
+                    Integer target = stopIndex.get(nearby.getStopId());
+                    if (target == null || target == s) continue;
+                    int minutes = (int) Math.ceil(stop.distanceTo(nearby) / WALK_SPEED_KMH * 60);
+                    footpaths.add(new int[]{target, Math.max(1, minutes)});
+                }
+            }
+            footStart[s + 1] = footpaths.size();
+        }
+        footTarget = new int[footpaths.size()];
+        footMinutes = new int[footpaths.size()];
+        for (int i = 0; i < footpaths.size(); i++) {
+            footTarget[i] = footpaths.get(i)[0];
+            footMinutes[i] = footpaths.get(i)[1];
+        }
+
+        int cells = (MAX_ROUNDS + 1) * stopCount;
+        best = new int[stopCount];
+        arrivals = new int[cells];
+        parentRoute = new int[cells];
+        parentStop = new int[cells];
+        parentDeparture = new int[cells];
+        marked = new boolean[stopCount];
+        markedStops = new int[stopCount];
+        queuedPosition = new int[routeCount];
+        queuedRoutes = new int[routeCount];
+        liveBoarding = new int[routeCount];
+    }
+
+    public boolean hasStop(String stopId) {
+        return stopIndex.containsKey(stopId);
+    }
+
+    /**
+     * Plan from one stop to another, leaving at or after a time
+     * @return the fastest journey for each number of transfers that arrives
+     * earlier than all journeys with fewer transfers; empty if unreachable
+     */
+    public List<Journey> plan(String originId, String destinationId, int departMinute, boolean weekend) {
+        return plan(originId, destinationId, departMinute, weekend, Collections.emptyMap());
+    }
+
+    /**
+     * Plan from one stop to another, boarding the first shuttle from live ETAs
+     * @param liveDepartures per route id, the minute the next shuttle on that
+     * route reaches the origin, such as departMinute plus the minutes from
+     * EtaTracker.getLiveEtasByRoute(); other routes use their timetable
+     */
+    public List<Journey> plan(String originId, String destinationId, int departMinute, boolean weekend,
+                              Map<String, Integer> liveDepartures) {
+        Integer origin = stopIndex.get(originId);
+        Integer destination = stopIndex.get(destinationId);
+        if (origin == null || destination == null || origin.equals(destination)) {
+            return Collections.emptyList();
+        }
+
+        Arrays.fill(liveBoarding, -1);
+        for (Map.Entry<String, Integer> live : liveDepartures.entrySet()) {
+            Integer r = routeIndex.get(live.getKey());
+            if (r != null && live.getValue() != null && live.getValue() >= departMinute) {
+                liveBoarding[r] = live.getValue();
+            }
+        }
+
+        search(origin, destination, departMinute, weekend);
+
+        List<Journey> journeys = new ArrayList<>();
+        int stopCount = stopIds.length;
+        int previousBest = UNREACHED;
+        for (int round = 1; round <= MAX_ROUNDS; round++) {
+            int arrival = arrivals[round * stopCount + destination];
+            if (arrival < previousBest) {
+                journeys.add(reconstruct(round, destination));
+                previousBest = arrival;
+            }
+        }
+        return journeys;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void search(int origin, int destination, int departMinute, boolean weekend) {
+        int stopCount = stopIds.length;
+        Arrays.fill(best, UNREACHED);
+        Arrays.fill(arrivals, UNREACHED);
+        Arrays.fill(parentRoute, NO_PARENT);
+        Arrays.fill(queuedPosition, -1);
+        Arrays.fill(marked, false);
+        markedCount = 0;
+        queuedCount = 0;
+
+        arrivals[origin] = departMinute;
+        best[origin] = departMinute;
+        mark(origin);
+        relaxFootpaths(0);
+
+        for (int round = 1; round <= MAX_ROUNDS && markedCount > 0; round++) {
+            int previousRow = (round - 1) * stopCount;
+            int row = round * stopCount;
+
+            // Routes serving a stop improved in the last round, from the earliest such stop
+            for (int i = 0; i < markedCount; i++) {
+                int s = markedStops[i];
+                marked[s] = false;
+                for (int j = stopRouteStart[s]; j < stopRouteStart[s + 1]; j++) {
+                    int r = stopRouteRoute[j];
+                    int p = stopRoutePosition[j];
+                    if (queuedPosition[r] < 0) {
+                        queuedRoutes[queuedCount++] = r;
+                        queuedPosition[r] = p;
+                    } else if (p < queuedPosition[r]) {
+                        queuedPosition[r] = p;
+                    }
+                }
+            }
+            markedCount = 0;
+
+            for (int q = 0; q < queuedCount; q++) {
+                int r = queuedRoutes[q];
+                scanRoute(r, queuedPosition[r], weekend, previousRow, row, round, origin, destination);
+                queuedPosition[r] = -1;
+            }
+            queuedCount = 0;
+
+            relaxFootpaths(round);
+        }
+    }
+
+    /**
+     * Ride a route from a position, boarding the earliest catchable trip and
+     * improving arrivals further along
+     */
+    private void scanRoute(int r, int fromPosition, boolean weekend, int previousRow, int row, int round,
+                           int origin, int destination) {
+        int[] table = weekend ? routeWeekend[r] : routeWeekday[r];
+        if (table.length == 0) return;
+
+        int[] pattern = routeStops[r];
+        int[] offsets = routeOffsets[r];
+        int tripBase = -1; // first-stop departure of the trip being ridden
+        int boardStop = -1;
+        int boardDeparture = 0;
+
+        for (int p = fromPosition; p < pattern.length; p++) {
+            int s = pattern[p];
+
+            if (tripBase >= 0) {
+                int arrival = tripBase + offsets[p];
+                // Prune against the best known arrival here and at the destination
+                if (arrival < best[s] && arrival < best[destination]) {
+                    arrivals[row + s] = arrival;
+                    best[s] = arrival;
+                    parentRoute[row + s] = r;
+                    parentStop[row + s] = boardStop;
+                    parentDeparture[row + s] = boardDeparture;
+                    mark(s);
+                }
+            }
+
+            // Board or switch to an earlier trip, within the first lap only
+            int ready = arrivals[previousRow + s];
+            if (p < lapLength[r] && round == 1 && s == origin && liveBoarding[r] >= 0) {
+                // The shuttle already on its way, wherever the timetable says it should be
+                int liveBase = liveBoarding[r] - offsets[p];
+                if (tripBase < 0 || liveBase < tripBase) {
+                    tripBase = liveBase;
+                    boardStop = s;
+                    boardDeparture = liveBoarding[r];
+                }
+            } else if (p < lapLength[r] && ready != UNREACHED) {
+                int earliest = ready + (round > 1 ? TRANSFER_MINUTES : 0) - offsets[p];
+                if (tripBase < 0 || earliest < tripBase) {
+                    int index = firstAtOrAfter(table, earliest);
+                    if (index < table.length && (tripBase < 0 || table[index] < tripBase)) {
+                        tripBase = table[index];
+                        boardStop = s;
+                        boardDeparture = tripBase + offsets[p];
+                    }
+                }
+            }
+        }
+    }
+
+    private void relaxFootpaths(int round) {
+        int row = round * stopIds.length;
+        int count = markedCount;
+        for (int i = 0; i < count; i++) {
+            int s = markedStops[i];
+            // Walking twice in a row is never needed
+            if (parentRoute[row + s] == WALK) continue;
+
+            for (int j = footStart[s]; j < footStart[s + 1]; j++) {
+                int target = footTarget[j];
+                int arrival = arrivals[row + s] + footMinutes[j];
+                if (arrival < best[target]) {
+                    arrivals[row + target] = arrival;
+                    best[target] = arrival;
+                    parentRoute[row + target] = WALK;
+                    parentStop[row + target] = s;
+                    parentDeparture[row + target] = arrivals[row + s];
+                    mark(target);
+                }
+            }
+        }
+    }
+
+    private void mark(int s) {
+        if (!marked[s]) {
+            marked[s] = true;
+            markedStops[markedCount++] = s;
+        }
+    }
+
+    private Journey reconstruct(int round, int destination) {
+        int stopCount = stopIds.length;
+        List<Leg> legs = new ArrayList<>();
+        int rides = 0;
+        int s = destination;
+
+        while (round >= 0) {
+            int cell = round * stopCount + s;
+            int route = parentRoute[cell];
+            if (route == NO_PARENT) break;
+
+            int from = parentStop[cell];
+            if (route == WALK) {
+                legs.add(new Leg(null, stopIds[from], stopIds[s], parentDeparture[cell], arrivals[cell]));
+            } else {
+                legs.add(new Leg(routeIds[route], stopIds[from], stopIds[s], parentDeparture[cell], arrivals[cell]));
+                rides++;
+                round--;
+            }
+            s = from;
+        }
+
+        Collections.reverse(legs);
+        return new Journey(legs, rides);
+    }
+
+    private static int firstAtOrAfter(int[] table, int value) {
+        int index = Arrays.binarySearch(table, value);
+        if (index < 0) return -index - 1;
+        while (index > 0 && table[index - 1] == value) index--;
+        return index;
+    }
+}
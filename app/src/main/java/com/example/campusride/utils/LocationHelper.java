@@ -5,6 +5,7 @@ import android.content.Context;
 import android.content.pm.PackageManager;
 import android.location.Location;
 import android.os.Looper;
+import android.os.SystemClock;
 import androidx.core.content.ContextCompat;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationCallback;
@@ -13,6 +14,9 @@ import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
 import com.google.firebase.firestore.GeoPoint;
+import com.example.campusride.models.Stop;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Helper class for location-related operations
@@ -23,13 +27,124 @@ public class LocationHelper {
     private static final int FASTEST_INTERVAL = 15000; // 15 seconds
     private static final float MIN_DISTANCE = 10; // 10 meters
 
+    // Adaptive sampling thresholds
+    private static final float STATIONARY_SPEED = 0.7f; // m/s, below this the shuttle is dwelling
+    private static final long STATIONARY_DELAY = 60000; // 1 minute of dwelling before slowing down
+    private static final float TURNING_ANGLE = 30; // degrees between consecutive headings
+    private static final float APPROACH_DISTANCE = 300; // meters from any stop on the route
+    private static final int MODE_CONFIRMATIONS = 2; // fixes agreeing before stepping down
+
     private final Context context;
     private final FusedLocationProviderClient fusedLocationClient;
     private LocationCallback locationCallback;
 
+    // Adaptive sampling state
+    private boolean adaptiveSampling = false;
+    private SamplingMode samplingMode = SamplingMode.BALANCED;
+    private SamplingMode candidateMode;
+    private int candidateCount;
+    private long modeStartTime;
+    private long stationarySince;
+    private Location previousFix;
+    private float previousHeading = -1;
+    private final StopSpatialIndex routeStops = new StopSpatialIndex();
+    private final SamplingStats samplingStats = new SamplingStats();
+
+    /**
+     * GPS sampling modes used by adaptive location updates
+     */
+    public enum SamplingMode {
+        HIGH_RATE(Priority.PRIORITY_HIGH_ACCURACY, 5000, 2000, 5),
+        BALANCED(Priority.PRIORITY_BALANCED_POWER_ACCURACY, 20000, 10000, 15),
+        // Still GPS, so the first fix after leaving a stop is accurate enough to count as a departure
+        STATIONARY(Priority.PRIORITY_HIGH_ACCURACY, 60000, 30000, 10);
+
+        private final int priority;
+        private final long interval;
+        private final long fastestInterval;
+        private final float minDistance;
+
+        SamplingMode(int priority, long interval, long fastestInterval, float minDistance) {
+            this.priority = priority;
+            this.interval = interval;
+            this.fastestInterval = fastestInterval;
+            this.minDistance = minDistance;
+        }
+
+        public long getInterval() {
+            return interval;
+        }
+
+        LocationRequest buildRequest() {
+            return new LocationRequest.Builder(priority, interval)
+                    .setMinUpdateIntervalMillis(fastestInterval)
+                    .setMinUpdateDistanceMeters(minDistance)
+                    .build();
+        }
+    }
+
+    /**
+     * Statistics collected while adaptive sampling is running
+     */
+    public static class SamplingStats {
+        private final int[] fixCounts = new int[SamplingMode.values().length];
+        private final long[] timeInMode = new long[SamplingMode.values().length];
+        private int modeSwitches;
+
+        public int getFixCount(SamplingMode mode) {
+            return fixCounts[mode.ordinal()];
+        }
+
+        public int getTotalFixes() {
+            int total = 0;
+            for (int count : fixCounts) total += count;
+            return total;
+        }
+
+        /**
+         * @return time spent in the mode in milliseconds
+         */
+        public long getTimeInMode(SamplingMode mode) {
+            return timeInMode[mode.ordinal()];
+        }
+
+        public int getModeSwitches() {
+            return modeSwitches;
+        }
+
+        private SamplingStats copy() {
+            SamplingStats copy = new SamplingStats();
+            System.arraycopy(fixCounts, 0, copy.fixCounts, 0, fixCounts.length);
+            System.arraycopy(timeInMode, 0, copy.timeInMode, 0, timeInMode.length);
+            copy.modeSwitches = modeSwitches;
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("SamplingStats{");
+            for (SamplingMode mode : SamplingMode.values()) {
+                builder.append(mode).append('=')
+                        .append(fixCounts[mode.ordinal()]).append(" fixes/")
+                        .append(timeInMode[mode.ordinal()] / 1000).append("s, ");
+            }
+            return builder.append("switches=").append(modeSwitches).append('}').toString();
+        }
+    }
+
     public interface LocationUpdateListener {
         void onLocationUpdate(Location location);
         void onLocationError(String error);
+
+        /**
+         * Receive every fix of a LocationResult at once, oldest first.
+         * Defaults to forwarding each fix to onLocationUpdate.
+         */
+        default void onLocationBatch(List<Location> locations) {
+            for (Location location : locations) {
+                onLocationUpdate(location);
+            }
+        }
     }
 
     public LocationHelper(Context context) {
@@ -74,26 +189,61 @@ public class LocationHelper {
      * Start location updates
      */
     public void startLocationUpdates(LocationUpdateListener listener) {
-        if (!hasLocationPermission()) {
-            listener.onLocationError("Location permission not granted");
-            return;
-        }
-
         LocationRequest locationRequest = new LocationRequest.Builder(
                 Priority.PRIORITY_HIGH_ACCURACY, UPDATE_INTERVAL)
                 .setMinUpdateIntervalMillis(FASTEST_INTERVAL)
                 .setMinUpdateDistanceMeters(MIN_DISTANCE)
                 .build();
 
+        adaptiveSampling = false;
+        requestUpdates(locationRequest, listener);
+    }
+
+    /**
+     * Start location updates whose rate follows the shuttle's motion:
+     * high-rate while turning or approaching a route stop, balanced
+     * while cruising and stationary while dwelling
+     */
+    public void startAdaptiveLocationUpdates(LocationUpdateListener listener) {
+        adaptiveSampling = true;
+        samplingMode = SamplingMode.BALANCED;
+        candidateMode = null;
+        candidateCount = 0;
+        previousFix = null;
+        previousHeading = -1;
+        stationarySince = 0;
+        modeStartTime = SystemClock.elapsedRealtime();
+
+        requestUpdates(samplingMode.buildRequest(), listener);
+    }
+
+    private void requestUpdates(LocationRequest locationRequest, LocationUpdateListener listener) {
+        if (!hasLocationPermission()) {
+            listener.onLocationError("Location permission not granted");
+            return;
+        }
+
         locationCallback = new LocationCallback() {
             @Override
             public void onLocationResult(LocationResult locationResult) {
                 if (locationResult == null) {
                     return;
                 }
+                List<Location> locations = new ArrayList<>(locationResult.getLocations().size());
                 for (Location location : locationResult.getLocations()) {
                     if (location != null) {
-                        listener.onLocationUpdate(location);
+                        locations.add(location);
+                    }
+                }
+                if (locations.isEmpty()) {
+                    return;
+                }
+                listener.onLocationBatch(locations);
+
+                if (adaptiveSampling) {
+                    for (Location location : locations) {
+                        samplingStats.fixCounts[samplingMode.ordinal()]++;
+                        updateSamplingMode(location, listener);
                     }
                 }
             }
@@ -114,25 +264,141 @@ public class LocationHelper {
         if (locationCallback != null) {
             fusedLocationClient.removeLocationUpdates(locationCallback);
         }
+        if (adaptiveSampling) {
+            samplingStats.timeInMode[samplingMode.ordinal()] +=
+                    SystemClock.elapsedRealtime() - modeStartTime;
+            adaptiveSampling = false;
+        }
     }
 
     /**
-     * Calculate distance between two points using Haversine formula
-     * @return distance in kilometers
+     * Set the stops of the route being driven, used to sample densely near
+     * any of them. Not only the expected next stop: that is unknown until
+     * the first arrival and goes stale after a missed stop.
      */
-    public static double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int EARTH_RADIUS = 6371; // Radius in kilometers
+    public void setRouteStops(List<Stop> stops) {
+        routeStops.clear();
+        for (Stop stop : stops) {
+            routeStops.put(stop.getStopId(), stop);
+        }
+    }
 
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
+    /**
+     * Get the current adaptive sampling mode
+     */
+    public SamplingMode getSamplingMode() {
+        return samplingMode;
+    }
+
+    /**
+     * Get a snapshot of the adaptive sampling statistics
+     */
+    public SamplingStats getSamplingStats() {
+        SamplingStats stats = samplingStats.copy();
+        if (adaptiveSampling) {
+            stats.timeInMode[samplingMode.ordinal()] += SystemClock.elapsedRealtime() - modeStartTime;
+        }
+        return stats;
+    }
 
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    /**
+     * Pick the sampling mode for a new fix and re-request updates when it changes
+     */
+    private void updateSamplingMode(Location location, LocationUpdateListener listener) {
+        float speed = -1;
+        float heading = -1;
+        if (previousFix != null) {
+            float distance = previousFix.distanceTo(location);
+            long elapsed = location.getTime() - previousFix.getTime();
+            if (elapsed > 0) {
+                speed = distance * 1000f / elapsed;
+            }
+            if (distance >= MIN_DISTANCE) {
+                heading = calculateBearing(previousFix.getLatitude(), previousFix.getLongitude(),
+                        location.getLatitude(), location.getLongitude());
+            }
+        }
+        if (location.hasSpeed()) {
+            speed = location.getSpeed();
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        boolean moving = speed < 0 || speed >= STATIONARY_SPEED;
+        if (moving) {
+            stationarySince = 0;
+        } else if (stationarySince == 0) {
+            stationarySince = now;
+        }
 
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        boolean turning = heading >= 0 && previousHeading >= 0 &&
+                headingDifference(heading, previousHeading) >= TURNING_ANGLE;
+        boolean approaching = !routeStops.withinRadius(location.getLatitude(), location.getLongitude(),
+                APPROACH_DISTANCE).isEmpty();
 
-        return EARTH_RADIUS * c;
+        SamplingMode mode;
+        if (moving && (turning || approaching)) {
+            mode = SamplingMode.HIGH_RATE;
+        } else if (!moving && now - stationarySince >= STATIONARY_DELAY) {
+            mode = SamplingMode.STATIONARY;
+        } else {
+            mode = SamplingMode.BALANCED;
+        }
+
+        previousFix = location;
+        if (heading >= 0) {
+            previousHeading = heading;
+        }
+
+        if (mode == samplingMode) {
+            candidateMode = null;
+            candidateCount = 0;
+            return;
+        }
+
+        // Step up immediately, but only step down once the new mode has held for a few fixes
+        boolean stepUp = mode.getInterval() < samplingMode.getInterval();
+        if (!stepUp) {
+            if (mode != candidateMode) {
+                candidateMode = mode;
+                candidateCount = 0;
+            }
+            if (++candidateCount < MODE_CONFIRMATIONS) {
+                return;
+            }
+        }
+
+        switchSamplingMode(mode, listener);
+    }
+
+    private void switchSamplingMode(SamplingMode mode, LocationUpdateListener listener) {
+        long now = SystemClock.elapsedRealtime();
+        samplingStats.timeInMode[samplingMode.ordinal()] += now - modeStartTime;
+        samplingStats.modeSwitches++;
+        modeStartTime = now;
+        samplingMode = mode;
+        candidateMode = null;
+        candidateCount = 0;
+
+        try {
+            // Re-registering the same callback replaces the previous request
+            fusedLocationClient.requestLocationUpdates(mode.buildRequest(),
+                    locationCallback, Looper.getMainLooper());
+        } catch (SecurityException e) {
+            listener.onLocationError("Security exception: " + e.getMessage());
+        }
+    }
+
+    private static float headingDifference(float heading1, float heading2) {
+        float difference = Math.abs(heading1 - heading2) % 360;
+        return difference > 180 ? 360 - difference : difference;
+    }
+
+    /**
+     * Calculate distance between two points using Haversine formula
+     * @return distance in kilometers
+     */
+    public static double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
+        return GeoUtils.calculateDistance(lat1, lon1, lat2, lon2);
     }
 
     /**
@@ -168,16 +434,24 @@ public class LocationHelper {
      * @return ETA in minutes
      */
     public static int calculateETA(double distanceKm, double averageSpeedKmh) {
-        if (distanceKm <= 0) return 0;
-        double hours = distanceKm / averageSpeedKmh;
-        return (int) Math.ceil(hours * 60); // Convert to minutes
+        return GeoUtils.calculateETA(distanceKm, averageSpeedKmh);
     }
 
     /**
      * Calculate ETA with default speed of 30 km/h
      */
     public static int calculateETA(double distanceKm) {
-        return calculateETA(distanceKm, 30.0);
+        return GeoUtils.calculateETA(distanceKm);
+    }
+
+    /**
+     * Calculate ETA for one stop-to-stop segment from the learned travel
+     * time model at the given time, or at 30 km/h if the segment is unknown
+     * @param travelTimes usually SegmentTravelModel.getInstance(context)
+     */
+    public static int calculateETA(RouteEtaEngine.TravelTimes travelTimes, String fromStopId, String toStopId,
+                                   double distanceKm, long timeMillis) {
+        return GeoUtils.calculateETA(travelTimes, fromStopId, toStopId, distanceKm, timeMillis);
     }
 
     /**
@@ -235,18 +509,27 @@ public class LocationHelper {
     }
 
     /**
-     * Get bearing between two points (direction in degrees)
+     * Get the point reached by travelling a distance along a bearing
+     * @param distanceKm distance in kilometers
+     * @param out receives latitude and longitude, in that order
      */
-    public static float calculateBearing(double lat1, double lon1, double lat2, double lon2) {
-        double dLon = Math.toRadians(lon2 - lon1);
-        double lat1Rad = Math.toRadians(lat1);
-        double lat2Rad = Math.toRadians(lat2);
+    public static void destinationPoint(double latitude, double longitude, double bearing,
+                                        double distanceKm, double[] out) {
+        GeoUtils.destinationPoint(latitude, longitude, bearing, distanceKm, out);
+    }
 
-        double y = Math.sin(dLon) * Math.cos(lat2Rad);
-        double x = Math.cos(lat1Rad) * Math.sin(lat2Rad) -
-                Math.sin(lat1Rad) * Math.cos(lat2Rad) * Math.cos(dLon);
+    /**
+     * Get the point reached by travelling a distance along a bearing
+     * @param distanceKm distance in kilometers
+     */
+    public static GeoPoint destinationPoint(GeoPoint start, double bearing, double distanceKm) {
+        return GeoUtils.destinationPoint(start, bearing, distanceKm);
+    }
 
-        double bearing = Math.toDegrees(Math.atan2(y, x));
-        return (float) ((bearing + 360) % 360);
+    /**
+     * Get bearing between two points (direction in degrees)
+     */
+    public static float calculateBearing(double lat1, double lon1, double lat2, double lon2) {
+        return GeoUtils.calculateBearing(lat1, lon1, lat2, lon2);
     }
 }
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.example.campusride.utils;
+
+import android.view.Choreographer;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Frame-synced animator that glides markers between sparse position updates.
+ * Tween state lives in preallocated per-marker slots, so a frame only creates
+ * the LatLng the Maps API requires for each marker that actually moved.
+ */
+public class MarkerAnimator implements Choreographer.FrameCallback {
+
+    private static final long MIN_DURATION = 16; // one frame, in milliseconds
+    private static final double MIN_STEP = 1e-7; // ~1 cm, smaller moves are skipped
+
+    private final Choreographer choreographer = Choreographer.getInstance();
+    private final Map<Marker, Tween> tweens = new HashMap<>();
+    private final List<Tween> active = new ArrayList<>();
+
+    private boolean running;
+    private boolean frameScheduled;
+
+    /**
+     * Animation state for a single marker, reused across updates
+     */
+    private static class Tween {
+        final Marker marker;
+        double fromLat, fromLon, toLat, toLon;
+        double currentLat, currentLon;
+        float fromRotation, toRotation, currentRotation;
+        long startNanos, durationNanos;
+        boolean animating;
+
+        Tween(Marker marker) {
+            this.marker = marker;
+        }
+    }
+
+    /**
+     * Place a marker immediately without animating
+     */
+    public void jumpTo(Marker marker, double latitude, double longitude, float bearing) {
+        Tween tween = tweenFor(marker);
+        tween.currentLat = tween.toLat = latitude;
+        tween.currentLon = tween.toLon = longitude;
+        tween.currentRotation = tween.toRotation = bearing;
+        tween.animating = false;
+        active.remove(tween);
+
+        marker.setPosition(new LatLng(latitude, longitude));
+        marker.setRotation(bearing);
+    }
+
+    /**
+     * Glide a marker from where it is drawn now to a new position over the given duration
+     */
+    public void animateTo(Marker marker, double latitude, double longitude, float bearing,
+                          long durationMillis) {
+        Tween tween = tweens.get(marker);
+        if (tween == null) {
+            jumpTo(marker, latitude, longitude, bearing);
+            return;
+        }
+
+        tween.fromLat = tween.currentLat;
+        tween.fromLon = tween.currentLon;
+        tween.fromRotation = tween.currentRotation;
+        tween.toLat = latitude;
+        tween.toLon = longitude;
+        // Turn the short way around
+        tween.toRotation = tween.fromRotation + shortestTurn(tween.fromRotation, bearing);
+        tween.startNanos = System.nanoTime();
+        tween.durationNanos = Math.max(durationMillis, MIN_DURATION) * 1000000L;
+
+        if (!tween.animating) {
+            tween.animating = true;
+            active.add(tween);
+        }
+        scheduleFrame();
+    }
+
+    /**
+     * Forget a marker that was removed from the map
+     */
+    public void remove(Marker marker) {
+        Tween tween = tweens.remove(marker);
+        if (tween != null) {
+            active.remove(tween);
+        }
+    }
+
+    /**
+     * Resume frame callbacks, e.g. when the map becomes visible
+     */
+    public void start() {
+        running = true;
+        scheduleFrame();
+    }
+
+    /**
+     * Stop frame callbacks while the map is off-screen
+     */
+    public void stop() {
+        running = false;
+        if (frameScheduled) {
+            choreographer.removeFrameCallback(this);
+            frameScheduled = false;
+        }
+    }
+
+    /**
+     * Drop all animation state
+     */
+    public void clear() {
+        stop();
+        tweens.clear();
+        active.clear();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        if (!running) return;
+
+        // Index loop and swap-remove keep the frame free of iterator garbage
+        for (int i = active.size() - 1; i >= 0; i--) {
+            Tween tween = active.get(i);
+            float fraction = (float) (frameTimeNanos - tween.startNanos) / tween.durationNanos;
+            if (fraction >= 1f) {
+                fraction = 1f;
+                tween.animating = false;
+                int last = active.size() - 1;
+                active.set(i, active.get(last));
+                active.remove(last);
+            } else if (fraction < 0f) {
+                fraction = 0f;
+            }
+
+            double lat = tween.fromLat + (tween.toLat - tween.fromLat) * fraction;
+            double lon = tween.fromLon + (tween.toLon - tween.fromLon) * fraction;
+            float rotation = tween.fromRotation + (tween.toRotation - tween.fromRotation) * fraction;
+
+            if (Math.abs(lat - tween.currentLat) > MIN_STEP || Math.abs(lon - tween.currentLon) > MIN_STEP) {
+                tween.currentLat = lat;
+                tween.currentLon = lon;
+                tween.marker.setPosition(new LatLng(lat, lon));
+            }
+            if (rotation != tween.currentRotation) {
+                tween.currentRotation = rotation;
+                tween.marker.setRotation(rotation);
+            }
+        }
+
+        scheduleFrame();
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private Tween tweenFor(Marker marker) {
+        Tween tween = tweens.get(marker);
+        if (tween == null) {
+            tween = new Tween(marker);
+            tweens.put(marker, tween);
+        }
+        return tween;
+    }
+
+    private void scheduleFrame() {
+        if (running && !frameScheduled && !active.isEmpty()) {
+            choreographer.postFrameCallback(this);
+            frameScheduled = true;
+        }
+    }
+
+    private static float shortestTurn(float from, float to) {
+        float delta = (to - from) % 360f;
+        if (delta > 180f) delta -= 360f;
+        if (delta < -180f) delta += 360f;
+        return delta;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.campusride.utils;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.firebase.firestore.GeoPoint;
+import com.example.campusride.data.ChangeSet;
+import com.example.campusride.models.Shuttle;
+import com.example.campusride.models.Stop;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the map's shuttle markers in sync with the shuttle list.
+ * Markers are keyed by shuttleId and only touched where something changed,
+ * instead of clearing and re-adding everything on every snapshot.
+ */
+public class MarkerReconciler {
+
+    private static final float STALE_ALPHA = 0.5f;
+
+    private final GoogleMap map;
+    private final MarkerAnimator animator;
+    private final Map<String, Marker> shuttleMarkers = new HashMap<>();
+    private final Map<String, String> renderedStyles = new HashMap<>();
+    private final Set<String> seen = new HashSet<>();
+
+    // Single marker reused for the selected stop
+    private Marker stopMarker;
+    private String stopMarkerId;
+
+    // Positions restored from disk are drawn faded until live data arrives
+    private boolean stale;
+
+    public MarkerReconciler(GoogleMap map, MarkerAnimator animator) {
+        this.map = map;
+        this.animator = animator;
+    }
+
+    /**
+     * Add, move, restyle or remove markers so they match the given shuttles.
+     * Existing markers glide to their new position over the given duration.
+     */
+    public void reconcile(List<Shuttle> shuttles, long timeMillis, long durationMillis) {
+        seen.clear();
+
+        for (Shuttle shuttle : shuttles) {
+            if (reconcileShuttle(shuttle, timeMillis, durationMillis)) {
+                seen.add(shuttle.getShuttleId());
+            }
+        }
+
+        // Remove shuttles that disappeared
+        Iterator<Map.Entry<String, Marker>> iterator = shuttleMarkers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Marker> entry = iterator.next();
+            if (!seen.contains(entry.getKey())) {
+                entry.getValue().remove();
+                animator.remove(entry.getValue());
+                renderedStyles.remove(entry.getKey());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Touch only the markers of shuttles named in the change set
+     */
+    public void reconcileChanges(List<Shuttle> shuttles, ChangeSet changes, long timeMillis,
+                                 long durationMillis) {
+        if (changes.isFullRefresh()) {
+            reconcile(shuttles, timeMillis, durationMillis);
+            return;
+        }
+
+        seen.clear();
+        for (Shuttle shuttle : shuttles) {
+            if (changes.isChanged(shuttle.getShuttleId())
+                    && reconcileShuttle(shuttle, timeMillis, durationMillis)) {
+                seen.add(shuttle.getShuttleId());
+            }
+        }
+
+        // Changed shuttles that are no longer listed lose their marker
+        removeUnseen(changes.getAdded());
+        removeUnseen(changes.getModified());
+        removeUnseen(changes.getRemoved());
+    }
+
+    /**
+     * Glide existing markers towards where each shuttle is expected to be
+     * once the duration has passed
+     */
+    public void updatePositions(List<Shuttle> shuttles, long timeMillis, long durationMillis) {
+        for (Shuttle shuttle : shuttles) {
+            Marker marker = shuttleMarkers.get(shuttle.getShuttleId());
+            GeoPoint position = shuttle.extrapolateLocation(timeMillis + durationMillis);
+            if (marker != null && position != null) {
+                animator.animateTo(marker, position.getLatitude(), position.getLongitude(),
+                        shuttle.getBearing(), durationMillis);
+            }
+        }
+    }
+
+    /**
+     * Show the selected stop, reusing a single marker
+     */
+    public void setSelectedStop(Stop stop) {
+        if (stop == null || stop.getLocation() == null) {
+            if (stopMarker != null) {
+                stopMarker.remove();
+                stopMarker = null;
+                stopMarkerId = null;
+            }
+            return;
+        }
+
+        LatLng stopLocation = new LatLng(
+                stop.getLocation().getLatitude(),
+                stop.getLocation().getLongitude()
+        );
+
+        if (stopMarker == null) {
+            stopMarker = map.addMarker(new MarkerOptions()
+                    .position(stopLocation)
+                    .title(stop.getStopName())
+                    .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_BLUE)));
+        } else if (stopMarkerId == null || !stopMarkerId.equals(stop.getStopId())) {
+            stopMarker.setPosition(stopLocation);
+            stopMarker.setTitle(stop.getStopName());
+        }
+        stopMarkerId = stop.getStopId();
+    }
+
+    /**
+     * Fade every shuttle marker while positions are last known rather than live
+     */
+    public void setStale(boolean stale) {
+        if (this.stale == stale) return;
+        this.stale = stale;
+        for (Marker marker : shuttleMarkers.values()) {
+            marker.setAlpha(markerAlpha());
+        }
+    }
+
+    /**
+     * Get the marker currently shown for a shuttle
+     */
+    public Marker getMarker(String shuttleId) {
+        return shuttleMarkers.get(shuttleId);
+    }
+
+    /**
+     * Remove every marker owned by the reconciler
+     */
+    public void clear() {
+        for (Marker marker : shuttleMarkers.values()) {
+            marker.remove();
+        }
+        shuttleMarkers.clear();
+        renderedStyles.clear();
+        animator.clear();
+        setSelectedStop(null);
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Add or update the marker for one shuttle
+     * @return false if the shuttle has no position to show
+     */
+    private boolean reconcileShuttle(Shuttle shuttle, long timeMillis, long durationMillis) {
+        String shuttleId = shuttle.getShuttleId();
+        GeoPoint position = shuttle.extrapolateLocation(timeMillis);
+        if (shuttleId == null || position == null) return false;
+
+        LatLng latLng = new LatLng(position.getLatitude(), position.getLongitude());
+        String style = styleKey(shuttle);
+        Marker marker = shuttleMarkers.get(shuttleId);
+
+        if (marker == null) {
+            marker = map.addMarker(new MarkerOptions()
+                    .position(latLng)
+                    .title(shuttle.getShuttleName())
+                    .snippet(snippetFor(shuttle))
+                    .icon(BitmapDescriptorFactory.defaultMarker(hueFor(shuttle)))
+                    .flat(true)
+                    .anchor(0.5f, 0.5f)
+                    .alpha(markerAlpha()));
+            if (marker != null) {
+                shuttleMarkers.put(shuttleId, marker);
+                renderedStyles.put(shuttleId, style);
+                animator.jumpTo(marker, latLng.latitude, latLng.longitude, shuttle.getBearing());
+            }
+            return true;
+        }
+
+        animator.animateTo(marker, latLng.latitude, latLng.longitude, shuttle.getBearing(),
+                durationMillis);
+
+        // Icon and snippet only change with status or route
+        if (!style.equals(renderedStyles.get(shuttleId))) {
+            marker.setTitle(shuttle.getShuttleName());
+            marker.setSnippet(snippetFor(shuttle));
+            marker.setIcon(BitmapDescriptorFactory.defaultMarker(hueFor(shuttle)));
+            renderedStyles.put(shuttleId, style);
+        }
+        return true;
+    }
+
+    private void removeUnseen(List<String> shuttleIds) {
+        for (String shuttleId : shuttleIds) {
+            if (seen.contains(shuttleId)) continue;
+            Marker marker = shuttleMarkers.remove(shuttleId);
+            if (marker != null) {
+                marker.remove();
+                animator.remove(marker);
+                renderedStyles.remove(shuttleId);
+            }
+        }
+    }
+
+    private float markerAlpha() {
+        return stale ? STALE_ALPHA : 1f;
+    }
+
+    private static String styleKey(Shuttle shuttle) {
+        return shuttle.getStatusString() + "|" + shuttle.getCurrentRoute() + "|" + shuttle.getShuttleName();
+    }
+
+    private static String snippetFor(Shuttle shuttle) {
+        return shuttle.getCurrentRoute() + " - " + shuttle.getStatusString();
+    }
+
+    private static float hueFor(Shuttle shuttle) {
+        return shuttle.isActive() ? BitmapDescriptorFactory.HUE_GREEN : BitmapDescriptorFactory.HUE_ORANGE;
+    }
+}
@@ -0,0 +1,391 @@
+package com.example.campusride.utils;
+
+import com.google.firebase.firestore.GeoPoint;
+import com.example.campusride.models.Route;
+import com.example.campusride.models.Shuttle;
+import com.example.campusride.models.Stop;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates arrival times from distance along a shuttle's route.
+ * Each route is compiled once into a closed polyline through its ordered
+ * stops; shuttles are projected onto it and the distance to a stop is
+ * measured forward along the loop, wrapping around for stops already passed.
+ * Travel time is summed segment by segment from learned stop-to-stop
+ * times where available. Shuttles without a known route fall back to
+ * straight-line distance. Uses no Android classes, so it runs in a plain JVM.
+ */
+public class RouteEtaEngine {
+
+    private static final double METERS_PER_DEGREE_LAT = 110540;
+    private static final double METERS_PER_DEGREE_LON = 111320;
+    private static final double MAX_OFF_ROUTE = 300; // meters, further away counts as off route
+
+    private final Map<String, CompiledRoute> routesByKey = new HashMap<>();
+    private final TravelTimes travelTimes;
+
+    /**
+     * Source of learned stop-to-stop travel times
+     */
+    public interface TravelTimes {
+        /**
+         * @return seconds, or -1 if the segment is unknown
+         */
+        double travelSeconds(String fromStopId, String toStopId, long timeMillis);
+
+        /**
+         * Travel time regardless of the time of day, for schedules
+         * @return seconds, or -1 if the segment is unknown
+         */
+        default double typicalSeconds(String fromStopId, String toStopId) {
+            return -1;
+        }
+    }
+
+    /**
+     * A route's stops flattened into a closed polyline in local meters
+     */
+    static final class CompiledRoute {
+        final String routeId;
+        final double refLatitude;
+        final double lonScale;
+        final String[] stopIds;
+        final double[] xs;
+        final double[] ys;
+        final double[] cumulative; // distance from the first stop to each vertex
+        final double[] segmentLengths; // from each vertex to the next, closing the loop
+        final double length;
+        final Map<String, double[]> stopOffsets = new HashMap<>();
+
+        CompiledRoute(String routeId, List<Stop> stops, List<String> stopIds) {
+            this.routeId = routeId;
+            this.refLatitude = stops.get(0).getLatitude();
+            this.lonScale = Math.cos(Math.toRadians(refLatitude));
+
+            int count = stops.size();
+            this.stopIds = stopIds.toArray(new String[0]);
+            xs = new double[count];
+            ys = new double[count];
+            cumulative = new double[count];
+            for (int i = 0; i < count; i++) {
+                xs[i] = projectX(stops.get(i).getLongitude());
+                ys[i] = projectY(stops.get(i).getLatitude());
+                if (i > 0) {
+                    cumulative[i] = cumulative[i - 1] + Math.hypot(xs[i] - xs[i - 1], ys[i] - ys[i - 1]);
+                }
+            }
+            // Loops close back to the first stop
+            length = cumulative[count - 1] + Math.hypot(xs[0] - xs[count - 1], ys[0] - ys[count - 1]);
+            segmentLengths = new double[count];
+            for (int i = 0; i < count; i++) {
+                segmentLengths[i] = (i + 1 < count ? cumulative[i + 1] : length) - cumulative[i];
+            }
+
+            for (int i = 0; i < count; i++) {
+                double[] existing = stopOffsets.get(stopIds.get(i));
+                double[] offsets;
+                if (existing == null) {
+                    offsets = new double[]{cumulative[i]};
+                } else {
+                    offsets = new double[existing.length + 1];
+                    System.arraycopy(existing, 0, offsets, 0, existing.length);
+                    offsets[existing.length] = cumulative[i];
+                }
+                stopOffsets.put(stopIds.get(i), offsets);
+            }
+        }
+
+        double projectX(double longitude) {
+            return longitude * METERS_PER_DEGREE_LON * lonScale;
+        }
+
+        double projectY(double latitude) {
+            return latitude * METERS_PER_DEGREE_LAT;
+        }
+
+        /**
+         * Forward distance along the loop from an offset to the next visit of a stop
+         * @return distance in meters, or -1 if the stop is not on this route
+         */
+        double distanceToStop(double fromOffset, String stopId) {
+            double[] offsets = stopOffsets.get(stopId);
+            if (offsets == null || length <= 0) return -1;
+
+            double best = Double.MAX_VALUE;
+            for (double offset : offsets) {
+                double ahead = offset - fromOffset;
+                if (ahead < 0) ahead += length;
+                best = Math.min(best, ahead);
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Where a shuttle sits on its route
+     */
+    public static final class RoutePosition {
+        final CompiledRoute route;
+        final int segment;
+        final double fraction; // how far along the segment, 0 to 1
+        final double offset;
+        final double offRouteMeters;
+
+        RoutePosition(CompiledRoute route, int segment, double fraction, double offRouteMeters) {
+            this.route = route;
+            this.segment = segment;
+            this.fraction = fraction;
+            this.offset = route.cumulative[segment] + fraction * route.segmentLengths[segment];
+            this.offRouteMeters = offRouteMeters;
+        }
+
+        public String getRouteId() {
+            return route.routeId;
+        }
+
+        public double getOffset() {
+            return offset;
+        }
+
+        public double getRouteLength() {
+            return route.length;
+        }
+
+        public double getOffRouteMeters() {
+            return offRouteMeters;
+        }
+    }
+
+    /**
+     * Distance and ETA from one shuttle to one stop
+     */
+    public static final class Estimate {
+        private final double distanceKm;
+        private final int etaMinutes;
+        private final boolean alongRoute;
+
+        Estimate(double distanceKm, int etaMinutes, boolean alongRoute) {
+            this.distanceKm = distanceKm;
+            this.etaMinutes = etaMinutes;
+            this.alongRoute = alongRoute;
+        }
+
+        public double getDistanceKm() {
+            return distanceKm;
+        }
+
+        public int getEtaMinutes() {
+            return etaMinutes;
+        }
+
+        public boolean isAlongRoute() {
+            return alongRoute;
+        }
+    }
+
+    /**
+     * Estimates for every shuttle and stop pair, indexed [shuttle][stop]
+     */
+    public static final class EtaMatrix {
+        private final double[][] distanceKm;
+        private final int[][] etaMinutes;
+        private final boolean[][] alongRoute;
+
+        EtaMatrix(int shuttles, int stops) {
+            distanceKm = new double[shuttles][stops];
+            etaMinutes = new int[shuttles][stops];
+            alongRoute = new boolean[shuttles][stops];
+        }
+
+        public double getDistanceKm(int shuttle, int stop) {
+            return distanceKm[shuttle][stop];
+        }
+
+        public int getEtaMinutes(int shuttle, int stop) {
+            return etaMinutes[shuttle][stop];
+        }
+
+        public boolean isAlongRoute(int shuttle, int stop) {
+            return alongRoute[shuttle][stop];
+        }
+    }
+
+    /**
+     * Compile the given routes against the current stops, timing every segment at 30 km/h
+     */
+    public RouteEtaEngine(Collection<Route> routes, Map<String, Stop> stopsById) {
+        this(routes, stopsById, null);
+    }
+
+    /**
+     * Compile the given routes against the current stops
+     * @param travelTimes learned segment times, or null to time every segment at 30 km/h
+     */
+    public RouteEtaEngine(Collection<Route> routes, Map<String, Stop> stopsById, TravelTimes travelTimes) {
+        this.travelTimes = travelTimes;
+        for (Route route : routes) {
+            if (route.getStopIds() == null) continue;
+
+            List<Stop> stops = new ArrayList<>();
+            List<String> stopIds = new ArrayList<>();
+            for (String stopId : route.getStopIds()) {
+                Stop stop = stopsById.get(stopId);
+                if (stop != null && (stop.getLatitude() != 0 || stop.getLongitude() != 0)) {
+                    stops.add(stop);
+                    stopIds.add(stopId);
+                }
+            }
+            if (stops.size() < 2) continue;
+
+            CompiledRoute compiled = new CompiledRoute(route.getRouteId(), stops, stopIds);
+            // Shuttles name their route by display name; accept the id as well
+            if (route.getRouteId() != null) routesByKey.put(route.getRouteId(), compiled);
+            if (route.getRouteName() != null) routesByKey.put(route.getRouteName(), compiled);
+        }
+    }
+
+    /**
+     * Check if any route could be compiled
+     */
+    public boolean hasRoutes() {
+        return !routesByKey.isEmpty();
+    }
+
+    /**
+     * Get the id of the route a shuttle is driving, which it may name by id
+     * or by route name, or null if the route is unknown
+     */
+    public String routeIdOf(Shuttle shuttle) {
+        CompiledRoute route = shuttle != null && shuttle.getCurrentRoute() != null
+                ? routesByKey.get(shuttle.getCurrentRoute()) : null;
+        return route != null ? route.routeId : null;
+    }
+
+    /**
+     * Project a shuttle onto its route
+     * @return the position, or null if the route is unknown or the shuttle is off it
+     */
+    public RoutePosition locate(Shuttle shuttle, long timeMillis) {
+        CompiledRoute route = shuttle.getCurrentRoute() != null ? routesByKey.get(shuttle.getCurrentRoute()) : null;
+        GeoPoint location = shuttle.extrapolateLocation(timeMillis);
+        if (route == null || location == null) return null;
+
+        double x = route.projectX(location.getLongitude());
+        double y = route.projectY(location.getLatitude());
+
+        double bestDistance = Double.MAX_VALUE;
+        int bestSegment = 0;
+        double bestFraction = 0;
+        int count = route.xs.length;
+        for (int i = 0; i < count; i++) {
+            int next = (i + 1) % count;
+            double ax = route.xs[i], ay = route.ys[i];
+            double dx = route.xs[next] - ax, dy = route.ys[next] - ay;
+            double segmentLengthSquared = dx * dx + dy * dy;
+
+            double t = segmentLengthSquared > 0 ? ((x - ax) * dx + (y - ay) * dy) / segmentLengthSquared : 0;
+            t = Math.max(0, Math.min(1, t));
+            double px = ax + t * dx, py = ay + t * dy;
+            double distance = Math.hypot(x - px, y - py);
+
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestSegment = i;
+                bestFraction = t;
+            }
+        }
+
+        if (bestDistance > MAX_OFF_ROUTE) return null;
+        return new RoutePosition(route, bestSegment, bestFraction, bestDistance);
+    }
+
+    /**
+     * Estimate distance and ETA from a shuttle to a stop
+     */
+    public Estimate estimate(Shuttle shuttle, Stop stop, long timeMillis) {
+        return estimate(shuttle, locate(shuttle, timeMillis), stop, timeMillis);
+    }
+
+    /**
+     * Estimate every shuttle against every stop, projecting each shuttle only once
+     */
+    public EtaMatrix estimateAll(List<Shuttle> shuttles, List<Stop> stops, long timeMillis) {
+        EtaMatrix matrix = new EtaMatrix(shuttles.size(), stops.size());
+
+        for (int i = 0; i < shuttles.size(); i++) {
+            Shuttle shuttle = shuttles.get(i);
+            RoutePosition position = locate(shuttle, timeMillis);
+
+            for (int j = 0; j < stops.size(); j++) {
+                Estimate estimate = estimate(shuttle, position, stops.get(j), timeMillis);
+                matrix.distanceKm[i][j] = estimate.distanceKm;
+                matrix.etaMinutes[i][j] = estimate.etaMinutes;
+                matrix.alongRoute[i][j] = estimate.alongRoute;
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private Estimate estimate(Shuttle shuttle, RoutePosition position, Stop stop, long timeMillis) {
+        if (position != null) {
+            double meters = position.route.distanceToStop(position.offset, stop.getStopId());
+            if (meters >= 0) {
+                double distanceKm = (meters + position.offRouteMeters) / 1000.0;
+                double seconds = travelSeconds(position, stop.getStopId(), timeMillis);
+                return new Estimate(distanceKm, (int) Math.ceil(seconds / 60), true);
+            }
+        }
+
+        // Unknown route or stop not served by it: straight line
+        GeoPoint location = shuttle.extrapolateLocation(timeMillis);
+        if (location == null) {
+            return new Estimate(0, 0, false);
+        }
+        double distanceKm = stop.distanceTo(location.getLatitude(), location.getLongitude());
+        return new Estimate(distanceKm, GeoUtils.calculateETA(distanceKm), false);
+    }
+
+    /**
+     * Sum segment travel times from a route position to the next visit of a stop
+     */
+    private double travelSeconds(RoutePosition position, String stopId, long timeMillis) {
+        CompiledRoute route = position.route;
+        int count = route.stopIds.length;
+
+        double seconds = GeoUtils.travelSeconds(position.offRouteMeters / 1000.0);
+        if (position.fraction == 0 && route.stopIds[position.segment].equals(stopId)) {
+            return seconds;
+        }
+
+        // Rest of the current segment, then whole segments until the stop
+        seconds += (1 - position.fraction) * segmentSeconds(route, position.segment, timeMillis);
+        int vertex = (position.segment + 1) % count;
+        for (int steps = 0; steps < count && !route.stopIds[vertex].equals(stopId); steps++) {
+            // Later segments are looked up for when the shuttle will reach them
+            seconds += segmentSeconds(route, vertex, timeMillis + (long) (seconds * 1000));
+            vertex = (vertex + 1) % count;
+        }
+        return seconds;
+    }
+
+    /**
+     * Travel time for the segment starting at a vertex, learned for that
+     * time of day when available and at 30 km/h otherwise
+     */
+    private double segmentSeconds(CompiledRoute route, int vertex, long timeMillis) {
+        if (travelTimes != null) {
+            double learned = travelTimes.travelSeconds(route.stopIds[vertex],
+                    route.stopIds[(vertex + 1) % route.stopIds.length], timeMillis);
+            if (learned > 0) return learned;
+        }
+        return GeoUtils.travelSeconds(route.segmentLengths[vertex] / 1000.0);
+    }
+}
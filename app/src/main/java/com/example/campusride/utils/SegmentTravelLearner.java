@@ -0,0 +1,151 @@
+package com.example.campusride.utils;
+
+import com.example.campusride.data.ChangeSet;
+import com.example.campusride.data.CollectionState;
+import com.example.campusride.models.Shuttle;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Feeds a SegmentTravelModel from live shuttle location updates.
+ * Each update is projected onto the shuttle's route; when consecutive
+ * updates pass a stop, the crossing time is interpolated, and the time
+ * between passing two consecutive stops is recorded for that segment,
+ * dwell time included.
+ */
+public class SegmentTravelLearner {
+
+    private static final long MAX_GAP = 300000; // 5 minutes, longer silences break the chain of stops
+
+    private final SegmentTravelModel model;
+    private final Map<String, Trace> traces = new HashMap<>();
+
+    /**
+     * Where a shuttle was last seen on its route and which stop it passed last
+     */
+    private static class Trace {
+        final String routeId;
+        double offset;
+        long time;
+        int lastVertex = -1;
+        long lastVertexTime;
+
+        Trace(String routeId, double offset, long time) {
+            this.routeId = routeId;
+            this.offset = offset;
+            this.time = time;
+        }
+    }
+
+    public SegmentTravelLearner(SegmentTravelModel model) {
+        this.model = model;
+    }
+
+    /**
+     * Learn from the shuttles that changed in a fleet state
+     */
+    public void onFleetState(CollectionState<Shuttle> fleet, RouteEtaEngine engine) {
+        if (engine == null || !engine.hasRoutes()) return;
+
+        ChangeSet changes = fleet.getChanges();
+        if (changes.isFullRefresh()) {
+            for (Shuttle shuttle : fleet.getItems()) {
+                onShuttleUpdate(shuttle, engine);
+            }
+            return;
+        }
+
+        for (String shuttleId : changes.getRemoved()) {
+            traces.remove(shuttleId);
+        }
+        for (String shuttleId : changes.getModified()) {
+            onShuttleUpdate(fleet.get(shuttleId), engine);
+        }
+        for (String shuttleId : changes.getAdded()) {
+            onShuttleUpdate(fleet.get(shuttleId), engine);
+        }
+    }
+
+    public void clear() {
+        traces.clear();
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void onShuttleUpdate(Shuttle shuttle, RouteEtaEngine engine) {
+        if (shuttle == null || shuttle.getShuttleId() == null) return;
+
+        long time = fixTimeOf(shuttle);
+        RouteEtaEngine.RoutePosition position = time > 0 ? engine.locate(shuttle, time) : null;
+        Trace trace = traces.get(shuttle.getShuttleId());
+
+        if (position == null || !shuttle.isActive()) {
+            traces.remove(shuttle.getShuttleId());
+            return;
+        }
+        if (trace == null || !trace.routeId.equals(position.getRouteId())) {
+            traces.put(shuttle.getShuttleId(), new Trace(position.getRouteId(), position.offset, time));
+            return;
+        }
+        if (time <= trace.time) return; // same fix delivered again
+
+        RouteEtaEngine.CompiledRoute route = position.route;
+        long elapsed = time - trace.time;
+        double moved = position.offset - trace.offset;
+        if (moved < 0) moved += route.length;
+
+        if (moved > route.length / 2) {
+            // Jitter backwards along the route, keep the furthest position
+            trace.time = time;
+            return;
+        }
+        if (elapsed > MAX_GAP) {
+            trace.lastVertex = -1;
+        }
+
+        recordCrossings(trace, route, moved, elapsed);
+        trace.offset = position.offset;
+        trace.time = time;
+    }
+
+    /**
+     * Record segments completed by stops passed between two updates
+     */
+    private void recordCrossings(Trace trace, RouteEtaEngine.CompiledRoute route, double moved, long elapsed) {
+        if (moved <= 0) return;
+
+        int count = route.stopIds.length;
+        int vertex = firstVertexAhead(route, trace.offset);
+        for (int steps = 0; steps < count; steps++, vertex = (vertex + 1) % count) {
+            double ahead = route.cumulative[vertex] - trace.offset;
+            if (ahead <= 0) ahead += route.length;
+            if (ahead > moved) break;
+
+            // Assume constant speed between the two updates
+            long crossedAt = trace.time + (long) (elapsed * ahead / moved);
+            int previous = (vertex + count - 1) % count;
+            if (trace.lastVertex == previous) {
+                model.record(route.stopIds[previous], route.stopIds[vertex],
+                        (crossedAt - trace.lastVertexTime) / 1000.0, trace.lastVertexTime);
+            }
+            trace.lastVertex = vertex;
+            trace.lastVertexTime = crossedAt;
+        }
+    }
+
+    private static int firstVertexAhead(RouteEtaEngine.CompiledRoute route, double offset) {
+        int count = route.cumulative.length;
+        for (int i = 0; i < count; i++) {
+            if (route.cumulative[i] > offset) return i;
+        }
+        return 0; // wraps around to the first stop
+    }
+
+    private static long fixTimeOf(Shuttle shuttle) {
+        if (shuttle.getFixTime() != null) return shuttle.getFixTime().getTime();
+        if (shuttle.getLastUpdated() != null) return shuttle.getLastUpdated().getTime();
+        return 0;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.campusride.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Learned travel times for stop-to-stop segments.
+ * Each segment keeps an exponentially weighted average per hour of day,
+ * split into weekdays and weekends, plus one overall average used until a
+ * bucket has samples. Lookups are a hash probe and an array read.
+ * The table is persisted as a small binary file and updated in place as
+ * new traces arrive on the main thread. Lookups may come from any thread,
+ * such as timetable compilation.
+ */
+public class SegmentTravelModel implements RouteEtaEngine.TravelTimes {
+
+    private static final String TAG = "SegmentTravelModel";
+
+    private static final String FILE_NAME = "segment_travel_times.bin";
+    private static final int FILE_VERSION = 1;
+
+    private static final int HOURS = 24;
+    private static final int BUCKETS = HOURS * 2; // weekday hours, then weekend hours
+    private static final int OVERALL = BUCKETS; // slot for all samples regardless of time
+    private static final int SLOTS = BUCKETS + 1;
+    private static final long HOUR_MILLIS = 3600000L;
+    private static final long DAY_MILLIS = HOURS * HOUR_MILLIS;
+
+    private static final float MIN_WEIGHT = 0.2f; // newest sample's weight once a bucket has settled
+    private static final int MAX_COUNT = 255; // sample counts are stored as bytes
+    private static final double MIN_SEGMENT_SECONDS = 5;
+    private static final double MAX_SEGMENT_SECONDS = 3600;
+
+    private static SegmentTravelModel instance;
+
+    private final File file;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final TimeZone timeZone = TimeZone.getDefault();
+    private final Map<String, Segment> segments = new ConcurrentHashMap<>();
+    private boolean dirty;
+
+    /**
+     * Averages for one segment, in seconds
+     */
+    private static class Segment {
+        final float[] seconds = new float[SLOTS];
+        final byte[] counts = new byte[SLOTS];
+
+        int count(int slot) {
+            return counts[slot] & 0xff;
+        }
+
+        void add(int slot, double sample) {
+            int count = count(slot);
+            if (count == 0) {
+                seconds[slot] = (float) sample;
+            } else {
+                // Plain mean while warming up, then a moving average
+                float weight = Math.max(1f / (count + 1), MIN_WEIGHT);
+                seconds[slot] += (float) ((sample - seconds[slot]) * weight);
+            }
+            if (count < MAX_COUNT) counts[slot] = (byte) (count + 1);
+        }
+    }
+
+    public static synchronized SegmentTravelModel getInstance(Context context) {
+        if (instance == null) {
+            instance = new SegmentTravelModel(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+            instance.load();
+        }
+        return instance;
+    }
+
+    private SegmentTravelModel(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Record how long a shuttle took from one stop to the next
+     */
+    public void record(String fromStopId, String toStopId, double seconds, long timeMillis) {
+        if (fromStopId == null || toStopId == null) return;
+        if (seconds < MIN_SEGMENT_SECONDS || seconds > MAX_SEGMENT_SECONDS) return;
+
+        String key = segmentKey(fromStopId, toStopId);
+        Segment segment = segments.get(key);
+        if (segment == null) {
+            segment = new Segment();
+            segments.put(key, segment);
+        }
+        segment.add(bucketFor(timeMillis, timeZone), seconds);
+        segment.add(OVERALL, seconds);
+        dirty = true;
+    }
+
+    /**
+     * Get the learned travel time for a segment at the given time
+     * @return seconds, or -1 if the segment has never been observed
+     */
+    @Override
+    public double travelSeconds(String fromStopId, String toStopId, long timeMillis) {
+        if (fromStopId == null || toStopId == null) return -1;
+
+        Segment segment = segments.get(segmentKey(fromStopId, toStopId));
+        if (segment == null) return -1;
+
+        int bucket = bucketFor(timeMillis, timeZone);
+        if (segment.count(bucket) > 0) return segment.seconds[bucket];
+        return segment.count(OVERALL) > 0 ? segment.seconds[OVERALL] : -1;
+    }
+
+    /**
+     * Get the learned travel time for a segment over all times of day
+     * @return seconds, or -1 if the segment has never been observed
+     */
+    @Override
+    public double typicalSeconds(String fromStopId, String toStopId) {
+        if (fromStopId == null || toStopId == null) return -1;
+
+        Segment segment = segments.get(segmentKey(fromStopId, toStopId));
+        return segment != null && segment.count(OVERALL) > 0 ? segment.seconds[OVERALL] : -1;
+    }
+
+    public int size() {
+        return segments.size();
+    }
+
+    /**
+     * Write the table to disk if it changed since the last save
+     */
+    public void save() {
+        if (!dirty) return;
+        dirty = false;
+
+        // Copy on the main thread, write on the executor
+        final Map<String, Segment> snapshot = new HashMap<>(segments.size());
+        for (Map.Entry<String, Segment> entry : segments.entrySet()) {
+            Segment copy = new Segment();
+            System.arraycopy(entry.getValue().seconds, 0, copy.seconds, 0, SLOTS);
+            System.arraycopy(entry.getValue().counts, 0, copy.counts, 0, SLOTS);
+            snapshot.put(entry.getKey(), copy);
+        }
+        executor.execute(() -> writeFile(snapshot));
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void load() {
+        executor.execute(() -> {
+            final Map<String, Segment> loaded = readFile();
+            if (loaded.isEmpty()) return;
+            mainHandler.post(() -> {
+                // Samples recorded while loading win over the stored ones
+                for (Map.Entry<String, Segment> entry : loaded.entrySet()) {
+                    if (!segments.containsKey(entry.getKey())) {
+                        segments.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                Log.d(TAG, "Loaded travel times for " + loaded.size() + " segments");
+            });
+        });
+    }
+
+    private Map<String, Segment> readFile() {
+        Map<String, Segment> loaded = new HashMap<>();
+        if (!file.exists()) return loaded;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION) return loaded;
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                Segment segment = new Segment();
+                for (int slot = 0; slot < SLOTS; slot++) {
+                    segment.seconds[slot] = in.readFloat();
+                }
+                in.readFully(segment.counts);
+                loaded.put(key, segment);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading travel times", e);
+            loaded.clear();
+        }
+        return loaded;
+    }
+
+    private void writeFile(Map<String, Segment> snapshot) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(FILE_VERSION);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, Segment> entry : snapshot.entrySet()) {
+                out.writeUTF(entry.getKey());
+                for (int slot = 0; slot < SLOTS; slot++) {
+                    out.writeFloat(entry.getValue().seconds[slot]);
+                }
+                out.write(entry.getValue().counts);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing travel times", e);
+            return;
+        }
+
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "Error replacing travel times file");
+        }
+    }
+
+    /**
+     * Bucket for the local hour of day, weekend hours after weekday ones.
+     * Worked out from the zone offset with no shared state, so any thread may call it.
+     */
+    static int bucketFor(long timeMillis, TimeZone zone) {
+        long localMillis = timeMillis + zone.getOffset(timeMillis);
+        long days = localMillis / DAY_MILLIS;
+        int hour = (int) (localMillis % DAY_MILLIS / HOUR_MILLIS);
+        // 1 January 1970 was a Thursday; counting from Monday it is day 3
+        int dayOfWeek = (int) ((days + 3) % 7);
+        boolean weekend = dayOfWeek >= 5;
+        return (weekend ? HOURS : 0) + hour;
+    }
+
+    private static String segmentKey(String fromStopId, String toStopId) {
+        return fromStopId + ">" + toStopId;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.campusride.utils;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import com.google.android.gms.maps.MapView;
+import com.google.android.gms.maps.MapsInitializer;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.example.campusride.data.FleetSnapshotStore;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Initializes the SDKs off the launch path.
+ * Firebase Auth and Firestore are set up on one background thread in
+ * dependency order; screens wait on getFirebaseReady() before their first
+ * getInstance() call so it never blocks the main thread. Maps must be set
+ * up on the main thread, so the Maps SDK and a throwaway MapView are warmed
+ * when the main thread first goes idle, before the map tab is inflated.
+ * The messaging token is fetched after that, once launch is over. The last
+ * known fleet is read from disk in parallel, so the map can draw it before
+ * the network answers. Each component's init time is recorded and logged.
+ */
+public class StartupOrchestrator {
+
+    private static final String TAG = "StartupOrchestrator";
+
+    private static StartupOrchestrator instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Map<String, Long> timings = Collections.synchronizedMap(new LinkedHashMap<>());
+    private boolean started;
+    private Task<Void> firebaseReady;
+
+    public static synchronized StartupOrchestrator getInstance() {
+        if (instance == null) {
+            instance = new StartupOrchestrator();
+        }
+        return instance;
+    }
+
+    private StartupOrchestrator() {
+    }
+
+    /**
+     * Start initialization; call once from Application.onCreate on the main thread
+     */
+    public synchronized void start(Context context) {
+        if (started) return;
+        started = true;
+        Context appContext = context.getApplicationContext();
+
+        // Auth restores the session from disk, Firestore uses it
+        firebaseReady = Tasks.call(executor, () -> {
+            measure("auth", FirebaseAuth::getInstance);
+            measure("firestore", FirebaseFirestore::getInstance);
+            return null;
+        });
+
+        // Reads its file on its own thread and seeds the repositories when done
+        FleetSnapshotStore.getInstance(appContext).start();
+
+        Looper.myQueue().addIdleHandler(() -> {
+            prewarmMaps(appContext);
+            // Auto-init stays off in the manifest; this explicit fetch on each launch replaces it
+            executor.execute(() -> measure("messaging", this::fetchMessagingToken));
+            return false;
+        });
+    }
+
+    /**
+     * Completes on the main thread once Auth and Firestore are initialized
+     */
+    public synchronized Task<Void> getFirebaseReady() {
+        return firebaseReady != null ? firebaseReady : Tasks.forResult(null);
+    }
+
+    /**
+     * Init time per component in milliseconds, in the order they finished
+     */
+    public Map<String, Long> getTimings() {
+        synchronized (timings) {
+            return new LinkedHashMap<>(timings);
+        }
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void prewarmMaps(Context context) {
+        long start = SystemClock.elapsedRealtime();
+        MapsInitializer.initialize(context, MapsInitializer.Renderer.LATEST,
+                renderer -> record("maps_sdk", SystemClock.elapsedRealtime() - start));
+
+        // Loads the maps module and its native code before SupportMapFragment needs them
+        measure("map_view", () -> {
+            MapView mapView = new MapView(context);
+            mapView.onCreate(null);
+            mapView.onDestroy();
+        });
+    }
+
+    private void fetchMessagingToken() {
+        FirebaseMessaging.getInstance().getToken()
+                .addOnFailureListener(e -> Log.e(TAG, "Error fetching messaging token", e));
+    }
+
+    private void measure(String component, Runnable init) {
+        long start = SystemClock.elapsedRealtime();
+        try {
+            init.run();
+        } catch (RuntimeException e) {
+            // The component initializes on first real use instead
+            Log.e(TAG, component + " init failed", e);
+        }
+        record(component, SystemClock.elapsedRealtime() - start);
+    }
+
+    private void record(String component, long millis) {
+        timings.put(component, millis);
+        StartupTracer.mark(component + "_ready");
+        Log.d(TAG, component + " ready in " + millis + " ms on " + Thread.currentThread().getName());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.campusride.utils;
+
+import android.app.Activity;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.Locale;
+
+/**
+ * Records cold start milestones, in milliseconds since the process started.
+ * The headline number is time to first shuttle on the map; it is logged
+ * once per process together with the milestones that led up to it.
+ * Read with: adb logcat -s StartupTracer
+ */
+public class StartupTracer {
+
+    public static final String TAG = "StartupTracer";
+
+    public static final String ACTIVITY_CREATED = "activity_created";
+    public static final String FIRST_FRAME = "first_frame";
+    public static final String MAP_READY = "map_ready";
+    public static final String FLEET_LOADED = "fleet_loaded";
+    public static final String FIRST_SHUTTLE_ON_MAP = "first_shuttle_on_map";
+
+    // Fallback origin on devices that can't report the process start time
+    private static final long CLASS_LOADED = SystemClock.elapsedRealtime();
+
+    private static final StringBuilder milestones = new StringBuilder();
+    private static boolean firstShuttleReported;
+
+    private StartupTracer() {
+    }
+
+    /**
+     * Record a milestone; only the first occurrence of each name counts
+     */
+    public static synchronized void mark(String name) {
+        if (firstShuttleReported || milestones.indexOf(name + "=") >= 0) return;
+        record(name);
+    }
+
+    /**
+     * Record that a shuttle is on the map and report the startup timeline.
+     * The activity is reported fully drawn, so the system's own startup
+     * metrics end at the same point.
+     */
+    public static synchronized void firstShuttleOnMap(Activity activity) {
+        if (firstShuttleReported) return;
+        firstShuttleReported = true;
+        long elapsed = record(FIRST_SHUTTLE_ON_MAP);
+        Log.i(TAG, String.format(Locale.US, "Time to first shuttle on map: %d ms (%s)", elapsed, milestones));
+        if (activity != null) {
+            activity.reportFullyDrawn();
+        }
+    }
+
+    /**
+     * Milliseconds since the process started
+     */
+    public static long sinceStart() {
+        long start = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                ? Process.getStartElapsedRealtime() : CLASS_LOADED;
+        return SystemClock.elapsedRealtime() - start;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static long record(String name) {
+        long elapsed = sinceStart();
+        if (milestones.length() > 0) milestones.append(", ");
+        milestones.append(name).append('=').append(elapsed).append("ms");
+        Log.d(TAG, name + " at " + elapsed + " ms");
+        return elapsed;
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.campusride.utils;
+
+import com.example.campusride.data.ChangeSet;
+import com.example.campusride.data.CollectionState;
+import com.example.campusride.models.Stop;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Uniform grid over stop coordinates for nearest-stop and radius queries.
+ * Coordinates are projected to meters around a reference latitude, which is
+ * accurate to well under a percent across a city-sized deployment.
+ * The index can be patched from a stop collection's change set.
+ */
+public class StopSpatialIndex {
+
+    private static final double METERS_PER_DEGREE_LAT = 110540;
+    private static final double METERS_PER_DEGREE_LON = 111320;
+    private static final double DEFAULT_CELL_SIZE = 250; // meters
+
+    private final double cellSize;
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private boolean projected;
+    private double lonScale;
+    private int minCellX, maxCellX, minCellY, maxCellY;
+
+    /**
+     * A stop with its projected position
+     */
+    private static class Entry {
+        final Stop stop;
+        final double x;
+        final double y;
+        final long cellKey;
+
+        Entry(Stop stop, double x, double y, long cellKey) {
+            this.stop = stop;
+            this.x = x;
+            this.y = y;
+            this.cellKey = cellKey;
+        }
+    }
+
+    /**
+     * Candidate produced while searching
+     */
+    private static class Candidate {
+        final Stop stop;
+        final double distanceSquared;
+
+        Candidate(Stop stop, double distanceSquared) {
+            this.stop = stop;
+            this.distanceSquared = distanceSquared;
+        }
+    }
+
+    public StopSpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public StopSpatialIndex(double cellSizeMeters) {
+        this.cellSize = cellSizeMeters;
+    }
+
+    /**
+     * Patch the index from a stop collection state
+     */
+    public void apply(CollectionState<Stop> state) {
+        ChangeSet changes = state.getChanges();
+        if (changes.isFullRefresh()) {
+            clear();
+            for (Map.Entry<String, Stop> item : state.getItemsById().entrySet()) {
+                put(item.getKey(), item.getValue());
+            }
+            return;
+        }
+
+        for (String id : changes.getRemoved()) {
+            remove(id);
+        }
+        for (String id : changes.getModified()) {
+            put(id, state.get(id));
+        }
+        for (String id : changes.getAdded()) {
+            put(id, state.get(id));
+        }
+    }
+
+    /**
+     * Add or move a stop
+     */
+    public void put(String id, Stop stop) {
+        remove(id);
+        if (stop == null || !hasCoordinates(stop)) return;
+
+        if (!projected) {
+            // First stop fixes the projection for the lifetime of the index
+            lonScale = Math.cos(Math.toRadians(stop.getLatitude()));
+            projected = true;
+            minCellX = minCellY = Integer.MAX_VALUE;
+            maxCellX = maxCellY = Integer.MIN_VALUE;
+        }
+
+        double x = projectX(stop.getLongitude());
+        double y = projectY(stop.getLatitude());
+        int cellX = cellOf(x);
+        int cellY = cellOf(y);
+        Entry entry = new Entry(stop, x, y, cellKey(cellX, cellY));
+
+        List<Entry> cell = cells.get(entry.cellKey);
+        if (cell == null) {
+            cell = new ArrayList<>(4);
+            cells.put(entry.cellKey, cell);
+        }
+        cell.add(entry);
+        entries.put(id, entry);
+
+        minCellX = Math.min(minCellX, cellX);
+        maxCellX = Math.max(maxCellX, cellX);
+        minCellY = Math.min(minCellY, cellY);
+        maxCellY = Math.max(maxCellY, cellY);
+    }
+
+    /**
+     * Remove a stop
+     */
+    public void remove(String id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) return;
+
+        List<Entry> cell = cells.get(entry.cellKey);
+        if (cell != null) {
+            cell.remove(entry);
+            if (cell.isEmpty()) cells.remove(entry.cellKey);
+        }
+    }
+
+    public void clear() {
+        cells.clear();
+        entries.clear();
+        projected = false;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the stop nearest to a position, or null if the index is empty
+     */
+    public Stop nearest(double latitude, double longitude) {
+        List<Stop> result = nearest(latitude, longitude, 1);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * Get up to k stops nearest to a position, closest first
+     */
+    public List<Stop> nearest(double latitude, double longitude, int k) {
+        if (k <= 0 || entries.isEmpty()) return Collections.emptyList();
+
+        double x = projectX(longitude);
+        double y = projectY(latitude);
+        int centerX = cellOf(x);
+        int centerY = cellOf(y);
+
+        // Max-heap of the best k so far
+        PriorityQueue<Candidate> best = new PriorityQueue<>(k,
+                (a, b) -> Double.compare(b.distanceSquared, a.distanceSquared));
+
+        // Rings that miss the occupied cells are skipped, so far-away queries stay cheap
+        int firstRing = Math.max(Math.max(minCellX - centerX, centerX - maxCellX),
+                Math.max(minCellY - centerY, centerY - maxCellY));
+        firstRing = Math.max(firstRing, 0);
+        int maxRing = Math.max(Math.max(Math.abs(centerX - minCellX), Math.abs(centerX - maxCellX)),
+                Math.max(Math.abs(centerY - minCellY), Math.abs(centerY - maxCellY)));
+
+        for (int ring = firstRing; ring <= maxRing; ring++) {
+            scanRing(centerX, centerY, ring, x, y, k, best);
+
+            // Anything in further rings is at least this far away
+            double reach = ring * cellSize;
+            if (best.size() == k && best.peek().distanceSquared <= reach * reach) {
+                break;
+            }
+        }
+
+        return toSortedStops(best);
+    }
+
+    /**
+     * Get every stop within a radius of a position, closest first
+     */
+    public List<Stop> withinRadius(double latitude, double longitude, double radiusMeters) {
+        if (entries.isEmpty() || radiusMeters < 0) return Collections.emptyList();
+
+        double x = projectX(longitude);
+        double y = projectY(latitude);
+        double radiusSquared = radiusMeters * radiusMeters;
+        int fromX = Math.max(cellOf(x - radiusMeters), minCellX);
+        int toX = Math.min(cellOf(x + radiusMeters), maxCellX);
+        int fromY = Math.max(cellOf(y - radiusMeters), minCellY);
+        int toY = Math.min(cellOf(y + radiusMeters), maxCellY);
+
+        List<Candidate> found = new ArrayList<>();
+        for (int cellX = fromX; cellX <= toX; cellX++) {
+            for (int cellY = fromY; cellY <= toY; cellY++) {
+                List<Entry> cell = cells.get(cellKey(cellX, cellY));
+                if (cell == null) continue;
+                for (Entry entry : cell) {
+                    double d = distanceSquared(entry, x, y);
+                    if (d <= radiusSquared) found.add(new Candidate(entry.stop, d));
+                }
+            }
+        }
+
+        Collections.sort(found, (a, b) -> Double.compare(a.distanceSquared, b.distanceSquared));
+        List<Stop> stops = new ArrayList<>(found.size());
+        for (Candidate candidate : found) {
+            stops.add(candidate.stop);
+        }
+        return stops;
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Visit the cells of one ring that lie inside the occupied bounds
+     */
+    private void scanRing(int centerX, int centerY, int ring, double x, double y, int k,
+                          PriorityQueue<Candidate> best) {
+        int fromX = Math.max(centerX - ring, minCellX);
+        int toX = Math.min(centerX + ring, maxCellX);
+        int fromY = Math.max(centerY - ring, minCellY);
+        int toY = Math.min(centerY + ring, maxCellY);
+
+        for (int cellX = fromX; cellX <= toX; cellX++) {
+            boolean edgeColumn = cellX == centerX - ring || cellX == centerX + ring;
+            if (edgeColumn) {
+                for (int cellY = fromY; cellY <= toY; cellY++) {
+                    scanCell(cellX, cellY, x, y, k, best);
+                }
+            } else {
+                // Interior columns only contribute their top and bottom cells
+                if (centerY - ring >= minCellY) scanCell(cellX, centerY - ring, x, y, k, best);
+                if (centerY + ring <= maxCellY) scanCell(cellX, centerY + ring, x, y, k, best);
+            }
+        }
+    }
+
+    private void scanCell(int cellX, int cellY, double x, double y, int k, PriorityQueue<Candidate> best) {
+        List<Entry> cell = cells.get(cellKey(cellX, cellY));
+        if (cell == null) return;
+
+        for (Entry entry : cell) {
+            double d = distanceSquared(entry, x, y);
+            if (best.size() < k) {
+                best.add(new Candidate(entry.stop, d));
+            } else if (d < best.peek().distanceSquared) {
+                best.poll();
+                best.add(new Candidate(entry.stop, d));
+            }
+        }
+    }
+
+    private static List<Stop> toSortedStops(PriorityQueue<Candidate> best) {
+        Stop[] sorted = new Stop[best.size()];
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            sorted[i] = best.poll().stop;
+        }
+        List<Stop> stops = new ArrayList<>(sorted.length);
+        Collections.addAll(stops, sorted);
+        return stops;
+    }
+
+    private static boolean hasCoordinates(Stop stop) {
+        return stop.getLatitude() != 0 || stop.getLongitude() != 0;
+    }
+
+    private static double distanceSquared(Entry entry, double x, double y) {
+        double dx = entry.x - x;
+        double dy = entry.y - y;
+        return dx * dx + dy * dy;
+    }
+
+    private double projectX(double longitude) {
+        return longitude * METERS_PER_DEGREE_LON * lonScale;
+    }
+
+    private double projectY(double latitude) {
+        return latitude * METERS_PER_DEGREE_LAT;
+    }
+
+    private int cellOf(double meters) {
+        return (int) Math.floor(meters / cellSize);
+    }
+
+    private static long cellKey(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xffffffffL);
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.campusride.utils;
+
+import com.example.campusride.models.Route;
+import com.example.campusride.models.Stop;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A route's schedule compiled into sorted departure tables.
+ * Times are minutes since midnight. Trips leave the first stop at the
+ * times in a base table per day type; every later stop departs a fixed
+ * offset after that, so a stop's table is the base table shifted by its
+ * offset and one binary search answers "next departure after T".
+ * Instances are immutable and lookups allocate nothing.
+ */
+public final class Timetable {
+
+    // Used when a route has no parsable operating hours
+    private static final int DEFAULT_WEEKDAY_START = 6 * 60;
+    private static final int DEFAULT_WEEKDAY_END = 22 * 60;
+    private static final int DEFAULT_WEEKEND_START = 8 * 60;
+    private static final int DEFAULT_WEEKEND_END = 20 * 60;
+
+    private static final int[] NO_DEPARTURES = new int[0];
+
+    private final String routeId;
+    private final String version;
+    private final String[] stopIds;
+    private final int[] stopOffsets; // minutes after leaving the first stop
+    private final int loopMinutes; // back at the first stop, ready for the next lap
+    private final int[] weekdayDepartures;
+    private final int[] weekendDepartures;
+
+    private Timetable(String routeId, String version, String[] stopIds, int[] stopOffsets, int loopMinutes,
+                      int[] weekdayDepartures, int[] weekendDepartures) {
+        this.routeId = routeId;
+        this.version = version;
+        this.stopIds = stopIds;
+        this.stopOffsets = stopOffsets;
+        this.loopMinutes = loopMinutes;
+        this.weekdayDepartures = weekdayDepartures;
+        this.weekendDepartures = weekendDepartures;
+    }
+
+    /**
+     * Compile a route with offsets at the default speed
+     */
+    public static Timetable compile(Route route, Map<String, Stop> stopsById) {
+        return compile(route, stopsById, null);
+    }
+
+    /**
+     * Compile a route; stop offsets come from the typical learned travel
+     * time between consecutive stops, or their distance when a segment has
+     * not been observed. Stops without coordinates add no time.
+     * @param travelTimes learned travel times, or null for the default speed
+     */
+    public static Timetable compile(Route route, Map<String, Stop> stopsById, RouteEtaEngine.TravelTimes travelTimes) {
+        List<String> routeStops = route.getStopIds();
+        int stopCount = routeStops != null ? routeStops.size() : 0;
+        String[] stopIds = new String[stopCount];
+        int[] stopOffsets = new int[stopCount];
+
+        Stop previous = null;
+        int offset = 0;
+        for (int i = 0; i < stopCount; i++) {
+            stopIds[i] = routeStops.get(i);
+            Stop stop = stopsById.get(stopIds[i]);
+            if (previous != null && stop != null) {
+                offset += GeoUtils.calculateETA(travelTimes, previous.getStopId(), stopIds[i],
+                        previous.distanceTo(stop));
+            }
+            stopOffsets[i] = offset;
+            if (stop != null) previous = stop;
+        }
+
+        // Shuttles loop back to the first stop
+        Stop first = stopCount > 0 ? stopsById.get(stopIds[0]) : null;
+        int loopMinutes = offset;
+        if (first != null && previous != null && previous != first) {
+            loopMinutes += GeoUtils.calculateETA(travelTimes, previous.getStopId(), first.getStopId(),
+                    previous.distanceTo(first));
+        }
+
+        int start = parseMinutes(route.getStartTime());
+        int end = parseMinutes(route.getEndTime());
+        boolean hasHours = start >= 0 && end >= 0;
+        int frequency = route.getFrequencyMinutes();
+
+        int[] weekday = departures(hasHours ? start : DEFAULT_WEEKDAY_START,
+                hasHours ? end : DEFAULT_WEEKDAY_END, frequency);
+        int[] weekend = route.isWeekdayOnly() ? NO_DEPARTURES : departures(
+                hasHours ? start : DEFAULT_WEEKEND_START, hasHours ? end : DEFAULT_WEEKEND_END, frequency);
+
+        return new Timetable(route.getRouteId(), versionOf(route, stopsById, travelTimes), stopIds, stopOffsets,
+                loopMinutes, weekday, weekend);
+    }
+
+    /**
+     * Fingerprint of everything a compiled timetable depends on
+     */
+    public static String versionOf(Route route, Map<String, Stop> stopsById) {
+        return versionOf(route, stopsById, null);
+    }
+
+    /**
+     * Fingerprint of everything a compiled timetable depends on, including
+     * the learned segment times rounded to minutes
+     */
+    public static String versionOf(Route route, Map<String, Stop> stopsById, RouteEtaEngine.TravelTimes travelTimes) {
+        StringBuilder version = new StringBuilder()
+                .append(route.getStartTime()).append('|')
+                .append(route.getEndTime()).append('|')
+                .append(route.getFrequencyMinutes()).append('|')
+                .append(route.isWeekdayOnly());
+        if (route.getStopIds() != null) {
+            for (String stopId : route.getStopIds()) {
+                Stop stop = stopsById.get(stopId);
+                version.append('|').append(stopId);
+                if (stop != null) {
+                    version.append('@').append(stop.getLatitude()).append(',').append(stop.getLongitude());
+                }
+            }
+            if (travelTimes != null) {
+                appendLearnedMinutes(version, route.getStopIds(), stopsById, travelTimes);
+            }
+        }
+        return version.toString();
+    }
+
+    public String getRouteId() {
+        return routeId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getStopCount() {
+        return stopIds.length;
+    }
+
+    public String getStopId(int stopIndex) {
+        return stopIds[stopIndex];
+    }
+
+    /**
+     * Minutes from leaving the first stop to reaching a stop
+     */
+    public int getStopOffset(int stopIndex) {
+        return stopOffsets[stopIndex];
+    }
+
+    /**
+     * Minutes for one full lap back to the first stop
+     */
+    public int getLoopMinutes() {
+        return loopMinutes;
+    }
+
+    /**
+     * Position of a stop on the route, or -1
+     */
+    public int indexOfStop(String stopId) {
+        for (int i = 0; i < stopIds.length; i++) {
+            if (stopIds[i].equals(stopId)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Check if any trip runs on the given day type
+     */
+    public boolean runs(boolean weekend) {
+        return tableFor(weekend).length > 0;
+    }
+
+    /**
+     * First departure from a stop, or -1 if the route doesn't run
+     */
+    public int firstDeparture(int stopIndex, boolean weekend) {
+        int[] table = tableFor(weekend);
+        return table.length > 0 ? table[0] + stopOffsets[stopIndex] : -1;
+    }
+
+    /**
+     * Last departure from a stop, or -1 if the route doesn't run
+     */
+    public int lastDeparture(int stopIndex, boolean weekend) {
+        int[] table = tableFor(weekend);
+        return table.length > 0 ? table[table.length - 1] + stopOffsets[stopIndex] : -1;
+    }
+
+    /**
+     * Next departure from a stop at or after a time
+     * @return minutes since midnight, or -1 if there are no more today
+     */
+    public int nextDeparture(int stopIndex, boolean weekend, int minuteOfDay) {
+        int[] table = tableFor(weekend);
+        int index = firstAtOrAfter(table, minuteOfDay - stopOffsets[stopIndex]);
+        return index < table.length ? table[index] + stopOffsets[stopIndex] : -1;
+    }
+
+    /**
+     * Fill a caller-owned buffer with the next departures from a stop
+     * @return number of departures written
+     */
+    public int nextDepartures(int stopIndex, boolean weekend, int minuteOfDay, int[] out) {
+        int[] table = tableFor(weekend);
+        int index = firstAtOrAfter(table, minuteOfDay - stopOffsets[stopIndex]);
+        int count = Math.min(out.length, table.length - index);
+        for (int i = 0; i < count; i++) {
+            out[i] = table[index + i] + stopOffsets[stopIndex];
+        }
+        return count;
+    }
+
+    /**
+     * Format minutes since midnight as "6:05 AM"
+     */
+    public static String formatMinutes(int minuteOfDay) {
+        int hours = (minuteOfDay / 60) % 24;
+        int minutes = minuteOfDay % 60;
+        int displayHours = hours % 12 == 0 ? 12 : hours % 12;
+        return String.format(Locale.US, "%d:%02d %s", displayHours, minutes, hours < 12 ? "AM" : "PM");
+    }
+
+    /**
+     * Parse "6:00 AM", "6 PM", "06:00" or "18:30"
+     * @return minutes since midnight, or -1 if the text is not a time
+     */
+    public static int parseMinutes(String text) {
+        if (text == null) return -1;
+
+        String value = text.trim().toUpperCase(Locale.US);
+        boolean pm = value.endsWith("PM");
+        boolean am = value.endsWith("AM");
+        if (am || pm) value = value.substring(0, value.length() - 2).trim();
+
+        int colon = value.indexOf(':');
+        int hours;
+        int minutes;
+        try {
+            hours = Integer.parseInt(colon >= 0 ? value.substring(0, colon) : value);
+            minutes = colon >= 0 ? Integer.parseInt(value.substring(colon + 1)) : 0;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+
+        if (am || pm) {
+            if (hours < 1 || hours > 12) return -1;
+            hours = hours % 12 + (pm ? 12 : 0);
+        }
+        if (hours < 0 || hours > 24 || minutes < 0 || minutes > 59) return -1;
+        return hours * 60 + minutes;
+    }
+
+    /**
+     * First-stop departure table, shared and not to be modified
+     */
+    int[] departureTable(boolean weekend) {
+        return tableFor(weekend);
+    }
+
+    /**
+     * Helper methods
+     */
+
+    /**
+     * Learned minutes for the segments compile() adds up, so the version
+     * moves on when the model's estimate for any of them does
+     */
+    private static void appendLearnedMinutes(StringBuilder version, List<String> routeStops,
+                                             Map<String, Stop> stopsById, RouteEtaEngine.TravelTimes travelTimes) {
+        String previousId = null;
+        for (String stopId : routeStops) {
+            if (stopsById.get(stopId) == null) continue;
+            if (previousId != null) appendLearnedMinutes(version, previousId, stopId, travelTimes);
+            previousId = stopId;
+        }
+        String firstId = routeStops.isEmpty() ? null : routeStops.get(0);
+        if (previousId != null && stopsById.get(firstId) != null && !previousId.equals(firstId)) {
+            appendLearnedMinutes(version, previousId, firstId, travelTimes);
+        }
+    }
+
+    private static void appendLearnedMinutes(StringBuilder version, String fromStopId, String toStopId,
+                                             RouteEtaEngine.TravelTimes travelTimes) {
+        double seconds = travelTimes.typicalSeconds(fromStopId, toStopId);
+        version.append('~').append(seconds >= 0 ? (int) Math.ceil(seconds / 60) : -1);
+    }
+
+    private int[] tableFor(boolean weekend) {
+        return weekend ? weekendDepartures : weekdayDepartures;
+    }
+
+    private static int[] departures(int start, int end, int frequency) {
+        if (end < start) return NO_DEPARTURES;
+        if (frequency <= 0) return new int[]{start};
+
+        int[] table = new int[(end - start) / frequency + 1];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = start + i * frequency;
+        }
+        return table;
+    }
+
+    /**
+     * Index of the first entry at or after a value, or the table length
+     */
+    private static int firstAtOrAfter(int[] table, int value) {
+        int index = Arrays.binarySearch(table, value);
+        if (index < 0) return -index - 1;
+        // Tables may repeat a time; step back to its first occurrence
+        while (index > 0 && table[index - 1] == value) index--;
+        return index;
+    }
+}
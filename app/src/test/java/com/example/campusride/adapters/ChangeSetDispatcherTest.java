@@ -0,0 +1,178 @@
+package com.example.campusride.adapters;
+
+import com.example.campusride.data.ChangeSet;
+import com.example.campusride.data.CollectionState;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.example.campusride.data.TestStates.changes;
+import static com.example.campusride.data.TestStates.fullRefresh;
+import static com.example.campusride.data.TestStates.ids;
+import static com.example.campusride.data.TestStates.none;
+import static com.example.campusride.data.TestStates.state;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ChangeSetDispatcher list updates and row notifications
+ */
+public class ChangeSetDispatcherTest {
+
+    private final Map<String, Item> items = new LinkedHashMap<>();
+    private final List<Item> list = new ArrayList<>();
+    private final RecordingNotifier notifier = new RecordingNotifier();
+
+    @Before
+    public void setUp() {
+        put("a", true);
+        put("b", false);
+        put("c", true);
+        put("d", true);
+        dispatch(fullRefresh());
+        notifier.events.clear();
+    }
+
+    @Test
+    public void fullRefresh_rebuildsFilteredList() {
+        assertList("a", "c", "d");
+
+        put("e", true);
+        dispatch(fullRefresh());
+
+        assertList("a", "c", "d", "e");
+        assertEvents("reset");
+    }
+
+    @Test
+    public void removed_notifiesRemovedRow() {
+        items.remove("c");
+        dispatch(changes(none(), none(), ids("c")));
+
+        assertList("a", "d");
+        assertEvents("removed 1");
+    }
+
+    @Test
+    public void removed_ignoresRowsNotShown() {
+        items.remove("b");
+        dispatch(changes(none(), none(), ids("b", "x")));
+
+        assertList("a", "c", "d");
+        assertEvents();
+    }
+
+    @Test
+    public void modified_replacesRowInPlace() {
+        Item updated = put("c", true);
+        dispatch(changes(none(), ids("c"), none()));
+
+        assertList("a", "c", "d");
+        assertSame(updated, list.get(1));
+        assertEvents("changed 1");
+    }
+
+    @Test
+    public void modified_removesRowThatNoLongerMatches() {
+        put("a", false);
+        dispatch(changes(none(), ids("a"), none()));
+
+        assertList("c", "d");
+        assertEvents("removed 0");
+    }
+
+    @Test
+    public void modified_appendsRowThatNowMatches() {
+        put("b", true);
+        dispatch(changes(none(), ids("b"), none()));
+
+        assertList("a", "c", "d", "b");
+        assertEvents("inserted 3");
+    }
+
+    @Test
+    public void added_appendsMatchingRowsOnly() {
+        put("e", true);
+        put("f", false);
+        dispatch(changes(ids("e", "f"), none(), none()));
+
+        assertList("a", "c", "d", "e");
+        assertEvents("inserted 3");
+    }
+
+    @Test
+    public void mixedChanges_notifyPositionsInOrder() {
+        items.remove("a");
+        Item updated = put("d", true);
+        put("e", true);
+        dispatch(changes(ids("e"), ids("d"), ids("a")));
+
+        assertList("c", "d", "e");
+        assertSame(updated, list.get(1));
+        assertEvents("removed 0", "changed 1", "inserted 2");
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private Item put(String id, boolean visible) {
+        Item item = new Item(id, visible);
+        items.put(id, item);
+        return item;
+    }
+
+    private void dispatch(ChangeSet changes) {
+        CollectionState<Item> state = state(items, changes);
+        ChangeSetDispatcher.dispatch(state, list, item -> item.id, item -> item.visible, notifier);
+    }
+
+    private void assertList(String... ids) {
+        List<String> actual = new ArrayList<>();
+        for (Item item : list) {
+            actual.add(item.id);
+        }
+        assertEquals(Arrays.asList(ids), actual);
+    }
+
+    private void assertEvents(String... events) {
+        assertEquals(Arrays.asList(events), notifier.events);
+    }
+
+    private static final class Item {
+        final String id;
+        final boolean visible;
+
+        Item(String id, boolean visible) {
+            this.id = id;
+            this.visible = visible;
+        }
+    }
+
+    private static final class RecordingNotifier implements ChangeSetDispatcher.RowNotifier {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void notifyDataSetChanged() {
+            events.add("reset");
+        }
+
+        @Override
+        public void notifyItemInserted(int position) {
+            events.add("inserted " + position);
+        }
+
+        @Override
+        public void notifyItemChanged(int position) {
+            events.add("changed " + position);
+        }
+
+        @Override
+        public void notifyItemRemoved(int position) {
+            events.add("removed " + position);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.campusride.adapters;
+
+import com.example.campusride.models.Shuttle;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ShuttleListItem change detection
+ */
+public class ShuttleListItemTest {
+
+    @Test
+    public void diff_isZeroForSameValues() {
+        ShuttleListItem item = item(shuttle(), 5, 1.2, true, false);
+
+        assertEquals(0, item.diff(item(shuttle(), 5, 1.2, true, false)));
+        assertEquals(item, item(shuttle(), 5, 1.2, true, false));
+    }
+
+    @Test
+    public void diff_flagsEtaChange() {
+        ShuttleListItem item = item(shuttle(), 5, 1.2, true, false);
+
+        assertEquals(ShuttleListItem.CHANGE_ETA, item.diff(item(shuttle(), 6, 1.2, true, false)));
+        // Straight-line ETAs read differently
+        assertEquals(ShuttleListItem.CHANGE_ETA, item.diff(item(shuttle(), 5, 1.2, false, false)));
+    }
+
+    @Test
+    public void diff_flagsDistanceChangeOnlyWhenShownValueChanges() {
+        ShuttleListItem item = item(shuttle(), 5, 1.21, true, false);
+
+        assertEquals(0, item.diff(item(shuttle(), 5, 1.24, true, false)));
+        assertEquals(ShuttleListItem.CHANGE_DISTANCE, item.diff(item(shuttle(), 5, 1.36, true, false)));
+    }
+
+    @Test
+    public void diff_flagsCapacityChange() {
+        Shuttle fuller = shuttle();
+        fuller.setCurrentPassengers(12);
+
+        assertEquals(ShuttleListItem.CHANGE_CAPACITY,
+                item(shuttle(), 5, 1.2, true, false).diff(item(fuller, 5, 1.2, true, false)));
+    }
+
+    @Test
+    public void diff_flagsOtherChanges() {
+        ShuttleListItem item = item(shuttle(), 5, 1.2, true, false);
+
+        Shuttle renamed = shuttle();
+        renamed.setShuttleName("Shuttle B");
+        Shuttle rerouted = shuttle();
+        rerouted.setCurrentRoute("Night Loop");
+        Shuttle onBreak = shuttle();
+        onBreak.setStatus(Shuttle.ShuttleStatus.ON_BREAK);
+
+        assertEquals(ShuttleListItem.CHANGE_OTHER, item.diff(item(renamed, 5, 1.2, true, false)));
+        assertEquals(ShuttleListItem.CHANGE_OTHER, item.diff(item(rerouted, 5, 1.2, true, false)));
+        assertEquals(ShuttleListItem.CHANGE_OTHER, item.diff(item(onBreak, 5, 1.2, true, false)));
+        assertEquals(ShuttleListItem.CHANGE_OTHER, item.diff(item(shuttle(), 5, 1.2, true, true)));
+    }
+
+    @Test
+    public void diff_combinesFlags() {
+        Shuttle fuller = shuttle();
+        fuller.setCurrentPassengers(12);
+
+        int changes = item(shuttle(), 5, 1.2, true, false).diff(item(fuller, 3, 0.4, true, false));
+
+        assertEquals(ShuttleListItem.CHANGE_ETA | ShuttleListItem.CHANGE_DISTANCE
+                | ShuttleListItem.CHANGE_CAPACITY, changes);
+    }
+
+    @Test
+    public void from_showsPlaceholdersWithoutEta() {
+        ShuttleListItem item = item(shuttle(), 0, 0, true, false);
+
+        assertEquals("--", item.getEtaText());
+        assertEquals("--", item.getDistanceText());
+        assertTrue(item(shuttle(), 5, 1.2, false, false).getEtaText().startsWith("~"));
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static Shuttle shuttle() {
+        Shuttle shuttle = new Shuttle("s1", "Shuttle A", "GR-1", 20);
+        shuttle.setStatus(Shuttle.ShuttleStatus.ACTIVE);
+        shuttle.setCurrentRoute("Campus Loop");
+        shuttle.setCurrentPassengers(8);
+        return shuttle;
+    }
+
+    private static ShuttleListItem item(Shuttle shuttle, int etaMinutes, double distanceKm, boolean alongRoute,
+                                        boolean stale) {
+        return ShuttleListItem.from(shuttle, etaMinutes, distanceKm, alongRoute, stale);
+    }
+}
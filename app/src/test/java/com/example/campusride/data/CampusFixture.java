@@ -0,0 +1,57 @@
+package com.example.campusride.data;
+
+import com.example.campusride.models.Route;
+import com.example.campusride.models.Shuttle;
+import com.example.campusride.models.Stop;
+import com.google.firebase.firestore.GeoPoint;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A small campus for tests: the "Campus Loop" triangle gate -> library ->
+ * hall -> gate, about 1 km and 2 minutes at 30 km/h per leg, plus a depot
+ * off the route. Each instance has its own stops, so tests may change them.
+ */
+public final class CampusFixture {
+
+    public final Stop gate = new Stop("gate", "Main Gate", 5.1000, -1.2800);
+    public final Stop library = new Stop("library", "Library", 5.1089, -1.2800);
+    public final Stop hall = new Stop("hall", "Hall", 5.1089, -1.2889);
+    public final Stop depot = new Stop("depot", "Depot", 5.1000, -1.2700);
+    public final Map<String, Stop> stopsById = new HashMap<>();
+
+    public CampusFixture() {
+        for (Stop stop : Arrays.asList(gate, library, hall, depot)) {
+            stopsById.put(stop.getStopId(), stop);
+        }
+    }
+
+    /**
+     * The loop's stops in driving order
+     */
+    public List<Stop> loopStops() {
+        return Arrays.asList(gate, library, hall);
+    }
+
+    /**
+     * The loop route, every 10 minutes
+     */
+    public static Route loop() {
+        Route route = new Route("loop", "Campus Loop", 10);
+        route.setStopIds(Arrays.asList("gate", "library", "hall"));
+        return route;
+    }
+
+    /**
+     * An active shuttle "s1" on a route, given by id or name
+     */
+    public static Shuttle shuttle(String route, double latitude, double longitude) {
+        Shuttle shuttle = new Shuttle("s1", "Shuttle 1", "GR-1", 20);
+        shuttle.setStatus(Shuttle.ShuttleStatus.ACTIVE);
+        shuttle.setCurrentRoute(route);
+        shuttle.setCurrentLocation(new GeoPoint(latitude, longitude));
+        return shuttle;
+    }
+}
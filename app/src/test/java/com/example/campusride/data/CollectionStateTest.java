@@ -0,0 +1,61 @@
+package com.example.campusride.data;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for CollectionState item access
+ */
+public class CollectionStateTest {
+
+    @Test
+    public void getItems_followsMapOrderAndIsBuiltOnce() {
+        CollectionState<String> state = new CollectionState<>(items("b", "a", "c"), ChangeSet.fullRefresh(), false, 0);
+
+        assertEquals(Arrays.asList("B", "A", "C"), state.getItems());
+        assertSame(state.getItems(), state.getItems());
+        assertEquals(3, state.size());
+        assertEquals("A", state.get("a"));
+    }
+
+    @Test
+    public void getItemsById_isReadOnly() {
+        CollectionState<String> state = new CollectionState<>(items("a"), ChangeSet.fullRefresh(), false, 0);
+
+        try {
+            state.getItemsById().put("b", "B");
+            fail("expected the map to be read-only");
+        } catch (UnsupportedOperationException expected) {
+            assertNull(state.get("b"));
+        }
+    }
+
+    @Test
+    public void asFullRefresh_sharesItems() {
+        CollectionState<String> state = new CollectionState<>(items("a", "b"), ChangeSet.none(), true, 42);
+        state.getItems();
+        CollectionState<String> refresh = state.asFullRefresh();
+
+        assertTrue(refresh.getChanges().isFullRefresh());
+        assertSame(state.getItemsById(), refresh.getItemsById());
+        assertSame(state.getItems(), refresh.getItems());
+        assertEquals(42, refresh.getTimestamp());
+        assertTrue(refresh.isFromCache());
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static Map<String, String> items(String... ids) {
+        Map<String, String> items = new LinkedHashMap<>();
+        for (String id : ids) {
+            items.put(id, id.toUpperCase());
+        }
+        return items;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.campusride.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the per-stop ranking kept by EtaTracker
+ */
+public class EtaTrackerRankingTest {
+
+    private EtaTracker.StopBoard board;
+
+    @Before
+    public void setUp() {
+        board = new EtaTracker.StopBoard();
+    }
+
+    @Test
+    public void ranking_ordersBySoonestArrival() {
+        board.put(eta("s1", 2.0, 6, true));
+        board.put(eta("s2", 0.5, 2, true));
+        board.put(eta("s3", 1.0, 4, true));
+
+        assertRanking("s2", "s3", "s1");
+        assertEquals("s2", board.first().getShuttleId());
+    }
+
+    @Test
+    public void ranking_breaksTiesByDistanceThenId() {
+        board.put(eta("s3", 1.0, 3, true));
+        board.put(eta("s1", 1.0, 3, true));
+        board.put(eta("s2", 0.8, 3, true));
+
+        assertRanking("s2", "s1", "s3");
+    }
+
+    @Test
+    public void ranking_putsStraightLineEstimatesLast() {
+        board.put(eta("near", 0.2, 1, false));
+        board.put(eta("onRoute", 3.0, 9, true));
+
+        assertRanking("onRoute", "near");
+        assertEquals("onRoute", board.first().getShuttleId());
+    }
+
+    @Test
+    public void put_replacesShuttlesPreviousEstimate() {
+        board.put(eta("s1", 1.0, 3, true));
+        board.put(eta("s2", 2.0, 5, true));
+
+        board.put(eta("s1", 3.0, 8, true));
+
+        assertRanking("s2", "s1");
+        assertEquals(8, board.get("s1").getEtaMinutes());
+    }
+
+    @Test
+    public void remove_dropsShuttleFromRanking() {
+        board.put(eta("s1", 1.0, 3, true));
+        board.put(eta("s2", 2.0, 5, true));
+
+        board.remove("s1");
+        board.remove("unknown");
+
+        assertRanking("s2");
+        assertNull(board.get("s1"));
+    }
+
+    @Test
+    public void clear_emptiesRanking() {
+        board.put(eta("s1", 1.0, 3, true));
+
+        board.clear();
+
+        assertTrue(board.getRanking().isEmpty());
+        assertNull(board.first());
+    }
+
+    @Test
+    public void getRanking_isLiveReadOnlyView() {
+        Collection<EtaTracker.Eta> ranking = board.getRanking();
+        board.put(eta("s1", 1.0, 3, true));
+
+        assertEquals(1, ranking.size());
+        assertSame(ranking, board.getRanking());
+        assertThrows(UnsupportedOperationException.class, () -> ranking.clear());
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static EtaTracker.Eta eta(String shuttleId, double distanceKm, int etaMinutes, boolean alongRoute) {
+        return new EtaTracker.Eta(shuttleId, distanceKm, etaMinutes, alongRoute);
+    }
+
+    private void assertRanking(String... shuttleIds) {
+        List<String> actual = new ArrayList<>();
+        for (EtaTracker.Eta eta : board.getRanking()) {
+            actual.add(eta.getShuttleId());
+        }
+        assertArrayEquals(shuttleIds, actual.toArray(new String[0]));
+    }
+}
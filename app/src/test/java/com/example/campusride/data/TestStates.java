@@ -0,0 +1,38 @@
+package com.example.campusride.data;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds collection states for tests outside the data package
+ */
+public final class TestStates {
+
+    private TestStates() {
+    }
+
+    /**
+     * A live state holding the given items and changes
+     */
+    public static <T> CollectionState<T> state(Map<String, T> itemsById, ChangeSet changes) {
+        // Copied, so tests can keep changing their map
+        return new CollectionState<>(new LinkedHashMap<>(itemsById), changes, false, 0);
+    }
+
+    public static ChangeSet fullRefresh() {
+        return ChangeSet.fullRefresh();
+    }
+
+    public static ChangeSet changes(String[] added, String[] modified, String[] removed) {
+        return new ChangeSet(Arrays.asList(added), Arrays.asList(modified), Arrays.asList(removed), false);
+    }
+
+    public static String[] ids(String... ids) {
+        return ids;
+    }
+
+    public static String[] none() {
+        return new String[0];
+    }
+}
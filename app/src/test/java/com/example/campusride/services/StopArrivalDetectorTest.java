@@ -0,0 +1,139 @@
+package com.example.campusride.services;
+
+import com.example.campusride.data.CampusFixture;
+import com.example.campusride.models.Stop;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for StopArrivalDetector arrival and departure events
+ */
+public class StopArrivalDetectorTest {
+
+    // About 1.1 meters per 0.00001 degrees of latitude
+    private static final double METERS_30 = 0.00027;
+    private static final double METERS_60 = 0.00054;
+    private static final double METERS_100 = 0.0009;
+
+    private final CampusFixture campus = new CampusFixture();
+    private final Stop gate = campus.gate;
+    private final Stop library = campus.library;
+    private final Stop hall = campus.hall;
+
+    private final List<StopArrivalDetector.StopEvent> events = new ArrayList<>();
+    private StopArrivalDetector detector;
+
+    @Before
+    public void setUp() {
+        detector = new StopArrivalDetector(campus.loopStops(), events::add);
+    }
+
+    @Test
+    public void onLocation_arrivesWithinArrivalRadius() {
+        assertNull(detector.getNextStop());
+
+        fix(gate, METERS_60, 0);
+        assertTrue(events.isEmpty());
+
+        fix(gate, METERS_30, 1000);
+        assertEvent(0, StopArrivalDetector.EventType.ARRIVED, "gate", "gate");
+        assertEquals(1000, events.get(0).getTime());
+        assertEquals(gate, detector.getNextStop());
+    }
+
+    @Test
+    public void onLocation_ignoresJitterBetweenRadii() {
+        fix(gate, 0, 0);
+        fix(gate, METERS_60, 1000);
+        fix(gate, METERS_30, 2000);
+        fix(gate, METERS_60, 3000);
+
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void onLocation_departsBeyondDepartureRadiusWithDwell() {
+        fix(gate, 0, 0);
+        fix(gate, METERS_100, 90000);
+
+        assertEquals(2, events.size());
+        assertEvent(1, StopArrivalDetector.EventType.DEPARTED, "gate", "library");
+        assertEquals(90000, events.get(1).getDwellMillis());
+        assertEquals(library, detector.getNextStop());
+    }
+
+    @Test
+    public void onLocation_doesNotReArriveAtStopJustLeft() {
+        fix(gate, 0, 0);
+        fix(gate, METERS_100, 60000);
+        fix(gate, METERS_30, 70000);
+
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    public void onLocation_resynchronizesAfterSkippedStop() {
+        fix(gate, 0, 0);
+        fix(gate, METERS_100, 60000);
+
+        fix(hall, 0, 300000);
+
+        assertEvent(2, StopArrivalDetector.EventType.ARRIVED, "hall", "hall");
+        fix(hall, METERS_100, 360000);
+        // Loops back round to the first stop
+        assertEvent(3, StopArrivalDetector.EventType.DEPARTED, "hall", "gate");
+    }
+
+    @Test
+    public void onLocation_ignoresInaccurateFixes() {
+        detector.onLocation(gate.getLatitude(), gate.getLongitude(), 80, 0);
+        assertTrue(events.isEmpty());
+
+        detector.onLocation(gate.getLatitude(), gate.getLongitude(), 10, 1000);
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void onLocation_resolvesRepeatedStopToNextVisit() {
+        // gate is served twice per lap
+        detector = new StopArrivalDetector(Arrays.asList(gate, library, gate, hall), events::add);
+
+        fix(library, 0, 0);
+        fix(library, METERS_100, 60000);
+        fix(gate, 0, 120000);
+        fix(gate, METERS_100, 180000);
+
+        assertEvent(3, StopArrivalDetector.EventType.DEPARTED, "gate", "hall");
+    }
+
+    @Test
+    public void onLocation_ignoresEmptyRoute() {
+        detector = new StopArrivalDetector(Collections.emptyList(), events::add);
+
+        fix(gate, 0, 0);
+
+        assertTrue(events.isEmpty());
+        assertNull(detector.getNextStop());
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void fix(Stop near, double northDegrees, long time) {
+        detector.onLocation(near.getLatitude() + northDegrees, near.getLongitude(), 0, time);
+    }
+
+    private void assertEvent(int index, StopArrivalDetector.EventType type, String stopId, String nextStopId) {
+        StopArrivalDetector.StopEvent event = events.get(index);
+        assertEquals(type, event.getType());
+        assertEquals(stopId, event.getStop().getStopId());
+        assertEquals(nextStopId, event.getNextStop().getStopId());
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.campusride.utils;
+
+import com.example.campusride.models.Route;
+import com.example.campusride.models.Stop;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for JourneyPlanner over small compiled networks
+ */
+public class JourneyPlannerTest {
+
+    private final Map<String, Stop> stopsById = new HashMap<>();
+    private JourneyPlanner planner;
+
+    @Before
+    public void setUp() {
+        // Stops about 1 km apart are 2 minutes by shuttle
+        put("a1", 5.1000, -1.2800);
+        put("a2", 5.1089, -1.2800);
+        put("a3", 5.1178, -1.2800);
+        put("b2", 5.1178, -1.2711);
+        put("b3", 5.1178, -1.2622);
+        // c1 is a 3 minute walk from a1
+        put("c1", 5.1000, -1.2818);
+        put("c2", 5.0911, -1.2818);
+        // Nowhere near the rest
+        put("z1", 5.2000, -1.2000);
+        put("z2", 5.2089, -1.2000);
+
+        List<Timetable> timetables = new ArrayList<>();
+        // a1 -> a2 -> a3 and back round to a1 in 8 minutes, every 10 minutes from 7:00
+        timetables.add(timetable("loop-a", "7:00 AM", "9:00 AM", 10, true, "a1", "a2", "a3"));
+        // Leaves a3 every 10 minutes from 7:05
+        timetables.add(timetable("loop-b", "7:05 AM", "9:05 AM", 10, false, "a3", "b2", "b3"));
+        // Every 15 minutes from 7:00
+        timetables.add(timetable("line-c", "7:00 AM", "9:00 AM", 15, false, "c1", "c2"));
+        timetables.add(timetable("line-z", "7:00 AM", "9:00 AM", 15, false, "z1", "z2"));
+        planner = new JourneyPlanner(timetables, stopsById);
+    }
+
+    @Test
+    public void plan_findsDirectRide() {
+        List<JourneyPlanner.Journey> journeys = planner.plan("a1", "a3", 7 * 60, false);
+
+        assertEquals(1, journeys.size());
+        JourneyPlanner.Journey journey = journeys.get(0);
+        assertEquals(0, journey.getTransfers());
+        assertEquals(1, journey.getLegs().size());
+        assertLeg(journey.getLegs().get(0), "loop-a", "a1", "a3", 7 * 60, 7 * 60 + 4);
+    }
+
+    @Test
+    public void plan_waitsForNextTrip() {
+        List<JourneyPlanner.Journey> journeys = planner.plan("a1", "a3", 7 * 60 + 1, false);
+
+        assertEquals(1, journeys.size());
+        assertLeg(journeys.get(0).getLegs().get(0), "loop-a", "a1", "a3", 7 * 60 + 10, 7 * 60 + 14);
+    }
+
+    @Test
+    public void plan_changesShuttlesAtSharedStop() {
+        List<JourneyPlanner.Journey> journeys = planner.plan("a1", "b3", 7 * 60, false);
+
+        assertEquals(1, journeys.size());
+        JourneyPlanner.Journey journey = journeys.get(0);
+        assertEquals(1, journey.getTransfers());
+        assertEquals(7 * 60 + 9, journey.getArriveMinute());
+        assertEquals(2, journey.getLegs().size());
+        assertLeg(journey.getLegs().get(0), "loop-a", "a1", "a3", 7 * 60, 7 * 60 + 4);
+        // One minute to change, so the 7:05 from a3 is caught
+        assertLeg(journey.getLegs().get(1), "loop-b", "a3", "b3", 7 * 60 + 5, 7 * 60 + 9);
+    }
+
+    @Test
+    public void plan_ridesRoundTheLoopPastTheLastStop() {
+        List<JourneyPlanner.Journey> journeys = planner.plan("a2", "a1", 7 * 60, false);
+
+        assertEquals(1, journeys.size());
+        JourneyPlanner.Journey journey = journeys.get(0);
+        assertEquals(1, journey.getLegs().size());
+        assertLeg(journey.getLegs().get(0), "loop-a", "a2", "a1", 7 * 60 + 2, 7 * 60 + 8);
+    }
+
+    @Test
+    public void plan_walksBetweenNearbyStops() {
+        List<JourneyPlanner.Journey> journeys = planner.plan("a2", "c2", 7 * 60, false);
+
+        assertEquals(1, journeys.size());
+        JourneyPlanner.Journey journey = journeys.get(0);
+        assertEquals(1, journey.getTransfers());
+        List<JourneyPlanner.Leg> legs = journey.getLegs();
+        assertEquals(3, legs.size());
+        assertLeg(legs.get(0), "loop-a", "a2", "a1", 7 * 60 + 2, 7 * 60 + 8);
+        assertTrue(legs.get(1).isWalk());
+        assertEquals("a1", legs.get(1).getFromStopId());
+        assertEquals("c1", legs.get(1).getToStopId());
+        assertEquals(7 * 60 + 11, legs.get(1).getArriveMinute());
+        assertLeg(legs.get(2), "line-c", "c1", "c2", 7 * 60 + 15, 7 * 60 + 17);
+    }
+
+    @Test
+    public void plan_walksFromOriginToNearbyStop() {
+        List<JourneyPlanner.Journey> journeys = planner.plan("a1", "c2", 7 * 60, false);
+
+        assertEquals(1, journeys.size());
+        List<JourneyPlanner.Leg> legs = journeys.get(0).getLegs();
+        assertEquals(2, legs.size());
+        assertTrue(legs.get(0).isWalk());
+        assertEquals(0, journeys.get(0).getTransfers());
+        assertLeg(legs.get(1), "line-c", "c1", "c2", 7 * 60 + 15, 7 * 60 + 17);
+    }
+
+    @Test
+    public void plan_returnsNothingForUnreachableDestination() {
+        assertTrue(planner.plan("a1", "z2", 7 * 60, false).isEmpty());
+    }
+
+    @Test
+    public void plan_returnsNothingWithoutService() {
+        // loop-a is weekday only, and nothing runs after 9
+        assertTrue(planner.plan("a1", "a3", 7 * 60, true).isEmpty());
+        assertTrue(planner.plan("a1", "a3", 23 * 60, false).isEmpty());
+    }
+
+    @Test
+    public void plan_returnsNothingForUnknownOrSameStop() {
+        assertTrue(planner.plan("a1", "nowhere", 7 * 60, false).isEmpty());
+        assertTrue(planner.plan("a1", "a1", 7 * 60, false).isEmpty());
+        assertFalse(planner.hasStop("nowhere"));
+        assertTrue(planner.hasStop("b2"));
+    }
+
+    @Test
+    public void plan_boardsLiveShuttleAtOrigin() {
+        // The 7:00 is running three minutes late
+        List<JourneyPlanner.Journey> journeys = planner.plan("a1", "a3", 7 * 60, false,
+                live("loop-a", 7 * 60 + 3));
+
+        assertEquals(1, journeys.size());
+        assertLeg(journeys.get(0).getLegs().get(0), "loop-a", "a1", "a3", 7 * 60 + 3, 7 * 60 + 7);
+    }
+
+    @Test
+    public void plan_lateLiveShuttleMissesConnection() {
+        List<JourneyPlanner.Journey> journeys = planner.plan("a1", "b3", 7 * 60, false,
+                live("loop-a", 7 * 60 + 3));
+
+        assertEquals(1, journeys.size());
+        JourneyPlanner.Journey journey = journeys.get(0);
+        assertLeg(journey.getLegs().get(0), "loop-a", "a1", "a3", 7 * 60 + 3, 7 * 60 + 7);
+        // At a3 by 7:07, so the 7:05 is gone and the 7:15 is next
+        assertLeg(journey.getLegs().get(1), "loop-b", "a3", "b3", 7 * 60 + 15, 7 * 60 + 19);
+    }
+
+    @Test
+    public void plan_ignoresLiveEtasBeforeDepartureOrOnUnknownRoutes() {
+        Map<String, Integer> live = new HashMap<>();
+        live.put("loop-a", 6 * 60 + 58);
+        live.put("shuttle-x", 7 * 60 + 1);
+
+        List<JourneyPlanner.Journey> journeys = planner.plan("a1", "a3", 7 * 60, false, live);
+
+        assertEquals(1, journeys.size());
+        assertLeg(journeys.get(0).getLegs().get(0), "loop-a", "a1", "a3", 7 * 60, 7 * 60 + 4);
+    }
+
+    @Test
+    public void plan_canBeRepeatedOnSameInstance() {
+        planner.plan("a1", "b3", 7 * 60, false);
+        planner.plan("a2", "c2", 7 * 60, false);
+
+        List<JourneyPlanner.Journey> journeys = planner.plan("a1", "a3", 7 * 60, false);
+        assertEquals(1, journeys.size());
+        assertEquals(7 * 60 + 4, journeys.get(0).getArriveMinute());
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void put(String stopId, double latitude, double longitude) {
+        stopsById.put(stopId, new Stop(stopId, stopId, latitude, longitude));
+    }
+
+    private static Map<String, Integer> live(String routeId, int minute) {
+        Map<String, Integer> live = new HashMap<>();
+        live.put(routeId, minute);
+        return live;
+    }
+
+    private Timetable timetable(String routeId, String start, String end, int frequency, boolean weekdayOnly,
+                                String... stopIds) {
+        Route route = new Route(routeId, routeId, frequency);
+        route.setStopIds(Arrays.asList(stopIds));
+        route.setStartTime(start);
+        route.setEndTime(end);
+        route.setWeekdayOnly(weekdayOnly);
+        return Timetable.compile(route, stopsById);
+    }
+
+    private static void assertLeg(JourneyPlanner.Leg leg, String routeId, String from, String to,
+                                  int departMinute, int arriveMinute) {
+        assertEquals(routeId, leg.getRouteId());
+        assertEquals(from, leg.getFromStopId());
+        assertEquals(to, leg.getToStopId());
+        assertEquals(departMinute, leg.getDepartMinute());
+        assertEquals(arriveMinute, leg.getArriveMinute());
+    }
+}
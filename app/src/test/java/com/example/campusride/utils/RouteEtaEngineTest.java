@@ -0,0 +1,134 @@
+package com.example.campusride.utils;
+
+import com.example.campusride.data.CampusFixture;
+import com.example.campusride.models.Route;
+import com.example.campusride.models.Shuttle;
+import com.example.campusride.models.Stop;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.example.campusride.data.CampusFixture.loop;
+import static com.example.campusride.data.CampusFixture.shuttle;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for RouteEtaEngine along-route and straight-line estimates
+ */
+public class RouteEtaEngineTest {
+
+    private static final long NOW = 1700000000000L;
+
+    // A triangle loop gate -> library -> hall -> gate, about 1 km per leg
+    private final CampusFixture campus = new CampusFixture();
+    private final Stop gate = campus.gate;
+    private final Stop library = campus.library;
+    private final Stop hall = campus.hall;
+    private final Stop depot = campus.depot;
+    private final Map<String, Stop> stopsById = campus.stopsById;
+
+    private RouteEtaEngine engine;
+
+    @Before
+    public void setUp() {
+        engine = new RouteEtaEngine(Collections.singletonList(loop()), stopsById);
+    }
+
+    @Test
+    public void estimate_measuresAlongRouteToStopAhead() {
+        RouteEtaEngine.Estimate estimate = engine.estimate(shuttle("Campus Loop", 5.1000, -1.2800), library, NOW);
+
+        assertTrue(estimate.isAlongRoute());
+        assertEquals(0.984, estimate.getDistanceKm(), 0.01);
+        assertEquals(2, estimate.getEtaMinutes());
+    }
+
+    @Test
+    public void estimate_wrapsAroundLoopForStopAlreadyPassed() {
+        // From the library the shuttle goes on through the hall before reaching the gate
+        RouteEtaEngine.Estimate estimate = engine.estimate(shuttle("Campus Loop", 5.1089, -1.2800), gate, NOW);
+
+        assertTrue(estimate.isAlongRoute());
+        assertEquals(2.38, estimate.getDistanceKm(), 0.01);
+        assertEquals(5, estimate.getEtaMinutes());
+    }
+
+    @Test
+    public void estimate_countsPartOfCurrentSegment() {
+        RouteEtaEngine.Estimate estimate = engine.estimate(shuttle("Campus Loop", 5.10445, -1.2800), library, NOW);
+
+        assertTrue(estimate.isAlongRoute());
+        assertEquals(0.492, estimate.getDistanceKm(), 0.01);
+        assertEquals(1, estimate.getEtaMinutes());
+    }
+
+    @Test
+    public void estimate_acceptsRouteIdAsWellAsName() {
+        assertTrue(engine.estimate(shuttle("loop", 5.1000, -1.2800), library, NOW).isAlongRoute());
+    }
+
+    @Test
+    public void estimate_fallsBackToStraightLineForUnknownRoute() {
+        RouteEtaEngine.Estimate estimate = engine.estimate(shuttle("Night Bus", 5.1000, -1.2800), library, NOW);
+
+        assertFalse(estimate.isAlongRoute());
+        assertEquals(gate.distanceTo(library), estimate.getDistanceKm(), 0.001);
+    }
+
+    @Test
+    public void estimate_fallsBackToStraightLineWhenOffRoute() {
+        // About 1 km west of the gate, well outside the route corridor
+        RouteEtaEngine.Estimate estimate = engine.estimate(shuttle("Campus Loop", 5.1000, -1.2890), gate, NOW);
+
+        assertFalse(estimate.isAlongRoute());
+        assertNull(engine.locate(shuttle("Campus Loop", 5.1000, -1.2890), NOW));
+    }
+
+    @Test
+    public void estimate_fallsBackToStraightLineForStopNotOnRoute() {
+        RouteEtaEngine.Estimate estimate = engine.estimate(shuttle("Campus Loop", 5.1000, -1.2800), depot, NOW);
+
+        assertFalse(estimate.isAlongRoute());
+        assertEquals(gate.distanceTo(depot), estimate.getDistanceKm(), 0.001);
+    }
+
+    @Test
+    public void estimate_usesLearnedTravelTimes() {
+        engine = new RouteEtaEngine(Collections.singletonList(loop()), stopsById,
+                (from, to, timeMillis) -> "gate".equals(from) && "library".equals(to) ? 300 : -1);
+
+        assertEquals(5, engine.estimate(shuttle("Campus Loop", 5.1000, -1.2800), library, NOW).getEtaMinutes());
+        // Unlearned segments still run at 30 km/h
+        assertEquals(2, engine.estimate(shuttle("Campus Loop", 5.1089, -1.2800), hall, NOW).getEtaMinutes());
+    }
+
+    @Test
+    public void estimateAll_matchesSingleEstimates() {
+        List<Shuttle> shuttles = Arrays.asList(shuttle("Campus Loop", 5.1000, -1.2800),
+                shuttle("Campus Loop", 5.1089, -1.2850), shuttle("Night Bus", 5.1050, -1.2850));
+        List<Stop> stops = Arrays.asList(gate, library, hall, depot);
+
+        RouteEtaEngine.EtaMatrix matrix = engine.estimateAll(shuttles, stops, NOW);
+
+        for (int i = 0; i < shuttles.size(); i++) {
+            for (int j = 0; j < stops.size(); j++) {
+                RouteEtaEngine.Estimate estimate = engine.estimate(shuttles.get(i), stops.get(j), NOW);
+                assertEquals(estimate.getEtaMinutes(), matrix.getEtaMinutes(i, j));
+                assertEquals(estimate.getDistanceKm(), matrix.getDistanceKm(i, j), 1e-9);
+                assertEquals(estimate.isAlongRoute(), matrix.isAlongRoute(i, j));
+            }
+        }
+    }
+
+    @Test
+    public void constructor_skipsRoutesWithoutTwoLocatedStops() {
+        Route route = new Route("short", "Short", 10);
+        route.setStopIds(Arrays.asList("gate", "missing"));
+
+        assertFalse(new RouteEtaEngine(Collections.singletonList(route), stopsById).hasRoutes());
+        assertTrue(engine.hasRoutes());
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.campusride.utils;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SegmentTravelModel time-of-day buckets
+ */
+public class SegmentTravelModelTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final TimeZone ACCRA = TimeZone.getTimeZone("Africa/Accra");
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+
+    @Test
+    public void bucketFor_usesHourOfDayOnWeekdays() {
+        // Wednesday 15 October 2025
+        assertEquals(0, SegmentTravelModel.bucketFor(millis(UTC, 2025, 10, 15, 0, 0), UTC));
+        assertEquals(8, SegmentTravelModel.bucketFor(millis(UTC, 2025, 10, 15, 8, 30), UTC));
+        assertEquals(23, SegmentTravelModel.bucketFor(millis(UTC, 2025, 10, 15, 23, 59), UTC));
+    }
+
+    @Test
+    public void bucketFor_putsWeekendsAfterWeekdays() {
+        // Saturday 18 and Sunday 19 October 2025
+        assertEquals(24 + 8, SegmentTravelModel.bucketFor(millis(UTC, 2025, 10, 18, 8, 0), UTC));
+        assertEquals(24 + 17, SegmentTravelModel.bucketFor(millis(UTC, 2025, 10, 19, 17, 0), UTC));
+        // Friday night and Monday morning are weekdays
+        assertEquals(23, SegmentTravelModel.bucketFor(millis(UTC, 2025, 10, 17, 23, 0), UTC));
+        assertEquals(0, SegmentTravelModel.bucketFor(millis(UTC, 2025, 10, 20, 0, 0), UTC));
+    }
+
+    @Test
+    public void bucketFor_usesLocalTimeOfZone() {
+        // Saturday 01:00 in UTC is still Friday 21:00 in New York
+        long time = millis(UTC, 2025, 10, 18, 1, 0);
+        assertEquals(24 + 1, SegmentTravelModel.bucketFor(time, UTC));
+        assertEquals(21, SegmentTravelModel.bucketFor(time, NEW_YORK));
+    }
+
+    @Test
+    public void bucketFor_matchesCalendarAcrossAWeek() {
+        for (TimeZone zone : new TimeZone[]{UTC, ACCRA, NEW_YORK}) {
+            Calendar calendar = Calendar.getInstance(zone);
+            long start = millis(zone, 2025, 3, 3, 0, 0);
+            for (long time = start; time < start + 8 * 24 * 3600000L; time += 1800000L) {
+                calendar.setTimeInMillis(time);
+                int day = calendar.get(Calendar.DAY_OF_WEEK);
+                boolean weekend = day == Calendar.SATURDAY || day == Calendar.SUNDAY;
+                int expected = (weekend ? 24 : 0) + calendar.get(Calendar.HOUR_OF_DAY);
+                assertEquals(expected, SegmentTravelModel.bucketFor(time, zone));
+            }
+        }
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static long millis(TimeZone zone, int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}
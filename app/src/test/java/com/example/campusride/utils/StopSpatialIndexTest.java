@@ -0,0 +1,105 @@
+package com.example.campusride.utils;
+
+import com.example.campusride.models.Stop;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for StopSpatialIndex nearest-stop and radius queries
+ */
+public class StopSpatialIndexTest {
+
+    private StopSpatialIndex index;
+
+    @Before
+    public void setUp() {
+        index = new StopSpatialIndex();
+        put("library", 5.1036, -1.2885);
+        put("science", 5.1160, -1.2940);
+        put("hall", 5.1100, -1.2830);
+        put("gate", 5.0960, -1.2790);
+    }
+
+    @Test
+    public void nearest_returnsClosestStop() {
+        assertEquals("library", index.nearest(5.1040, -1.2880).getStopId());
+        assertEquals("gate", index.nearest(5.0950, -1.2780).getStopId());
+    }
+
+    @Test
+    public void nearest_ordersResultsByDistance() {
+        List<Stop> stops = index.nearest(5.1040, -1.2880, 3);
+
+        assertEquals(3, stops.size());
+        assertEquals("library", stops.get(0).getStopId());
+        assertEquals("hall", stops.get(1).getStopId());
+        assertEquals("gate", stops.get(2).getStopId());
+    }
+
+    @Test
+    public void nearest_returnsEveryStopWhenKExceedsSize() {
+        assertEquals(4, index.nearest(5.1040, -1.2880, 10).size());
+    }
+
+    @Test(timeout = 1000)
+    public void nearest_farOutsideTheStopsIsFast() {
+        // London, thousands of kilometers from every stop
+        long start = System.nanoTime();
+        Stop nearest = index.nearest(51.5074, -0.1278);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertEquals("science", nearest.getStopId());
+        assertTrue("took " + elapsedMillis + " ms", elapsedMillis < 1000);
+    }
+
+    @Test
+    public void nearest_onEmptyIndexReturnsNothing() {
+        StopSpatialIndex empty = new StopSpatialIndex();
+
+        assertNull(empty.nearest(5.1, -1.29));
+        assertTrue(empty.nearest(5.1, -1.29, 3).isEmpty());
+    }
+
+    @Test
+    public void withinRadius_onlyReturnsStopsInside() {
+        List<Stop> stops = index.withinRadius(5.1040, -1.2880, 1000);
+
+        assertEquals(2, stops.size());
+        assertEquals("library", stops.get(0).getStopId());
+        assertEquals("hall", stops.get(1).getStopId());
+    }
+
+    @Test
+    public void put_movesAnExistingStop() {
+        put("gate", 5.1040, -1.2881);
+
+        assertEquals(4, index.size());
+        assertEquals("gate", index.nearest(5.1040, -1.2881).getStopId());
+    }
+
+    @Test
+    public void remove_dropsTheStop() {
+        index.remove("library");
+
+        assertEquals(3, index.size());
+        assertEquals("hall", index.nearest(5.1040, -1.2880).getStopId());
+    }
+
+    @Test
+    public void put_ignoresStopsWithoutCoordinates() {
+        put("unknown", 0, 0);
+
+        assertEquals(4, index.size());
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private void put(String id, double latitude, double longitude) {
+        index.put(id, new Stop(id, id, latitude, longitude));
+    }
+}
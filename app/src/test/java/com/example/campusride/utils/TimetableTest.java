@@ -0,0 +1,158 @@
+package com.example.campusride.utils;
+
+import com.example.campusride.data.CampusFixture;
+import com.example.campusride.models.Route;
+import com.example.campusride.models.Stop;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Timetable parsing and departure lookups
+ */
+public class TimetableTest {
+
+    // About 1 km apart, 2 minutes at 30 km/h
+    private final Map<String, Stop> stopsById = new CampusFixture().stopsById;
+
+    @Test
+    public void parseMinutes_readsTwelveHourTimes() {
+        assertEquals(6 * 60, Timetable.parseMinutes("6:00 AM"));
+        assertEquals(18 * 60 + 30, Timetable.parseMinutes("6:30 pm"));
+        assertEquals(18 * 60, Timetable.parseMinutes("6 PM"));
+        assertEquals(0, Timetable.parseMinutes("12:00 AM"));
+        assertEquals(12 * 60 + 15, Timetable.parseMinutes("12:15 PM"));
+    }
+
+    @Test
+    public void parseMinutes_readsTwentyFourHourTimes() {
+        assertEquals(6 * 60, Timetable.parseMinutes("06:00"));
+        assertEquals(18 * 60 + 30, Timetable.parseMinutes(" 18:30 "));
+        assertEquals(24 * 60, Timetable.parseMinutes("24:00"));
+    }
+
+    @Test
+    public void parseMinutes_rejectsInvalidText() {
+        assertEquals(-1, Timetable.parseMinutes(null));
+        assertEquals(-1, Timetable.parseMinutes(""));
+        assertEquals(-1, Timetable.parseMinutes("noon"));
+        assertEquals(-1, Timetable.parseMinutes("13:00 PM"));
+        assertEquals(-1, Timetable.parseMinutes("0:30 AM"));
+        assertEquals(-1, Timetable.parseMinutes("10:75"));
+        assertEquals(-1, Timetable.parseMinutes("25:00"));
+    }
+
+    @Test
+    public void compile_offsetsStopsByTravelTime() {
+        Timetable timetable = Timetable.compile(route("7:00 AM", "9:00 AM", 20, false), stopsById);
+
+        assertEquals(3, timetable.getStopCount());
+        assertEquals(0, timetable.getStopOffset(0));
+        assertEquals(2, timetable.getStopOffset(1));
+        assertEquals(4, timetable.getStopOffset(2));
+        assertEquals(1, timetable.indexOfStop("library"));
+        assertEquals(-1, timetable.indexOfStop("depot"));
+    }
+
+    @Test
+    public void compile_usesLearnedTravelTimes() {
+        // Gate to library is learned as 5 min 10 s; library to hall stays at 30 km/h
+        RouteEtaEngine.TravelTimes learned = new RouteEtaEngine.TravelTimes() {
+            @Override
+            public double travelSeconds(String fromStopId, String toStopId, long timeMillis) {
+                return -1;
+            }
+
+            @Override
+            public double typicalSeconds(String fromStopId, String toStopId) {
+                return fromStopId.equals("gate") && toStopId.equals("library") ? 310 : -1;
+            }
+        };
+        Route route = route("7:00 AM", "9:00 AM", 20, false);
+        Timetable timetable = Timetable.compile(route, stopsById, learned);
+
+        assertEquals(6, timetable.getStopOffset(1));
+        assertEquals(8, timetable.getStopOffset(2));
+        assertEquals(Timetable.versionOf(route, stopsById, learned), timetable.getVersion());
+        assertNotEquals(Timetable.versionOf(route, stopsById), timetable.getVersion());
+    }
+
+    @Test
+    public void nextDeparture_findsFirstDepartureAtOrAfterTime() {
+        Timetable timetable = Timetable.compile(route("7:00 AM", "9:00 AM", 20, false), stopsById);
+
+        assertEquals(7 * 60, timetable.nextDeparture(0, false, 6 * 60));
+        assertEquals(7 * 60, timetable.nextDeparture(0, false, 7 * 60));
+        assertEquals(7 * 60 + 20, timetable.nextDeparture(0, false, 7 * 60 + 1));
+        assertEquals(9 * 60, timetable.nextDeparture(0, false, 8 * 60 + 45));
+    }
+
+    @Test
+    public void nextDeparture_addsStopOffset() {
+        Timetable timetable = Timetable.compile(route("7:00 AM", "9:00 AM", 20, false), stopsById);
+
+        assertEquals(7 * 60 + 2, timetable.nextDeparture(1, false, 7 * 60));
+        assertEquals(7 * 60 + 22, timetable.nextDeparture(1, false, 7 * 60 + 3));
+        assertEquals(9 * 60 + 4, timetable.nextDeparture(2, false, 9 * 60 + 1));
+    }
+
+    @Test
+    public void nextDeparture_returnsMinusOneAfterLastTrip() {
+        Timetable timetable = Timetable.compile(route("7:00 AM", "9:00 AM", 20, false), stopsById);
+
+        assertEquals(-1, timetable.nextDeparture(0, false, 9 * 60 + 1));
+        assertEquals(-1, timetable.nextDeparture(2, false, 9 * 60 + 5));
+    }
+
+    @Test
+    public void nextDeparture_weekdayOnlyRouteHasNoWeekendTrips() {
+        Timetable timetable = Timetable.compile(route("7:00 AM", "9:00 AM", 20, true), stopsById);
+
+        assertFalse(timetable.runs(true));
+        assertEquals(-1, timetable.nextDeparture(0, true, 0));
+        assertEquals(7 * 60, timetable.nextDeparture(0, false, 0));
+    }
+
+    @Test
+    public void nextDepartures_fillsBufferInOrder() {
+        Timetable timetable = Timetable.compile(route("7:00 AM", "9:00 AM", 20, false), stopsById);
+        int[] out = new int[3];
+
+        assertEquals(3, timetable.nextDepartures(0, false, 7 * 60 + 5, out));
+        assertArrayEquals(new int[]{7 * 60 + 20, 7 * 60 + 40, 8 * 60}, out);
+        assertEquals(1, timetable.nextDepartures(0, false, 9 * 60, out));
+        assertEquals(9 * 60, out[0]);
+    }
+
+    @Test
+    public void compile_fallsBackToDefaultHours() {
+        Timetable timetable = Timetable.compile(route(null, "later", 30, false), stopsById);
+
+        assertEquals(6 * 60, timetable.firstDeparture(0, false));
+        assertEquals(22 * 60, timetable.lastDeparture(0, false));
+        assertEquals(8 * 60, timetable.firstDeparture(0, true));
+        assertEquals(20 * 60, timetable.lastDeparture(0, true));
+    }
+
+    @Test
+    public void formatMinutes_usesTwelveHourClock() {
+        assertEquals("12:00 AM", Timetable.formatMinutes(0));
+        assertEquals("6:05 AM", Timetable.formatMinutes(6 * 60 + 5));
+        assertEquals("12:30 PM", Timetable.formatMinutes(12 * 60 + 30));
+        assertEquals("10:00 PM", Timetable.formatMinutes(22 * 60));
+    }
+
+    /**
+     * Helper methods
+     */
+
+    private static Route route(String start, String end, int frequency, boolean weekdayOnly) {
+        Route route = CampusFixture.loop();
+        route.setFrequencyMinutes(frequency);
+        route.setStartTime(start);
+        route.setEndTime(end);
+        route.setWeekdayOnly(weekdayOnly);
+        return route;
+    }
+}